@@ -1,5 +1,8 @@
 package AX25;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import data_Ccsds.Function.ArgumentNullException;
 import data_Ccsds.Packets.ArgumentException;
 
@@ -7,23 +10,47 @@ import data_Ccsds.Packets.ArgumentException;
 public class AX25Frame
 {
      /// AX.25 Address Field
-     public class AX25AddressField
+     ///
+     /// The address is packed in a long: the six Call Sign bytes as transmitted (ASCII shifted left
+     /// by one bit) in bits 55-8, the Secondary Station Identifier in bits 3-0. The static methods
+     /// parse and write the packed form without allocating, so that frames can be routed and filtered
+     /// by station with primitive keys; instances compare by value.
+     public static class AX25AddressField
      {
           /// SSID Mask
           private static final byte SSIDMask = 0x60;
-        
-          public String CallSign;
-          
-          /// Secondary Station Identifier
-          public byte Ssid;
-        
+
+          /// Call Sign length
+          private static final int CallSignLength = 6;
+
+          /// Packed address
+          private long value;
+
+          /// Call Sign of the packed address, looked up on demand
+          private String callSign;
+
+          /// Interned Call Signs, keyed on the 6 Call Sign bytes of a packed address (direct-mapped, entries are immutable)
+          private static final CallSignEntry[] CallSigns = new CallSignEntry[256];
+
+          /// Entry of the Call Sign table
+          private static final class CallSignEntry
+          {
+               final long key;
+               final String callSign;
+
+               CallSignEntry(long key, String callSign)
+                    {
+                         this.key = key;
+                         this.callSign = callSign;
+                    }
+          }
+
           /// AX.25 Address Field constructor
           public AX25AddressField()
                {
-                    this.CallSign = "000000";
-                    this.Ssid = 0;
+                    this.value = AX25AddressField.Pack("000000", 0);
                }
-        
+
           /// AX.25 Address Field constructor
           /// <param name="framePart">AX.25 Frame Part</param>
           public AX25AddressField(byte[] framePart)
@@ -36,76 +63,180 @@ public class AX25Frame
           /// <param name="offset">Offset into the data byte array</param>
           public AX25AddressField(byte[] framePart, int offset)
                {
-                    // Call Sign
-                    char[] tmp = new char[6];
-                    tmp[0] = (char)(framePart[offset] >> 1);
-                    tmp[1] = (char)(framePart[offset + 1] >> 1);
-                    tmp[2] = (char)(framePart[offset + 2] >> 1);
-                    tmp[3] = (char)(framePart[offset + 3] >> 1);
-                    tmp[4] = (char)(framePart[offset + 4] >> 1);
-                    tmp[5] = (char)(framePart[offset + 5] >> 1);
-                    this.CallSign = new String(tmp);
-
-                    // SSID
-                    this.Ssid = (byte)((framePart[offset + 6] >> 1) & 0xF);
+                    this.value = AX25AddressField.Parse(framePart, offset);
                }
 
           /// AX.25 Address Field constructor
-          /// <param name="callSign">Call Sign</param>
+          /// <param name="callSign">Call Sign (at most 6 characters, padded with spaces)</param>
           /// <param name="ssid">Secondary Station Identifier</param>
           public AX25AddressField(String callSign, byte ssid)
                {
-                    this.CallSign = callSign;
-                    this.Ssid = ssid;
+                    this.value = AX25AddressField.Pack(callSign, ssid);
                }
-        
-          /// Convert the Frame Identification to a byte array
+
+          /// Packs a Call Sign and a Secondary Station Identifier
+          /// <param name="callSign">Call Sign (at most 6 characters, padded with spaces)</param>
+          /// <param name="ssid">Secondary Station Identifier (0-15)</param>
+          /// <returns>The packed address</returns>
+          public static long Pack(String callSign, int ssid)
+               {
+                    if (callSign.length() > CallSignLength)
+                         throw new IllegalArgumentException("Call Sign too long : " + callSign);
+                    long value = 0;
+                    for (int i = 0; i < CallSignLength; i++)
+                    {
+                         char c = i < callSign.length() ? callSign.charAt(i) : ' ';
+                         value = (value << 8) | ((c << 1) & 0xFE);
+                    }
+                    return (value << 8) | (ssid & 0x0F);
+               }
+
+          /// Parses an address without allocating
+          /// <param name="framePart">AX.25 Frame Part</param>
+          /// <param name="offset">Offset into the data byte array</param>
+          /// <returns>The packed address</returns>
+          public static long Parse(byte[] framePart, int offset)
+               {
+                    long value = 0;
+                    for (int i = 0; i < CallSignLength; i++)
+                    {
+                         value = (value << 8) | (framePart[offset + i] & 0xFE);
+                    }
+                    return (value << 8) | ((framePart[offset + CallSignLength] >> 1) & 0x0F);
+               }
+
+          /// Writes an address without allocating
+          /// <param name="value">Packed address</param>
           /// <param name="sourceAddress">Source Address</param>
-          /// <returns>The byte array</returns>
-          public byte[] ToByteArray(boolean sourceAddress)
+          /// <param name="frame">Byte array receiving the 7 bytes of the address</param>
+          /// <param name="offset">Offset into the byte array</param>
+          public static void Write(long value, boolean sourceAddress, byte[] frame, int offset)
                {
                     // Call Sign
-                    byte[] tmp = new byte[7];
-                    tmp[0] = (byte)(this.CallSign.charAt(0) << 1);
-                    tmp[1] = (byte)(this.CallSign.charAt(1) << 1);
-                    tmp[2] = (byte)(this.CallSign.charAt(2) << 1);
-                    tmp[3] = (byte)(this.CallSign.charAt(3) << 1);
-                    tmp[4] = (byte)(this.CallSign.charAt(4) << 1);
-                    tmp[5] = (byte)(this.CallSign.charAt(5) << 1);
+                    for (int i = 0; i < CallSignLength; i++)
+                    {
+                         frame[offset + i] = (byte)(value >>> (8 * (CallSignLength - i)));
+                    }
 
                     // SSID
-                    tmp[6] = (byte)((this.Ssid << 1) | AX25AddressField.SSIDMask);
-                    if (sourceAddress == true)
+                    frame[offset + CallSignLength] = (byte)(((value & 0x0F) << 1) | AX25AddressField.SSIDMask | (sourceAddress ? 0x01 : 0x00));
+               }
+
+          /// Writes an address at the position of a buffer without allocating
+          /// <param name="value">Packed address</param>
+          /// <param name="sourceAddress">Source Address</param>
+          /// <param name="buffer">Buffer receiving the 7 bytes of the address</param>
+          public static void Write(long value, boolean sourceAddress, ByteBuffer buffer)
+               {
+                    // Call Sign
+                    for (int i = 0; i < CallSignLength; i++)
                     {
-                         tmp[6] |= 0x01;
+                         buffer.put((byte)(value >>> (8 * (CallSignLength - i))));
                     }
 
-                    return tmp;
+                    // SSID
+                    buffer.put((byte)(((value & 0x0F) << 1) | AX25AddressField.SSIDMask | (sourceAddress ? 0x01 : 0x00)));
                }
 
-          /// 
-          /// <param name="o"></param>
-          /// <returns></returns>
-          public boolean equals (Object other)
+          /// Packed address
+          public long getValue () { return this.value; }
+
+          /// Packed address
+          public void setValue (long value)
                {
-                    if (other == null) return false;
-                    if (other == this) return true;
-                    if (!(other instanceof AX25AddressField))return false;
-                    AX25AddressField otherField = (AX25AddressField)other;
-                  
-                    if (this.CallSign == otherField.CallSign && this.Ssid == otherField.Ssid)
+                    if (value != this.value)
+                    {
+                         this.value = value;
+                         this.callSign = null;
+                    }
+               }
+
+          /// Call Sign, interned: addresses of the same station share one String
+          public String getCallSign ()
+               {
+                    if (this.callSign == null)
+                    {
+                         this.callSign = AX25AddressField.CallSignOf(this.value);
+                    }
+                    return this.callSign;
+               }
+
+          /// Call Sign
+          /// <param name="callSign">Call Sign (at most 6 characters, padded with spaces)</param>
+          public void setCallSign (String callSign)
+               {
+                    this.setValue(AX25AddressField.Pack(callSign, this.getSsid()));
+               }
+
+          /// Secondary Station Identifier
+          public byte getSsid () { return (byte)(this.value & 0x0F); }
+
+          /// Secondary Station Identifier
+          /// <param name="ssid">Secondary Station Identifier (0-15)</param>
+          public void setSsid (byte ssid)
+               {
+                    this.value = (this.value & ~0x0FL) | (ssid & 0x0F);
+               }
+
+          /// Gets the interned Call Sign of a packed address
+          /// <param name="value">Packed address</param>
+          /// <returns>The Call Sign</returns>
+          public static String CallSignOf(long value)
+               {
+                    long key = value >>> 8;
+                    int index = (int)(key ^ (key >>> 17) ^ (key >>> 31)) & (CallSigns.length - 1);
+                    CallSignEntry entry = CallSigns[index];
+                    if (entry != null && entry.key == key)
                     {
-                         return true;
+                         return entry.callSign;
                     }
 
-                    return false;
+                    // Miss: the String pool keeps Call Signs evicted from the table shared
+                    char[] tmp = new char[CallSignLength];
+                    for (int i = 0; i < CallSignLength; i++)
+                    {
+                         tmp[i] = (char)((key >>> (8 * (CallSignLength - 1 - i) + 1)) & 0x7F);
+                    }
+                    String callSign = new String(tmp).intern();
+                    CallSigns[index] = new CallSignEntry(key, callSign);
+                    return callSign;
+               }
+
+          /// Convert the Address Field to a byte array
+          /// <param name="sourceAddress">Source Address</param>
+          /// <returns>The byte array</returns>
+          public byte[] ToByteArray(boolean sourceAddress)
+               {
+                    byte[] tmp = new byte[7];
+                    AX25AddressField.Write(this.value, sourceAddress, tmp, 0);
+                    return tmp;
+               }
+
+          /// Write the Address Field into a byte array
+          /// <param name="sourceAddress">Source Address</param>
+          /// <param name="frame">Byte array receiving the 7 bytes of the address</param>
+          /// <param name="offset">Offset into the byte array</param>
+          public void WriteTo(boolean sourceAddress, byte[] frame, int offset)
+               {
+                    AX25AddressField.Write(this.value, sourceAddress, frame, offset);
+               }
+
+          public boolean equals (Object other)
+               {
+                    if (other == this) return true;
+                    if (!(other instanceof AX25AddressField)) return false;
+                    return this.value == ((AX25AddressField)other).value;
                }
 
           public int hashCode ()
                {
-                    return super.hashCode ();
+                    return (int)(this.value ^ (this.value >>> 32));
                }
 
+          public String toString ()
+               {
+                    return this.getCallSign().trim() + "-" + this.getSsid();
+               }
      }
      
      /// Control Bits (Unnumbered frame)
@@ -119,7 +250,7 @@ public class AX25Frame
      /// Total Frame Length
      public int getLength () throws ArgumentNullException, ArgumentException, AX25Exception
           {
-               return (int)(AX25Frame.HeaderLength + this.GetInformationField().length);
+               return (int)(AX25Frame.HeaderLength + this.getInformationFieldLength());
           }
         
      /// Destination Address
@@ -148,17 +279,42 @@ public class AX25Frame
      /// <param name="frame">AX.25 Frame</param>
      /// <param name="offset">Offset into the data byte array</param>
      public AX25Frame(byte[] frame, int offset) throws AX25Exception
+          {this (frame, offset, frame.length - offset); }
+
+     /// AX.25 Frame constructor
+     /// <param name="frame">Byte array containing the AX.25 Frame</param>
+     /// <param name="offset">Offset of the frame into the byte array</param>
+     /// <param name="length">Length of the frame</param>
+     public AX25Frame(byte[] frame, int offset, int length) throws AX25Exception
           {
-               this ();
+               this.DstAddress = new AX25AddressField();
+               this.SrcAddress = new AX25AddressField();
+               this.Parse(frame, offset, length);
+          }
+
+     /// Parse a frame into this instance, in one pass, reusing its fields
+     ///
+     /// Lets a decoder loop parse every frame into the same instance; the fields are overwritten by
+     /// the next call.
+     /// <param name="frame">Byte array containing the AX.25 Frame</param>
+     /// <param name="offset">Offset of the frame into the byte array</param>
+     /// <param name="length">Length of the frame</param>
+     public void Parse(byte[] frame, int offset, int length) throws AX25Exception
+          {
+               if (offset < 0 || length < AX25Frame.HeaderLength || length > frame.length - offset)
+               {
+                    throw new AX25Exception("Wrong AX.25 Frame length !");
+               }
+
                // **************************************
                // Destination Address Field
                // **************************************
-               this.DstAddress = new AX25AddressField(frame, offset);
+               this.DstAddress.setValue(AX25AddressField.Parse(frame, offset));
 
                // **************************************
                // Source Address Field
                // **************************************
-               this.SrcAddress = new AX25AddressField(frame, offset + 7);
+               this.SrcAddress.setValue(AX25AddressField.Parse(frame, offset + 7));
 
                // **************************************
                // Control Bits
@@ -179,16 +335,7 @@ public class AX25Frame
                // **************************************
                // Information Field
                // **************************************
-               if (frame.length - offset - AX25Frame.HeaderLength > 0)
-               {
-                    byte[] informationField = new byte[frame.length - offset - AX25Frame.HeaderLength];
-                    System.arraycopy (frame, (int)(offset + AX25Frame.HeaderLength), informationField, 0, (int)(frame.length - offset - AX25Frame.HeaderLength));
-                    this.SetInformationField (informationField);
-               }
-               else
-               {
-                    this.SetInformationField (new byte[0]);
-               }
+               this.ParseInformationField(frame, offset + AX25Frame.HeaderLength, length - AX25Frame.HeaderLength);
           }
 
      /// AX.25 Frame constructor
@@ -208,34 +355,73 @@ public class AX25Frame
      public byte[] ToByteArray() throws ArgumentNullException, ArgumentException, AX25Exception
           {
                byte[] frame = new byte[this.getLength ()];
+               this.WriteTo(ByteBuffer.wrap(frame));
+               return frame;
+          }
+
+     /// Write the Frame into a byte array
+     /// <param name="buffer">The byte array</param>
+     /// <param name="offset">Offset of the frame into the byte array</param>
+     /// <returns>The length of the frame</returns>
+     public int WriteTo(byte[] buffer, int offset) throws ArgumentNullException, ArgumentException, AX25Exception
+          {
+               if (buffer == null)
+                    throw new ArgumentNullException("buffer");
+               if (offset < 0 || offset > buffer.length)
+                    throw new ArgumentException("Wrong offset : " + offset);
+               return this.WriteTo(ByteBuffer.wrap(buffer, offset, buffer.length - offset));
+          }
+
+     /// Write the Frame at the position of a buffer, in one pass
+     /// <param name="buffer">The buffer, its position is moved past the frame</param>
+     /// <returns>The length of the frame</returns>
+     public int WriteTo(ByteBuffer buffer) throws ArgumentNullException, ArgumentException, AX25Exception
+          {
+               if (buffer == null)
+                    throw new ArgumentNullException("buffer");
+               int length = this.getLength ();
+               if (buffer.remaining() < length)
+                    throw new ArgumentException("Buffer too short for a frame of " + length + " bytes");
 
                // **************************************
                // Destination Address Field
                // **************************************
-               System.arraycopy(this.DstAddress.ToByteArray(false), 0, frame, 0, 7);
+               AX25AddressField.Write(this.DstAddress.getValue(), false, buffer);
 
                // **************************************
                // Source Address Field
                // **************************************
-               System.arraycopy(this.SrcAddress.ToByteArray(true), 0, frame, 7, 7);
+               AX25AddressField.Write(this.SrcAddress.getValue(), true, buffer);
 
                // **************************************
                // Control Bits
                // **************************************
-               frame[14] = AX25Frame.ControlBits;
+               buffer.put(AX25Frame.ControlBits);
 
                // **************************************
                // Protocol Identifier
                // **************************************
-               frame[15] = AX25Frame.ProtocolIdentifier;
+               buffer.put(AX25Frame.ProtocolIdentifier);
 
                // **************************************
                // Information Field
                // **************************************
-               byte[] informationField = this.GetInformationField ();
-               System.arraycopy(informationField, 0, frame, 16, informationField.length);
+               this.WriteInformationField(buffer);
 
-               return frame;
+               return length;
+          }
+
+     /// Information Field Length
+     protected int getInformationFieldLength() throws ArgumentNullException, ArgumentException, AX25Exception
+          {
+               return this.GetInformationField().length;
+          }
+
+     /// Write the Information Field at the position of a buffer
+     /// <param name="buffer">The buffer, with room for the Information Field</param>
+     protected void WriteInformationField(ByteBuffer buffer) throws ArgumentNullException, ArgumentException, AX25Exception
+          {
+               buffer.put(this.GetInformationField());
           }
 
      /// Convert the Information Field to a byte array
@@ -252,6 +438,15 @@ public class AX25Frame
                }
           }
 
+     /// Parse the Information Field from a byte array
+     /// <param name="frame">The byte array</param>
+     /// <param name="offset">Offset of the Information Field into the byte array</param>
+     /// <param name="length">Length of the Information Field</param>
+     protected void ParseInformationField(byte[] frame, int offset, int length) throws AX25Exception
+          {
+               this.SetInformationField (Arrays.copyOfRange(frame, offset, offset + length));
+          }
+
      /// Set a byte array to the Information Field
      /// <param name="informationField">The byte array</param>
      protected void SetInformationField(byte[] informationField) throws AX25Exception
@@ -0,0 +1,82 @@
+package AX25;
+
+/// AX.25 Frame Identification
+class AX25FrameIdentification
+{
+     /// Version Number
+     private static byte VersionNumber = 0x00;
+     /// Spare
+     private static byte Spare = 0x00;
+
+     /// Virtual Channel ID
+     public byte VirtualChannelId;
+     
+     public AX25FrameIdentification()
+          {
+               this.VirtualChannelId = 0;
+          }
+
+     /// <param name="framePart">AX.25 Frame Part</param>
+     public AX25FrameIdentification(byte[] framePart) throws AX25Exception
+     {  
+             this(framePart, 0);
+     }
+
+     /// <param name="framePart">AX.25 Frame Part</param>
+     /// <param name="offset">Offset into the data byte array</param>
+     public AX25FrameIdentification(byte[] framePart, int offset) throws AX25Exception
+          {
+               this.Parse(framePart, offset);
+          }
+
+     /// AX.25 Frame Identification constructor
+     /// <param name="vcId">Virtual Channel ID</param>
+     public AX25FrameIdentification(byte vcId)
+          {
+               this.VirtualChannelId = vcId;
+          }
+
+     /// Parse the Frame Identification into this instance
+     /// <param name="framePart">AX.25 Frame Part</param>
+     /// <param name="offset">Offset into the data byte array</param>
+     public void Parse(byte[] framePart, int offset) throws AX25Exception
+          {
+               // Version Number
+               if (((byte)(framePart[offset] >> 6)) != AX25FrameIdentification.VersionNumber)
+               {
+                    throw new AX25Exception(String.format("Version number must be {0:X} !", AX25FrameIdentification.VersionNumber));
+               }
+
+               // Virtual Channel ID
+               this.VirtualChannelId = (byte)((framePart[offset] >> 3) & 0x07);
+
+               // Spare
+               if (((byte)(framePart[offset] & 0x07)) != AX25FrameIdentification.Spare)
+               {
+                    throw new AX25Exception(String.format("Frame Identification Spare must be {0:X} !", AX25FrameIdentification.Spare));
+               }
+          }
+
+     /// Convert the Frame Identification to a byte array
+     /// <returns>The byte array</returns>
+     public byte[] ToByteArray()
+          {
+               return new byte[] { this.ToByte() };
+          }
+
+     /// Convert the Frame Identification to a byte
+     /// <returns>The byte</returns>
+     public byte ToByte()
+          {
+               // Version Number
+               int tmp = AX25FrameIdentification.VersionNumber << 6;
+
+               // Virtual Channel ID
+               tmp |= this.VirtualChannelId << 3;
+
+               // Spare
+               tmp |= AX25FrameIdentification.Spare;
+
+               return (byte)tmp;
+          }
+}
@@ -0,0 +1,88 @@
+package AX25;
+
+/// AX.25 Frame Status
+class AX25FrameStatus
+{
+     /// Spare
+     private static byte Spare = 0x00;
+
+     /// Time Flag
+     public byte TimeFlag;
+
+     /// Time Length
+     public int getTimeLength()
+          {
+               return (int)(this.TimeFlag >= 8 ? ((this.TimeFlag & 0x7) + 1) : 0);
+          }
+
+     public byte TCCounter;
+
+     public AX25FrameStatus()
+          {
+               this.TimeFlag = 0xB; // Default SwissCube Time Flag value (0xB)
+               this.TCCounter = 0;
+          }
+
+     /// <param name="framePart">AX.25 Frame Part</param>
+     public AX25FrameStatus(byte[] framePart) throws AX25Exception
+     {
+         this (framePart, 0);
+     }
+
+     /// <param name="framePart">AX.25 Frame Part</param>
+     /// <param name="offset">Offset into the data byte array</param>
+     public AX25FrameStatus(byte[] framePart, int offset) throws AX25Exception
+          {
+               this.Parse(framePart, offset);
+          }
+
+     /// AX.25 Frame Status constructor
+     /// <param name="timeFlag">Time Flag</param>
+     /// <param name="tcCounter">TC Counter</param>
+     public AX25FrameStatus(byte timeFlag, byte tcCounter)
+          {
+               this.TimeFlag = timeFlag;
+               this.TCCounter = tcCounter;
+          }
+
+     /// Parse the Frame Status into this instance
+     /// <param name="framePart">AX.25 Frame Part</param>
+     /// <param name="offset">Offset into the data byte array</param>
+     public void Parse(byte[] framePart, int offset) throws AX25Exception
+          {
+               // Time Flag
+               this.TimeFlag = (byte)((framePart[offset] >> 4) & 0x0F);
+
+               // Spare
+               if (((byte)((framePart[offset] >> 2) & 0x03)) != AX25FrameStatus.Spare)
+               {
+                    throw new AX25Exception(String.format("Frame Status Spare must be {0:X} !", AX25FrameStatus.Spare));
+               }
+
+               // TC Counter
+               this.TCCounter = (byte)(framePart[offset] & 0x03);
+          }
+
+     /// Convert the Frame Status to a byte array
+     /// <returns>The byte array</returns>
+     public byte[] ToByteArray()
+          {
+               return new byte[] { this.ToByte() };
+          }
+
+     /// Convert the Frame Status to a byte
+     /// <returns>The byte</returns>
+     public byte ToByte()
+          {
+               // Time Flag
+               int tmp = this.TimeFlag << 4;
+
+               // Spare
+               tmp |= AX25FrameStatus.Spare << 2;
+
+               // TC Counter
+               tmp |= this.TCCounter;
+
+               return (byte)tmp;
+          }
+}
@@ -0,0 +1,156 @@
+package AX25;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.CcsdsPacket;
+
+/// Merges the downlinks of several ground stations tracking the same pass
+///
+/// Each station thread offers its frames and packets; the first copy of an item is queued, with the
+/// station which delivered it, and the copies received from the other stations within the window
+/// are dropped. The items come out as one stream, in the order the first copies arrived.
+///
+/// Frames are identified by (Virtual Channel ID, Master Frame Count, Time), packets by (APID,
+/// Sequence Count, Packet Error Control). The duplicates are found with fixed-size
+/// <see cref="DuplicateFilter"/>s, the stream is a lock-free queue and each station has its own
+/// counters: the stations do not contend on a global lock.
+public class DownlinkMerger
+{
+     /// Item of the merged stream
+     public static final class MergedItem
+     {
+          /// Station which delivered the item first
+          public final int StationId;
+          /// Frame, null for a packet
+          public final AX25Telemetry Frame;
+          /// Packet, null for a frame
+          public final CcsdsPacket Packet;
+          /// Reception time by the station (ms)
+          public final long ReceptionTime;
+
+          MergedItem(int stationId, AX25Telemetry frame, CcsdsPacket packet, long receptionTime)
+               {
+                    this.StationId = stationId;
+                    this.Frame = frame;
+                    this.Packet = packet;
+                    this.ReceptionTime = receptionTime;
+               }
+     }
+
+     /// Counters of a station, padded to a cache line so that the stations do not share one
+     private static final int FirstIndex = 0;
+     private static final int DuplicateIndex = 1;
+     private static final int CounterStride = 8;
+
+     private final int stationCount;
+     private final DuplicateFilter frameFilter;
+     private final DuplicateFilter packetFilter;
+     private final ConcurrentLinkedQueue<MergedItem> stream = new ConcurrentLinkedQueue<MergedItem>();
+     private final AtomicLongArray counters;
+
+     /// Downlink Merger constructor
+     /// <param name="stationCount">Number of ground stations, identified by 0 to stationCount - 1</param>
+     /// <param name="capacity">Number of frames, and of packets, remembered (see <see cref="DuplicateFilter"/>)</param>
+     /// <param name="window">Time during which the copies of an item are dropped (ms)</param>
+     public DownlinkMerger(int stationCount, int capacity, long window) throws ArgumentOutOfRangeException
+          {
+               if (stationCount <= 0)
+                    throw new ArgumentOutOfRangeException("stationCount : " + stationCount);
+               this.stationCount = stationCount;
+               this.frameFilter = new DuplicateFilter(capacity, window);
+               this.packetFilter = new DuplicateFilter(capacity, window);
+               this.counters = new AtomicLongArray((stationCount + 1) * CounterStride);
+          }
+
+     /// Offers a frame received by a station (station thread); the frame must not be modified afterwards
+     /// <param name="stationId">Station ID</param>
+     /// <param name="frame">AX.25 Telemetry Transfer Frame</param>
+     /// <returns>Whether the frame is the first copy, false for a duplicate</returns>
+     public boolean Offer(int stationId, AX25Telemetry frame) throws ArgumentOutOfRangeException
+          {
+               return this.Offer(stationId, frame, System.currentTimeMillis());
+          }
+
+     /// Offers a frame received by a station (station thread); the frame must not be modified afterwards
+     /// <param name="stationId">Station ID</param>
+     /// <param name="frame">AX.25 Telemetry Transfer Frame</param>
+     /// <param name="receptionTime">Reception time (ms)</param>
+     /// <returns>Whether the frame is the first copy, false for a duplicate</returns>
+     public boolean Offer(int stationId, AX25Telemetry frame, long receptionTime) throws ArgumentOutOfRangeException
+          {
+               this.checkStation(stationId);
+               long key = ((frame.FrameIdentification.VirtualChannelId & 0x07) << 8) | (frame.MasterFrameCount & 0xFF);
+               return this.offer(this.frameFilter, frame.Time, key, new MergedItem(stationId, frame, null, receptionTime));
+          }
+
+     /// Offers a packet received by a station (station thread); the packet must not be modified afterwards
+     /// <param name="stationId">Station ID</param>
+     /// <param name="packet">CCSDS packet</param>
+     /// <returns>Whether the packet is the first copy, false for a duplicate</returns>
+     public boolean Offer(int stationId, CcsdsPacket packet) throws ArgumentOutOfRangeException
+          {
+               return this.Offer(stationId, packet, System.currentTimeMillis());
+          }
+
+     /// Offers a packet received by a station (station thread); the packet must not be modified afterwards
+     /// <param name="stationId">Station ID</param>
+     /// <param name="packet">CCSDS packet</param>
+     /// <param name="receptionTime">Reception time (ms)</param>
+     /// <returns>Whether the packet is the first copy, false for a duplicate</returns>
+     public boolean Offer(int stationId, CcsdsPacket packet, long receptionTime) throws ArgumentOutOfRangeException
+          {
+               this.checkStation(stationId);
+               long key = ((long)(packet.getApplicationProcessId() & 0x7FF) << 30) | ((long)(packet.getSequenceCount() & 0x3FFF) << 16) | (packet.getPacketErrorControl() & 0xFFFF);
+               return this.offer(this.packetFilter, 0, key, new MergedItem(stationId, null, packet, receptionTime));
+          }
+
+     private boolean offer(DuplicateFilter filter, long high, long low, MergedItem item)
+          {
+               int counter = (item.StationId + 1) * CounterStride;
+               if (!filter.Add(high, low, item.ReceptionTime))
+               {
+                    this.counters.incrementAndGet(counter + DuplicateIndex);
+                    return false;
+               }
+               this.counters.incrementAndGet(counter + FirstIndex);
+               this.stream.add(item);
+               return true;
+          }
+
+     private void checkStation(int stationId) throws ArgumentOutOfRangeException
+          {
+               if (stationId < 0 || stationId >= this.stationCount)
+                    throw new ArgumentOutOfRangeException("stationId : " + stationId);
+          }
+
+     /// Takes the next item of the merged stream (any thread)
+     /// <returns>The item, null if none is waiting</returns>
+     public MergedItem Poll()
+          {
+               return this.stream.poll();
+          }
+
+     /// Number of items a station delivered first
+     /// <param name="stationId">Station ID</param>
+     public long getFirstCount (int stationId) throws ArgumentOutOfRangeException
+          {
+               this.checkStation(stationId);
+               return this.counters.get((stationId + 1) * CounterStride + FirstIndex);
+          }
+
+     /// Number of items a station delivered after another one
+     /// <param name="stationId">Station ID</param>
+     public long getDuplicateCount (int stationId) throws ArgumentOutOfRangeException
+          {
+               this.checkStation(stationId);
+               return this.counters.get((stationId + 1) * CounterStride + DuplicateIndex);
+          }
+
+     /// Number of entries the duplicate filters evicted while still within the window
+     public long getEvictionCount ()
+          {
+               return this.frameFilter.getEvictionCount() + this.packetFilter.getEvictionCount();
+          }
+}
@@ -0,0 +1,120 @@
+package AX25;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/// Offers the same pass from concurrent station threads to a <see cref="DownlinkMerger"/> and checks the merged stream
+///
+/// Each station thread offers every frame of the pass, missing one in ten at random, while the main
+/// thread polls the stream. Every frame received by at least one station must come out exactly once.
+/// The frame times differ only in their high bits, so the frames of the pass are only told apart by
+/// the full (Time, Virtual Channel ID, Master Frame Count) key.
+/// Arguments: [station count] [frame count].
+public class DownlinkMergerHarness
+{
+     public static void main(String[] args) throws Exception
+          {
+               final int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+               final int frameCount = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+               final DownlinkMerger merger = new DownlinkMerger(stationCount, Integer.highestOneBit(frameCount) << 4, 60000);
+
+               // **************************************
+               // Frames, 2048 per VC ID and MFC pair
+               // **************************************
+               final AX25Telemetry[] frames = new AX25Telemetry[frameCount];
+               for (int i = 0; i < frameCount; i++)
+               {
+                    frames[i] = new AX25Telemetry(new AX25Frame.AX25AddressField(), new AX25Frame.AX25AddressField(), new AX25FrameIdentification((byte)(i & 7)), (byte)(i >> 3), (byte)0, (byte)0xFF, new byte[1], new AX25FrameStatus(), (long)(i >> 11) << 53);
+               }
+
+               // Frames received by at least one station
+               final boolean[][] received = new boolean[stationCount][frameCount];
+               for (int s = 0; s < stationCount; s++)
+               {
+                    Random random = new Random(s);
+                    for (int i = 0; i < frameCount; i++)
+                    {
+                         received[s][i] = random.nextInt(10) != 0;
+                    }
+               }
+               int expected = 0;
+               for (int i = 0; i < frameCount; i++)
+               {
+                    for (int s = 0; s < stationCount; s++)
+                    {
+                         if (received[s][i])
+                         {
+                              expected++;
+                              break;
+                         }
+                    }
+               }
+
+               final CountDownLatch go = new CountDownLatch(1);
+               final Throwable[] stationError = new Throwable[1];
+               Thread[] stations = new Thread[stationCount];
+               for (int s = 0; s < stationCount; s++)
+               {
+                    final int stationId = s;
+                    stations[s] = new Thread(new Runnable()
+                    {
+                         public void run()
+                              {
+                                   try
+                                   {
+                                        go.await();
+                                        for (int i = 0; i < frameCount; i++)
+                                        {
+                                             if (received[stationId][i])
+                                                  merger.Offer(stationId, frames[i], i / 50);
+                                        }
+                                   }
+                                   catch (Throwable e)
+                                   {
+                                        stationError[0] = e;
+                                   }
+                              }
+                    });
+                    stations[s].start();
+               }
+
+               long start = System.nanoTime();
+               go.countDown();
+               Set<AX25Telemetry> merged = Collections.newSetFromMap(new IdentityHashMap<AX25Telemetry, Boolean>());
+               int duplicates = 0;
+               boolean running = true;
+               while (running)
+               {
+                    running = false;
+                    for (Thread station : stations)
+                    {
+                         running |= station.isAlive();
+                    }
+                    DownlinkMerger.MergedItem item;
+                    while ((item = merger.Poll()) != null)
+                    {
+                         if (!merged.add(item.Frame))
+                              duplicates++;
+                    }
+               }
+               double seconds = (System.nanoTime() - start) / 1e9;
+
+               if (stationError[0] != null)
+                    throw new RuntimeException("Station failed", stationError[0]);
+
+               long offers = 0;
+               for (int s = 0; s < stationCount; s++)
+               {
+                    offers += merger.getFirstCount(s) + merger.getDuplicateCount(s);
+               }
+               System.out.println(String.format("%d stations, %d/%d frames merged, %d duplicates, %d evictions",
+                    stationCount, merged.size(), expected, duplicates, merger.getEvictionCount()));
+               System.out.println(String.format("%.1f M offers/s", offers / seconds / 1e6));
+               if (merged.size() != expected || duplicates != 0)
+                    System.exit(1);
+          }
+}
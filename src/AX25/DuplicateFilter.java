@@ -0,0 +1,124 @@
+package AX25;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// Time-windowed set of 128-bit keys, telling whether a key was already seen recently
+///
+/// A key is a pair of longs. Fixed size, nothing is allocated after construction: a power-of-two table of 8-way buckets.
+/// A key is looked up in its bucket only; an entry older than the window no longer counts and
+/// is replaced first, and when all the entries of a bucket are within the window the oldest one is
+/// evicted. Each bucket is guarded by one of a set of striped locks, so that concurrent callers
+/// only wait for each other when their keys share a stripe.
+public class DuplicateFilter
+{
+     /// Entries per bucket (a cache line of keys)
+     private static final int Ways = 8;
+
+     /// Number of locks (power of two)
+     private static final int StripeCount = 256;
+
+     /// Time of an empty entry
+     private static final long Empty = Long.MIN_VALUE;
+
+     /// High and low longs of each entry's key, interleaved
+     private final long[] keys;
+     private final long[] times;
+     private final int bucketMask;
+     private final Object[] stripes = new Object[StripeCount];
+     private final long window;
+
+     private final AtomicLong evictionCount = new AtomicLong();
+
+     /// Duplicate Filter constructor
+     /// <param name="capacity">Number of keys kept, rounded up to a power of two (at least the number of keys expected within a window, twice that is better)</param>
+     /// <param name="window">Time during which a key is remembered, in the unit of the times given to <see cref="Add"/></param>
+     public DuplicateFilter(int capacity, long window) throws ArgumentOutOfRangeException
+          {
+               if (capacity < Ways || capacity > (1 << 28))
+                    throw new ArgumentOutOfRangeException("capacity : " + capacity);
+               if (window <= 0)
+                    throw new ArgumentOutOfRangeException("window : " + window);
+
+               int size = Integer.highestOneBit(capacity - 1) << 1;
+               this.keys = new long[2 * size];
+               this.times = new long[size];
+               Arrays.fill(this.times, Empty);
+               this.bucketMask = size / Ways - 1;
+               this.window = window;
+               for (int i = 0; i < StripeCount; i++)
+               {
+                    this.stripes[i] = new Object();
+               }
+          }
+
+     /// Number of entries evicted while still within the window (the capacity is too small if it grows)
+     public long getEvictionCount () { return this.evictionCount.get(); }
+
+     /// Adds a key, unless it was already added within the window
+     /// <param name="key">Key</param>
+     /// <param name="time">Current time</param>
+     /// <returns>Whether the key is new, false for a duplicate</returns>
+     public boolean Add(long key, long time)
+          {
+               return this.Add(0, key, time);
+          }
+
+     /// Adds a key made of two longs, unless it was already added within the window
+     /// <param name="high">High long of the key</param>
+     /// <param name="low">Low long of the key</param>
+     /// <param name="time">Current time</param>
+     /// <returns>Whether the key is new, false for a duplicate</returns>
+     public boolean Add(long high, long low, long time)
+          {
+               int bucket = (int)DuplicateFilter.mix(DuplicateFilter.mix(high) ^ low) & this.bucketMask;
+               int first = bucket * Ways;
+
+               synchronized (this.stripes[bucket & (StripeCount - 1)])
+               {
+                    int victim = first;
+                    long victimTime = Long.MAX_VALUE;
+                    for (int slot = first; slot < first + Ways; slot++)
+                    {
+                         long entryTime = this.times[slot];
+                         if (entryTime == Empty || time - entryTime > this.window)
+                         {
+                              // Free, take the first one unless the key follows
+                              if (victimTime != Empty)
+                              {
+                                   victim = slot;
+                                   victimTime = Empty;
+                              }
+                              continue;
+                         }
+                         if (this.keys[2 * slot] == high && this.keys[2 * slot + 1] == low)
+                              return false;
+                         if (victimTime != Empty && entryTime < victimTime)
+                         {
+                              victim = slot;
+                              victimTime = entryTime;
+                         }
+                    }
+
+                    if (victimTime != Empty)
+                         this.evictionCount.incrementAndGet();
+                    this.keys[2 * victim] = high;
+                    this.keys[2 * victim + 1] = low;
+                    this.times[victim] = time;
+                    return true;
+               }
+          }
+
+     /// Spreads the bits of a key (MurmurHash3 finalizer)
+     private static long mix(long key)
+          {
+               key ^= key >>> 33;
+               key *= 0xFF51AFD7ED558CCDL;
+               key ^= key >>> 33;
+               key *= 0xC4CEB9FE1A85EC53L;
+               key ^= key >>> 33;
+               return key;
+          }
+}
@@ -0,0 +1,194 @@
+package AX25;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// Link quality accounting from the Master and Virtual Channel Frame Counts
+///
+/// Each 8-bit counter is compared with the last one of its channel, wraparound included: the next
+/// value is in sequence, a value ahead means lost frames and a value behind (half the counter range
+/// at most) a late frame. Each channel keeps a bitmap of the counter values received since the
+/// sequence last went through them: a late frame whose bit is still unset is reordered and no longer
+/// counted as lost, otherwise it is a duplicate, as is the same value again. The counts before the
+/// first frame of a channel are unknown, frames behind it are duplicates.
+///
+/// Fed by a single decoding thread, in constant time per frame (bounded by the counter range). The counters are published without locks, so
+/// that a monitoring thread reads snapshots at any time without blocking the downlink path; each
+/// counter is exact, a snapshot is not atomic across counters.
+public class FrameCounterTracker
+{
+     /// Counters of a channel
+     public static final class Counters
+     {
+          /// Frames received, duplicates and reordered frames included
+          public final long Received;
+          /// Frames missing from the counter sequence
+          public final long Lost;
+          /// Frames received more than once
+          public final long Duplicated;
+          /// Frames received after later ones
+          public final long Reordered;
+
+          Counters(long received, long lost, long duplicated, long reordered)
+               {
+                    this.Received = received;
+                    this.Lost = lost;
+                    this.Duplicated = duplicated;
+                    this.Reordered = reordered;
+               }
+
+          /// Ratio of frames lost to frames expected, 0 if none expected
+          public double getLossRatio ()
+               {
+                    long expected = this.Received - this.Duplicated + this.Lost;
+                    return expected == 0 ? 0 : (double)this.Lost / expected;
+               }
+
+          public String toString ()
+               {
+                    return String.format("received %d, lost %d, duplicated %d, reordered %d", this.Received, this.Lost, this.Duplicated, this.Reordered);
+               }
+     }
+
+     /// Index of the Master Channel; the Virtual Channels are 0-7
+     private static final int MasterChannel = VirtualChannelReassembler.VirtualChannelCount;
+     private static final int ChannelCount = MasterChannel + 1;
+
+     /// Counters of a channel in the array
+     private static final int ReceivedIndex = 0;
+     private static final int LostIndex = 1;
+     private static final int DuplicatedIndex = 2;
+     private static final int ReorderedIndex = 3;
+     private static final int CounterCount = 4;
+
+     /// Half the range of the 8-bit counters: the largest gap taken as frames lost
+     private static final int MaxGap = 0x80;
+
+     /// Counters, written by the decoding thread only
+     private final AtomicLongArray counters = new AtomicLongArray(ChannelCount * CounterCount);
+
+     /// Last counter of each channel, -1 if none (decoding thread only)
+     private final int[] lastCounts = new int[ChannelCount];
+
+     /// Words of the received bitmap of a channel, one bit per counter value
+     private static final int BitmapLength = 256 / 64;
+
+     /// Received bitmaps, bit (count & 63) of word (count >> 6) of a channel (decoding thread only)
+     private final long[] received = new long[ChannelCount * BitmapLength];
+
+     /// Frame Counter Tracker constructor
+     public FrameCounterTracker()
+          {
+               for (int channel = 0; channel < ChannelCount; channel++)
+               {
+                    this.lastCounts[channel] = -1;
+               }
+          }
+
+     /// Accounts for a frame (decoding thread)
+     /// <param name="frame">AX.25 Telemetry Transfer Frame</param>
+     public void Track(AX25Telemetry frame)
+          {
+               this.Track(frame.FrameIdentification.VirtualChannelId, frame.MasterFrameCount & 0xFF, frame.VirtualChannelFrameCount & 0xFF);
+          }
+
+     /// Accounts for a frame (decoding thread)
+     /// <param name="virtualChannelId">Virtual Channel ID</param>
+     /// <param name="masterFrameCount">Master Frame Count (8 bits)</param>
+     /// <param name="virtualChannelFrameCount">Virtual Channel Frame Count (8 bits)</param>
+     public void Track(int virtualChannelId, int masterFrameCount, int virtualChannelFrameCount)
+          {
+               this.update(MasterChannel, masterFrameCount & 0xFF);
+               this.update(virtualChannelId & (VirtualChannelReassembler.VirtualChannelCount - 1), virtualChannelFrameCount & 0xFF);
+          }
+
+     /// Compares a counter with the last one of its channel
+     private void update(int channel, int count)
+          {
+               int base = channel * CounterCount;
+               this.increment(base + ReceivedIndex, 1);
+
+               int bitmap = channel * BitmapLength;
+               int last = this.lastCounts[channel];
+               if (last < 0)
+               {
+                    for (int i = 0; i < BitmapLength; i++)
+                    {
+                         this.received[bitmap + i] = -1L;
+                    }
+                    this.lastCounts[channel] = count;
+                    return;
+               }
+
+               int delta = (count - last) & 0xFF;
+               if (delta == 0)
+               {
+                    this.increment(base + DuplicatedIndex, 1);
+               }
+               else if (delta <= MaxGap)
+               {
+                    // The skipped values are missing until they arrive late
+                    for (int skipped = last + 1; skipped != last + delta; skipped++)
+                    {
+                         this.received[bitmap + ((skipped & 0xFF) >> 6)] &= ~(1L << skipped);
+                    }
+                    this.received[bitmap + (count >> 6)] |= 1L << count;
+                    if (delta > 1)
+                         this.increment(base + LostIndex, delta - 1);
+                    this.lastCounts[channel] = count;
+               }
+               else
+               {
+                    int word = bitmap + (count >> 6);
+                    if ((this.received[word] & (1L << count)) != 0)
+                    {
+                         this.increment(base + DuplicatedIndex, 1);
+                    }
+                    else
+                    {
+                         // Late frame, it was counted as lost when the gap was seen
+                         this.received[word] |= 1L << count;
+                         this.increment(base + ReorderedIndex, 1);
+                         this.increment(base + LostIndex, -1);
+                    }
+               }
+          }
+
+     /// Adds to a counter; single writer, so an ordered store is enough to publish it
+     private void increment(int index, long value)
+          {
+               this.counters.lazySet(index, this.counters.get(index) + value);
+          }
+
+     /// Counters of the Master Channel (any thread)
+     public Counters getMasterChannelCounters ()
+          {
+               return this.snapshot(MasterChannel);
+          }
+
+     /// Counters of a Virtual Channel (any thread)
+     /// <param name="virtualChannelId">Virtual Channel ID</param>
+     public Counters getVirtualChannelCounters (int virtualChannelId) throws ArgumentOutOfRangeException
+          {
+               if (virtualChannelId < 0 || virtualChannelId >= VirtualChannelReassembler.VirtualChannelCount)
+                    throw new ArgumentOutOfRangeException("virtualChannelId : " + virtualChannelId);
+               return this.snapshot(virtualChannelId);
+          }
+
+     private Counters snapshot(int channel)
+          {
+               int base = channel * CounterCount;
+               return new Counters(this.counters.get(base + ReceivedIndex), this.counters.get(base + LostIndex),
+                    this.counters.get(base + DuplicatedIndex), this.counters.get(base + ReorderedIndex));
+          }
+
+     /// Forgets the last counters, e.g. at the start of a pass; the totals are kept (decoding thread)
+     public void Resynchronize()
+          {
+               for (int channel = 0; channel < ChannelCount; channel++)
+               {
+                    this.lastCounts[channel] = -1;
+               }
+          }
+}
@@ -0,0 +1,293 @@
+package AX25;
+
+import data.CrcX25Checksum;
+import data_Ccsds.Function.ArgumentNullException;
+
+/// Extracts AX.25 frames from a raw HDLC bitstream
+///
+/// The input is the demodulator output, 8 line bits per byte, the first received bit being the most
+/// significant one. The deframer decodes NRZI, hunts for 0x7E flags, removes the stuffed zero bits,
+/// checks the CRC-16/X.25 Frame Check Sequence and hands the valid frames to an
+/// <see cref="IAX25TelemetryListener"/> as <see cref="AX25Telemetry"/>.
+///
+/// Destuffing is table-driven: a byte of line bits is looked up with the current count of
+/// consecutive ones, giving the data bits it carries. Only bytes containing six consecutive ones
+/// (flags, aborts) go through the bit-by-bit path. One instance per channel, not thread-safe.
+public class HdlcDeframer
+{
+     /// Shortest frame: Address and Control fields, Protocol Identifier and FCS
+     private static final int MinFrameLength = AX25Frame.HeaderLength + 2;
+
+     /// Longest frame by default: 256 bytes Information Field
+     public static final int DefaultMaxFrameLength = AX25Frame.HeaderLength + 256 + 2;
+
+     /// Destuffing table entry: data bits, first one in bit 0
+     private static final int BitsMask = 0xFF;
+     /// Destuffing table entry: number of data bits
+     private static final int CountShift = 8;
+     /// Destuffing table entry: number of consecutive ones at the end of the byte
+     private static final int RunShift = 12;
+     /// Destuffing table entry: the byte contains six consecutive ones, use the bit path
+     private static final int SlowPath = 1 << 15;
+
+     /// Destuffing table, indexed by (consecutive ones before the byte (0-5) * 256 + byte)
+     private static final int[] __destuffTable = createDestuffTable();
+
+     private static int[] createDestuffTable()
+          {
+               int[] table = new int[6 * 256];
+               for (int run = 0; run < 6; run++)
+               {
+                    for (int b = 0; b < 256; b++)
+                    {
+                         int ones = run;
+                         int bits = 0;
+                         int count = 0;
+                         int entry = 0;
+                         for (int i = 7; i >= 0; i--)
+                         {
+                              if (((b >> i) & 1) != 0)
+                              {
+                                   if (++ones == 6)
+                                   {
+                                        entry = SlowPath;
+                                        break;
+                                   }
+                                   bits |= 1 << count++;
+                              }
+                              else
+                              {
+                                   // A zero after five ones is stuffed
+                                   if (ones != 5)
+                                        count++;
+                                   ones = 0;
+                              }
+                         }
+                         if (entry == 0)
+                              entry = bits | (count << CountShift) | (ones << RunShift);
+                         table[(run << 8) | b] = entry;
+                    }
+               }
+               return table;
+          }
+
+     private final IAX25TelemetryListener listener;
+     private final boolean nrzi;
+     private final int maxFrameLength;
+
+     /// Last line bit, for NRZI decoding
+     private int lastLineBit;
+
+     /// Consecutive ones received (capped at 7)
+     private int ones;
+
+     /// Whether the bits belong to a frame (false while hunting for a flag)
+     private boolean inFrame;
+
+     /// Frame being received
+     private final byte[] frame;
+     private int frameLength;
+     private int frameBits;
+     private int accumulator;
+     private int accumulatorBits;
+
+     /// Whether the frames are parsed into the same instance
+     private boolean reuseFrames;
+     private AX25Telemetry reusedFrame;
+
+     private long frameCount;
+     private long fcsErrorCount;
+     private long abortCount;
+     private long invalidFrameCount;
+
+     /// HDLC Deframer constructor, for NRZI encoded bitstreams and frames of at most <see cref="DefaultMaxFrameLength"/> bytes
+     /// <param name="listener">Listener receiving the frames</param>
+     public HdlcDeframer(IAX25TelemetryListener listener) throws ArgumentNullException
+          {
+               this(listener, true, DefaultMaxFrameLength);
+          }
+
+     /// HDLC Deframer constructor
+     /// <param name="listener">Listener receiving the frames</param>
+     /// <param name="nrzi">Whether the bitstream is NRZI encoded (false if the demodulator already decoded it)</param>
+     /// <param name="maxFrameLength">Length of the longest frame, FCS included</param>
+     public HdlcDeframer(IAX25TelemetryListener listener, boolean nrzi, int maxFrameLength) throws ArgumentNullException
+          {
+               if (listener == null)
+                    throw new ArgumentNullException("listener");
+               this.listener = listener;
+               this.nrzi = nrzi;
+               this.maxFrameLength = Math.max(maxFrameLength, MinFrameLength);
+               this.frame = new byte[this.maxFrameLength + 1];
+          }
+
+     /// Whether the frames are parsed into the same instance, so that no memory is allocated per frame
+     public boolean getReuseFrames () { return this.reuseFrames; }
+
+     /// Whether the frames are parsed into the same instance, so that no memory is allocated per frame;
+     /// the listener must then copy what it keeps of a frame before returning
+     public void setReuseFrames (boolean reuseFrames)
+          {
+               this.reuseFrames = reuseFrames;
+               this.reusedFrame = null;
+          }
+
+     /// Number of valid frames passed to the listener
+     public long getFrameCount () { return this.frameCount; }
+
+     /// Number of frames with a wrong FCS
+     public long getFcsErrorCount () { return this.fcsErrorCount; }
+
+     /// Number of frames aborted (seven ones), too long or not a whole number of bytes
+     public long getAbortCount () { return this.abortCount; }
+
+     /// Number of frames with a right FCS but not valid AX.25 Telemetry Transfer Frames
+     public long getInvalidFrameCount () { return this.invalidFrameCount; }
+
+     /// Processes line bits
+     /// <param name="bits">Buffer containing the line bits, 8 per byte, most significant first</param>
+     /// <param name="offset">Offset of the first byte into the buffer</param>
+     /// <param name="length">Number of bytes</param>
+     public void Process(byte[] bits, int offset, int length)
+          {
+               final int[] table = HdlcDeframer.__destuffTable;
+               int lastLineBit = this.lastLineBit;
+
+               for (int i = offset; i < offset + length; i++)
+               {
+                    int b = bits[i] & 0xFF;
+
+                    // NRZI: a one is no transition, a zero a transition
+                    if (this.nrzi)
+                    {
+                         int previous = (b >>> 1) | (lastLineBit << 7);
+                         lastLineBit = b & 1;
+                         b = ~(b ^ previous) & 0xFF;
+                    }
+
+                    int entry = this.ones < 6 ? table[(this.ones << 8) | b] : SlowPath;
+                    if ((entry & SlowPath) == 0)
+                    {
+                         this.ones = entry >>> RunShift;
+                         if (this.inFrame)
+                              this.appendBits(entry & BitsMask, (entry >>> CountShift) & 0xF);
+                    }
+                    else
+                    {
+                         for (int bit = 7; bit >= 0; bit--)
+                              this.processBit((b >> bit) & 1);
+                    }
+               }
+
+               this.lastLineBit = lastLineBit;
+          }
+
+     /// Processes a data bit (NRZI decoded), handling flags, aborts and stuffed bits
+     private void processBit(int bit)
+          {
+               if (bit != 0)
+               {
+                    if (this.ones < 7)
+                         this.ones++;
+                    if (this.ones < 6)
+                    {
+                         if (this.inFrame)
+                              this.appendBits(1, 1);
+                    }
+                    else if (this.ones == 7 && this.inFrame)
+                    {
+                         // Abort, hunt for the next flag
+                         this.abortCount++;
+                         this.inFrame = false;
+                    }
+               }
+               else
+               {
+                    if (this.ones == 6)
+                         this.flag();
+                    else if (this.ones != 5 && this.inFrame)
+                         this.appendBits(0, 1);
+                    this.ones = 0;
+               }
+          }
+
+     /// Appends data bits to the frame being received
+     /// <param name="bits">The bits, first one in bit 0</param>
+     /// <param name="count">The number of bits</param>
+     private void appendBits(int bits, int count)
+          {
+               this.accumulator |= bits << this.accumulatorBits;
+               this.accumulatorBits += count;
+               this.frameBits += count;
+               if (this.accumulatorBits >= 8)
+               {
+                    if (this.frameLength == this.frame.length)
+                    {
+                         // Too long, hunt for the next flag
+                         this.abortCount++;
+                         this.inFrame = false;
+                         return;
+                    }
+                    this.frame[this.frameLength++] = (byte)this.accumulator;
+                    this.accumulator >>>= 8;
+                    this.accumulatorBits -= 8;
+               }
+          }
+
+     /// Ends the frame being received and starts the next one
+     private void flag()
+          {
+               if (this.inFrame)
+               {
+                    // The zero and five ones of the flag were taken as data bits
+                    int bits = this.frameBits - 6;
+                    if (bits > 0)
+                    {
+                         if ((bits & 7) != 0 || (bits >> 3) > this.maxFrameLength)
+                              this.abortCount++;
+                         else if ((bits >> 3) >= MinFrameLength)
+                              this.deliver(bits >> 3);
+                    }
+               }
+
+               this.inFrame = true;
+               this.frameLength = 0;
+               this.frameBits = 0;
+               this.accumulator = 0;
+               this.accumulatorBits = 0;
+          }
+
+     /// Checks the FCS of a complete frame and passes it to the listener
+     private void deliver(int length)
+          {
+               int fcs = (this.frame[length - 2] & 0xFF) | ((this.frame[length - 1] & 0xFF) << 8);
+               if (fcs != CrcX25Checksum.ComputeChecksum(this.frame, 0, length - 2))
+               {
+                    this.fcsErrorCount++;
+                    return;
+               }
+
+               AX25Telemetry telemetry;
+               try
+               {
+                    if (this.reuseFrames && this.reusedFrame != null)
+                    {
+                         this.reusedFrame.Parse(this.frame, 0, length - 2);
+                         telemetry = this.reusedFrame;
+                    }
+                    else
+                    {
+                         telemetry = new AX25Telemetry(this.frame, 0, length - 2);
+                         if (this.reuseFrames)
+                              this.reusedFrame = telemetry;
+                    }
+               }
+               catch (AX25Exception e)
+               {
+                    this.invalidFrameCount++;
+                    return;
+               }
+               this.frameCount++;
+               this.listener.FrameReceived(telemetry);
+          }
+}
@@ -0,0 +1,9 @@
+package AX25;
+
+/// Receives AX.25 Telemetry Transfer Frames
+public interface IAX25TelemetryListener
+{
+     /// Called for each valid frame
+     /// <param name="frame">AX.25 Telemetry Transfer Frame</param>
+     void FrameReceived(AX25Telemetry frame);
+}
@@ -0,0 +1,12 @@
+package AX25;
+
+import data_Ccsds.Packets.Telemetry;
+
+/// Receives the telemetry packets rebuilt from AX.25 frames
+public interface ITelemetryListener
+{
+     /// Called for each complete telemetry packet
+     /// <param name="virtualChannelId">Virtual Channel ID of the frames carrying the packet</param>
+     /// <param name="telemetry">The telemetry packet</param>
+     void TelemetryReceived(int virtualChannelId, Telemetry telemetry);
+}
@@ -0,0 +1,341 @@
+package AX25;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentException;
+
+/// KISS TNC link over NIO channels
+///
+/// Received bytes are unescaped (FEND/FESC) straight into the frame buffer of the channel and the
+/// data frames are parsed as <see cref="AX25Telemetry"/>. Outgoing frames are serialized into a
+/// reused buffer, escaped into pooled direct buffers and sent with gathering writes. Works with
+/// blocking and non-blocking channels: in non-blocking mode, <see cref="Read"/> returns when no more
+/// bytes are available and the frames not fully written stay queued until <see cref="Flush"/>.
+/// Not thread-safe.
+public class KissChannel
+{
+     /// Frame End
+     public static final byte Fend = (byte)0xC0;
+     /// Frame Escape
+     public static final byte Fesc = (byte)0xDB;
+     /// Transposed Frame End
+     public static final byte Tfend = (byte)0xDC;
+     /// Transposed Frame Escape
+     public static final byte Tfesc = (byte)0xDD;
+
+     /// Data Frame command (low nibble of the command byte, the high nibble is the TNC port)
+     public static final int DataFrameCommand = 0x00;
+
+     /// Longest AX.25 frame by default: 256 bytes Information Field
+     public static final int DefaultMaxFrameLength = AX25Frame.HeaderLength + 256;
+
+     /// Number of buffers kept for reuse
+     private static final int PoolSize = 64;
+
+     /// Size of the read buffer
+     private static final int ReadBufferSize = 8192;
+
+     private final ReadableByteChannel input;
+     private final GatheringByteChannel output;
+     private final IAX25TelemetryListener listener;
+     private final int port;
+     private final int maxFrameLength;
+
+     /// Receive state
+     private final ByteBuffer readBuffer = ByteBuffer.allocate(ReadBufferSize);
+     private final byte[] frame;
+     private int frameLength;
+     private boolean escaped;
+     private boolean overflow;
+
+     /// Transmit state
+     private final byte[] txFrame;
+     private final byte[] escapeBuffer;
+     private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<ByteBuffer>();
+     private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+     private ByteBuffer[] gather = new ByteBuffer[16];
+
+     /// Whether the frames are parsed into the same instance
+     private boolean reuseFrames;
+     private AX25Telemetry reusedFrame;
+
+     private long frameCount;
+     private long invalidFrameCount;
+     private long otherFrameCount;
+     private long oversizeFrameCount;
+     private long sentFrameCount;
+
+     /// KISS Channel constructor, over a socket, for TNC port 0
+     /// <param name="socket">Socket connected to the TNC</param>
+     /// <param name="listener">Listener receiving the frames</param>
+     public KissChannel(SocketChannel socket, IAX25TelemetryListener listener) throws ArgumentNullException, ArgumentException
+          {
+               this(socket, socket, listener, 0, DefaultMaxFrameLength);
+          }
+
+     /// KISS Channel constructor
+     /// <param name="input">Channel from the TNC</param>
+     /// <param name="output">Channel to the TNC</param>
+     /// <param name="listener">Listener receiving the frames</param>
+     /// <param name="port">TNC port of the outgoing frames (0-15)</param>
+     /// <param name="maxFrameLength">Length of the longest frame; longer ones are dropped</param>
+     public KissChannel(ReadableByteChannel input, GatheringByteChannel output, IAX25TelemetryListener listener, int port, int maxFrameLength) throws ArgumentNullException, ArgumentException
+          {
+               if (input == null)
+                    throw new ArgumentNullException("input");
+               if (output == null)
+                    throw new ArgumentNullException("output");
+               if (listener == null)
+                    throw new ArgumentNullException("listener");
+               if (port < 0 || port > 15)
+                    throw new ArgumentException("Wrong TNC port : " + port);
+               if (maxFrameLength < AX25Frame.HeaderLength)
+                    throw new ArgumentException("Frame length too short : " + maxFrameLength);
+
+               this.input = input;
+               this.output = output;
+               this.listener = listener;
+               this.port = port;
+               this.maxFrameLength = maxFrameLength;
+               // Command byte, frame
+               this.frame = new byte[1 + maxFrameLength];
+               this.txFrame = new byte[maxFrameLength];
+               // FEND, command byte, frame escaped, FEND
+               this.escapeBuffer = new byte[2 + 2 * (1 + maxFrameLength) + 1];
+          }
+
+     /// Whether the frames are parsed into the same instance, so that no memory is allocated per frame
+     public boolean getReuseFrames () { return this.reuseFrames; }
+
+     /// Whether the frames are parsed into the same instance, so that no memory is allocated per frame;
+     /// the listener must then copy what it keeps of a frame before returning
+     public void setReuseFrames (boolean reuseFrames)
+          {
+               this.reuseFrames = reuseFrames;
+               this.reusedFrame = null;
+          }
+
+     /// Number of data frames passed to the listener
+     public long getFrameCount () { return this.frameCount; }
+
+     /// Number of data frames that are not valid AX.25 Telemetry Transfer Frames
+     public long getInvalidFrameCount () { return this.invalidFrameCount; }
+
+     /// Number of frames other than data frames (TNC commands)
+     public long getOtherFrameCount () { return this.otherFrameCount; }
+
+     /// Number of frames longer than the longest frame
+     public long getOversizeFrameCount () { return this.oversizeFrameCount; }
+
+     /// Number of frames fully written to the channel
+     public long getSentFrameCount () { return this.sentFrameCount; }
+
+     /// Whether frames are waiting to be written
+     public boolean hasPendingWrites () { return !this.pending.isEmpty(); }
+
+     // **************************************
+     // Receive
+     // **************************************
+
+     /// Reads the available bytes and decodes the frames they complete
+     /// <returns>The number of bytes read, -1 at the end of the stream</returns>
+     public int Read() throws IOException
+          {
+               int total = 0;
+               for (;;)
+               {
+                    this.readBuffer.clear();
+                    int read = this.input.read(this.readBuffer);
+                    if (read < 0)
+                         return total == 0 ? -1 : total;
+                    if (read == 0)
+                         return total;
+                    total += read;
+                    this.Decode(this.readBuffer.array(), 0, read);
+                    if (read < this.readBuffer.capacity())
+                         return total;
+               }
+          }
+
+     /// Decodes KISS bytes, e.g. received by other means than the input channel
+     /// <param name="buffer">Buffer containing the bytes</param>
+     /// <param name="offset">Offset of the first byte into the buffer</param>
+     /// <param name="length">Number of bytes</param>
+     public void Decode(byte[] buffer, int offset, int length)
+          {
+               byte[] frame = this.frame;
+               int frameLength = this.frameLength;
+               boolean escaped = this.escaped;
+
+               for (int i = offset; i < offset + length; i++)
+               {
+                    byte b = buffer[i];
+                    if (b == Fend)
+                    {
+                         if (this.overflow)
+                              this.overflow = false;
+                         else if (frameLength > 0)
+                              this.frameReceived(frameLength);
+                         frameLength = 0;
+                         escaped = false;
+                         continue;
+                    }
+                    if (this.overflow)
+                         continue;
+
+                    if (escaped)
+                    {
+                         escaped = false;
+                         if (b == Tfend)
+                              b = Fend;
+                         else if (b == Tfesc)
+                              b = Fesc;
+                    }
+                    else if (b == Fesc)
+                    {
+                         escaped = true;
+                         continue;
+                    }
+
+                    if (frameLength == frame.length)
+                    {
+                         // Too long, drop until the next FEND
+                         this.oversizeFrameCount++;
+                         this.overflow = true;
+                         continue;
+                    }
+                    frame[frameLength++] = b;
+               }
+
+               this.frameLength = frameLength;
+               this.escaped = escaped;
+          }
+
+     /// Passes a received data frame to the listener
+     /// <param name="length">Length of the frame, command byte included</param>
+     private void frameReceived(int length)
+          {
+               if ((this.frame[0] & 0x0F) != DataFrameCommand)
+               {
+                    this.otherFrameCount++;
+                    return;
+               }
+
+               AX25Telemetry telemetry;
+               try
+               {
+                    if (this.reuseFrames && this.reusedFrame != null)
+                    {
+                         this.reusedFrame.Parse(this.frame, 1, length - 1);
+                         telemetry = this.reusedFrame;
+                    }
+                    else
+                    {
+                         telemetry = new AX25Telemetry(this.frame, 1, length - 1);
+                         if (this.reuseFrames)
+                              this.reusedFrame = telemetry;
+                    }
+               }
+               catch (AX25Exception e)
+               {
+                    this.invalidFrameCount++;
+                    return;
+               }
+               this.frameCount++;
+               this.listener.FrameReceived(telemetry);
+          }
+
+     // **************************************
+     // Transmit
+     // **************************************
+
+     /// Queues frames and writes as much as the output channel accepts
+     /// <param name="frames">AX.25 Frames, e.g. <see cref="AX25Telecommand"/></param>
+     /// <returns>Whether all the queued frames were written</returns>
+     public boolean Write(AX25Frame... frames) throws IOException, ArgumentNullException, ArgumentException, AX25Exception
+          {
+               for (AX25Frame frame : frames)
+               {
+                    int length = frame.WriteTo(this.txFrame, 0);
+                    this.Enqueue(this.txFrame, 0, length);
+               }
+               return this.Flush();
+          }
+
+     /// Queues a frame, without writing it
+     /// <param name="frame">Buffer containing the AX.25 Frame</param>
+     /// <param name="offset">Offset of the frame into the buffer</param>
+     /// <param name="length">Length of the frame</param>
+     public void Enqueue(byte[] frame, int offset, int length) throws ArgumentException
+          {
+               if (length > this.maxFrameLength)
+                    throw new ArgumentException("Frame too long : " + length);
+
+               byte[] escaped = this.escapeBuffer;
+               int n = 0;
+               escaped[n++] = Fend;
+               escaped[n++] = (byte)(this.port << 4 | DataFrameCommand);
+               for (int i = offset; i < offset + length; i++)
+               {
+                    byte b = frame[i];
+                    if (b == Fend)
+                    {
+                         escaped[n++] = Fesc;
+                         escaped[n++] = Tfend;
+                    }
+                    else if (b == Fesc)
+                    {
+                         escaped[n++] = Fesc;
+                         escaped[n++] = Tfesc;
+                    }
+                    else
+                    {
+                         escaped[n++] = b;
+                    }
+               }
+               escaped[n++] = Fend;
+
+               ByteBuffer buffer = this.pool.poll();
+               if (buffer == null)
+                    buffer = ByteBuffer.allocateDirect(this.escapeBuffer.length);
+               buffer.clear();
+               buffer.put(escaped, 0, n);
+               buffer.flip();
+               this.pending.add(buffer);
+          }
+
+     /// Writes the queued frames, with gathering writes
+     /// <returns>Whether all the queued frames were written (false if the non-blocking output channel is full)</returns>
+     public boolean Flush() throws IOException
+          {
+               while (!this.pending.isEmpty())
+               {
+                    if (this.gather.length < this.pending.size())
+                         this.gather = new ByteBuffer[Integer.highestOneBit(this.pending.size()) << 1];
+                    int count = 0;
+                    for (ByteBuffer buffer : this.pending)
+                         this.gather[count++] = buffer;
+
+                    long written = this.output.write(this.gather, 0, count);
+                    Arrays.fill(this.gather, 0, count, null);
+
+                    while (!this.pending.isEmpty() && !this.pending.peek().hasRemaining())
+                    {
+                         ByteBuffer buffer = this.pending.poll();
+                         this.sentFrameCount++;
+                         if (this.pool.size() < PoolSize)
+                              this.pool.add(buffer);
+                    }
+                    if (written == 0)
+                         return this.pending.isEmpty();
+               }
+               return true;
+          }
+}
@@ -0,0 +1,113 @@
+package AX25;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+/// Pushes KISS frames through a local socket pair and reports the throughput
+///
+/// A sender thread writes AX.25 Telemetry Transfer Frames on a blocking socket, in batches, with
+/// <see cref="KissChannel.Write"/>. The receiver reads the other socket in non-blocking mode with a
+/// selector, parsing every frame into the same instance, and checks it.
+/// Arguments: [frame count] [information field length].
+public class KissLoopbackHarness
+{
+     public static void main(String[] args) throws Exception
+          {
+               final int frameCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+               final int dataLength = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+               final int batchLength = 32;
+
+               ServerSocketChannel server = ServerSocketChannel.open();
+               server.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+               final SocketChannel sender = SocketChannel.open(server.socket().getLocalSocketAddress());
+               SocketChannel receiver = server.accept();
+               server.close();
+
+               // **************************************
+               // Frames, with bytes to escape
+               // **************************************
+               Random random = new Random(1);
+               final AX25Telemetry[] frames = new AX25Telemetry[batchLength];
+               for (int i = 0; i < batchLength; i++)
+               {
+                    byte[] data = new byte[dataLength];
+                    random.nextBytes(data);
+                    data[0] = KissChannel.Fend;
+                    data[data.length - 1] = KissChannel.Fesc;
+                    frames[i] = new AX25Telemetry(new AX25Frame.AX25AddressField(), new AX25Frame.AX25AddressField(), new AX25FrameIdentification((byte)(i & 7)), (byte)i, (byte)i, (byte)0xFF, data, new AX25FrameStatus(), 0);
+               }
+
+               final Throwable[] senderError = new Throwable[1];
+               Thread senderThread = new Thread(new Runnable()
+               {
+                    public void run()
+                         {
+                              try
+                              {
+                                   KissChannel channel = new KissChannel(sender, new IAX25TelemetryListener()
+                                   {
+                                        public void FrameReceived(AX25Telemetry frame) { }
+                                   });
+                                   for (int sent = 0; sent < frameCount; sent += batchLength)
+                                   {
+                                        channel.Write(frames);
+                                   }
+                                   sender.shutdownOutput();
+                              }
+                              catch (Throwable e)
+                              {
+                                   senderError[0] = e;
+                              }
+                         }
+               });
+
+               final int[] mismatches = new int[1];
+               final int expectedLength = frames[0].ToByteArray().length;
+               KissChannel channel = new KissChannel(receiver, new IAX25TelemetryListener()
+               {
+                    public void FrameReceived(AX25Telemetry frame)
+                         {
+                              if (frame.Data.length != dataLength || frame.Data[0] != KissChannel.Fend || frame.Data[dataLength - 1] != KissChannel.Fesc)
+                                   mismatches[0]++;
+                         }
+               });
+               channel.setReuseFrames(true);
+
+               receiver.configureBlocking(false);
+               Selector selector = Selector.open();
+               receiver.register(selector, SelectionKey.OP_READ);
+
+               long start = System.nanoTime();
+               senderThread.start();
+               long bytes = 0;
+               for (;;)
+               {
+                    selector.select();
+                    selector.selectedKeys().clear();
+                    int read = channel.Read();
+                    if (read < 0)
+                         break;
+                    bytes += read;
+               }
+               double seconds = (System.nanoTime() - start) / 1e9;
+               senderThread.join();
+               selector.close();
+               receiver.close();
+               sender.close();
+
+               if (senderError[0] != null)
+                    throw new RuntimeException("Sender failed", senderError[0]);
+
+               int expected = (frameCount + batchLength - 1) / batchLength * batchLength;
+               System.out.println(String.format("%d/%d frames of %d bytes, %d invalid, %d mismatches",
+                    channel.getFrameCount(), expected, expectedLength, channel.getInvalidFrameCount(), mismatches[0]));
+               System.out.println(String.format("%.0f frames/s, %.1f MB/s", channel.getFrameCount() / seconds, bytes / seconds / 1e6));
+               if (channel.getFrameCount() != expected || mismatches[0] != 0)
+                    System.exit(1);
+          }
+}
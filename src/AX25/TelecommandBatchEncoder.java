@@ -0,0 +1,151 @@
+package AX25;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import data.NotImplementedException;
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.ChecksumType;
+import data_Ccsds.Packets.NotSupportedException;
+import data_Ccsds.Packets.Telecommand;
+import data_Ccsds.Packets.TelecommandSettings;
+
+/// Encodes batches of telecommands into AX.25 Telecommand Transfer Frames, back to back in one direct buffer
+///
+/// The lengths of all the packets are computed first, from the Data Field Header length of the
+/// settings (the same for every APID) and the data lengths, so a batch too large for the buffer is
+/// rejected before anything is written. Each frame is then the precomputed Address and Control
+/// fields followed by the packet, encoded in a reused array with its known Packet Length field.
+/// The buffer can go out in one write (e.g. memory uploads, time-tagged schedules).
+/// Not thread-safe, one encoder per uplink.
+public class TelecommandBatchEncoder
+{
+     /// Longest telecommand packet by default: 256 bytes Information Field
+     public static final int DefaultMaxPacketLength = 256;
+
+     /// Packet Header and Packet Error Control lengths
+     private static final int PacketHeaderLength = 6;
+     private static final int PacketErrorControlLength = 2;
+
+     private final TelecommandSettings settings;
+     private final ByteBuffer buffer;
+     private final byte[] frameHeader;
+     private final byte[] packet;
+
+     private int[] frameLengths = new int[16];
+     private int frameCount;
+
+     /// Telecommand Batch Encoder constructor
+     /// <param name="settings">Settings used to encode the telecommands</param>
+     /// <param name="dstAddress">Destination Address of the frames</param>
+     /// <param name="srcAddress">Source Address of the frames</param>
+     /// <param name="capacity">Size of the buffer, the largest batch in bytes</param>
+     /// <param name="maxPacketLength">Length of the longest telecommand packet</param>
+     public TelecommandBatchEncoder(TelecommandSettings settings, AX25Frame.AX25AddressField dstAddress, AX25Frame.AX25AddressField srcAddress, int capacity, int maxPacketLength) throws ArgumentNullException, ArgumentException, ArgumentOutOfRangeException, AX25Exception
+          {
+               if (settings == null)
+                    throw new ArgumentNullException("settings");
+               if (maxPacketLength <= PacketHeaderLength + PacketErrorControlLength)
+                    throw new ArgumentOutOfRangeException("maxPacketLength : " + maxPacketLength);
+               if (capacity < AX25Frame.HeaderLength + maxPacketLength)
+                    throw new ArgumentOutOfRangeException("capacity : " + capacity);
+
+               this.settings = settings;
+               this.buffer = ByteBuffer.allocateDirect(capacity);
+               this.packet = new byte[maxPacketLength];
+
+               // Address, Control and Protocol Identifier fields, the same for all the frames
+               this.frameHeader = new AX25Telecommand(dstAddress, srcAddress, new byte[0]).ToByteArray();
+          }
+
+     /// Number of frames of the last batch
+     public int getFrameCount () { return this.frameCount; }
+
+     /// Length of a frame of the last batch, e.g. to split the buffer for a KISS TNC
+     /// <param name="index">Index of the frame in the batch</param>
+     public int getFrameLength (int index) throws ArgumentOutOfRangeException
+          {
+               if (index < 0 || index >= this.frameCount)
+                    throw new ArgumentOutOfRangeException("index : " + index);
+               return this.frameLengths[index];
+          }
+
+     /// Encodes a batch of telecommands
+     ///
+     /// Telecommands not bound to settings are encoded with the settings of the encoder, checksum type
+     /// included; telecommands bound to other settings are rejected. The binding and checksum type of
+     /// each telecommand are restored once it is encoded.
+     /// <param name="commands">The telecommands, in uplink order</param>
+     /// <returns>The buffer, from the first frame (position) to the end of the last one (limit); valid until the next batch</returns>
+     public ByteBuffer Encode(List<? extends Telecommand> commands) throws ArgumentNullException, ArgumentException, NotSupportedException, NotImplementedException, UnsupportedEncodingException, ArgumentOutOfRangeException
+          {
+               if (commands == null)
+                    throw new ArgumentNullException("commands");
+
+               // **************************************
+               // Lengths
+               // **************************************
+               int dataFieldHeaderLength = Telecommand.getDataFieldHeaderLength(this.settings);
+               int pdfAlignment = this.settings.DataFieldPadding;
+               if (this.frameLengths.length < commands.size())
+               {
+                    this.frameLengths = new int[Integer.highestOneBit(commands.size()) << 1];
+               }
+
+               long total = 0;
+               for (int i = 0; i < commands.size(); i++)
+               {
+                    Telecommand command = commands.get(i);
+                    if (command.getBoundSettings() != null && command.getBoundSettings() != this.settings)
+                         throw new ArgumentException("Telecommand " + i + " is bound to other settings");
+
+                    int pdfLength = dataFieldHeaderLength + command.getDataLength();
+                    if (pdfAlignment != 0)
+                         pdfLength += (pdfAlignment - (pdfLength % pdfAlignment)) % pdfAlignment;
+                    int packetLength = PacketHeaderLength + pdfLength + PacketErrorControlLength;
+                    if (packetLength > this.packet.length)
+                         throw new ArgumentException("Telecommand " + i + " too long : " + packetLength + " bytes");
+
+                    this.frameLengths[i] = AX25Frame.HeaderLength + packetLength;
+                    total += this.frameLengths[i];
+               }
+               if (total > this.buffer.capacity())
+                    throw new ArgumentException("Batch too large : " + total + " bytes");
+
+               // **************************************
+               // Frames
+               // **************************************
+               this.buffer.clear();
+               this.frameCount = 0;
+               for (int i = 0; i < commands.size(); i++)
+               {
+                    Telecommand command = commands.get(i);
+                    TelecommandSettings boundSettings = command.getBoundSettings();
+                    ChecksumType checksumType = command.getChecksumType();
+                    int packetLength = this.frameLengths[i] - AX25Frame.HeaderLength;
+                    int written;
+                    try
+                    {
+                         command.setBoundSettings(this.settings);
+                         command.setChecksumType(this.settings.ChecksumType);
+                         written = command.ToBuffer(this.packet, 0, packetLength - PacketHeaderLength - 1);
+                    }
+                    finally
+                    {
+                         command.setBoundSettings(boundSettings);
+                         command.setChecksumType(checksumType);
+                    }
+                    if (written != packetLength)
+                         throw new IllegalStateException("Telecommand " + i + " encoded in " + written + " bytes instead of " + packetLength);
+
+                    this.buffer.put(this.frameHeader);
+                    this.buffer.put(this.packet, 0, packetLength);
+                    this.frameCount++;
+               }
+               this.buffer.flip();
+               return this.buffer;
+          }
+}
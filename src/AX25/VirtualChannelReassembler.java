@@ -0,0 +1,252 @@
+package AX25;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.CcsdsPacketStreamDecoder;
+import data_Ccsds.Packets.Telemetry;
+import data_Ccsds.Packets.TelemetrySettings;
+
+/// Rebuilds the telemetry packets carried by AX.25 Telemetry Transfer Frames
+///
+/// Packets span frames freely, each Virtual Channel (VC) is reassembled separately. The First
+/// Header Pointer gives the offset in the frame data of the first packet starting in the frame
+/// (0xFF if none): it is where reassembly starts, and restarts after a loss. The Virtual Channel
+/// Frame Count detects missing frames, the partial packet of the VC is then discarded.
+///
+/// The data of each frame is appended once to a buffer preallocated per VC, packets are decoded
+/// from there. Idle packets (APID 0x7FF) are dropped. Not thread-safe.
+public class VirtualChannelReassembler
+{
+     /// Number of Virtual Channels (3 bits ID)
+     public static final int VirtualChannelCount = 8;
+
+     /// First Header Pointer value of frames in which no packet starts
+     public static final int NoFirstHeader = 0xFF;
+
+     /// APID of idle packets
+     private static final int IdleApid = 0x7FF;
+
+     /// Packet Header length
+     private static final int PacketHeaderLength = 6;
+
+     /// Room for the data of a frame after a partial packet (AX.25 Information Field is at most 256 bytes)
+     private static final int MaxFrameDataLength = 256;
+
+     /// Reassembly state of a Virtual Channel
+     private static final class ChannelState
+     {
+          /// Bytes of the pending packets, from head to tail
+          final byte[] buffer;
+          int head;
+          int tail;
+
+          /// Whether the start of the pending packet is known
+          boolean synced;
+
+          /// Last Virtual Channel Frame Count, -1 if none
+          int lastFrameCount = -1;
+
+          ChannelState(int capacity)
+               {
+                    this.buffer = new byte[capacity];
+               }
+     }
+
+     private final TelemetrySettings settings;
+     private final ITelemetryListener listener;
+     private final int maxPacketLength;
+     private final ChannelState[] channels = new ChannelState[VirtualChannelCount];
+
+     private long packetCount;
+     private long frameGapCount;
+     private long discardedByteCount;
+     private long invalidPacketCount;
+
+     /// Virtual Channel Reassembler constructor, accepting packets of any length
+     /// <param name="settings">Settings used to decode the telemetry packets</param>
+     /// <param name="listener">Listener receiving the telemetry packets</param>
+     public VirtualChannelReassembler(TelemetrySettings settings, ITelemetryListener listener) throws ArgumentNullException, ArgumentOutOfRangeException
+          {
+               this(settings, listener, CcsdsPacketStreamDecoder.MaxPacketLength);
+          }
+
+     /// Virtual Channel Reassembler constructor
+     /// <param name="settings">Settings used to decode the telemetry packets</param>
+     /// <param name="listener">Listener receiving the telemetry packets</param>
+     /// <param name="maxPacketLength">Length of the largest packet, Packet Header included; longer ones are considered corrupt</param>
+     public VirtualChannelReassembler(TelemetrySettings settings, ITelemetryListener listener, int maxPacketLength) throws ArgumentNullException, ArgumentOutOfRangeException
+          {
+               if (settings == null)
+                    throw new ArgumentNullException("settings");
+               if (listener == null)
+                    throw new ArgumentNullException("listener");
+               if (maxPacketLength <= PacketHeaderLength || maxPacketLength > CcsdsPacketStreamDecoder.MaxPacketLength)
+                    throw new ArgumentOutOfRangeException("maxPacketLength : " + maxPacketLength);
+
+               this.settings = settings;
+               this.listener = listener;
+               this.maxPacketLength = maxPacketLength;
+               for (int vc = 0; vc < VirtualChannelCount; vc++)
+               {
+                    this.channels[vc] = new ChannelState(maxPacketLength + MaxFrameDataLength);
+               }
+          }
+
+     /// Number of telemetry packets passed to the listener
+     public long getPacketCount () { return this.packetCount; }
+
+     /// Number of discontinuities of the Virtual Channel Frame Counts
+     public long getFrameGapCount () { return this.frameGapCount; }
+
+     /// Number of bytes dropped because they could not be part of a complete packet
+     public long getDiscardedByteCount () { return this.discardedByteCount; }
+
+     /// Number of complete packets that could not be decoded (e.g. wrong checksum)
+     public long getInvalidPacketCount () { return this.invalidPacketCount; }
+
+     /// Drops the partial packets of all the Virtual Channels, e.g. at the end of a pass
+     public void Reset()
+          {
+               for (int vc = 0; vc < VirtualChannelCount; vc++)
+               {
+                    this.discard(this.channels[vc]);
+                    this.channels[vc].lastFrameCount = -1;
+               }
+          }
+
+     /// Reassembles the data of a frame
+     /// <param name="frame">AX.25 Telemetry Transfer Frame</param>
+     public void Reassemble(AX25Telemetry frame)
+          {
+               this.Reassemble(frame.FrameIdentification.VirtualChannelId, frame.VirtualChannelFrameCount & 0xFF, frame.FirstHeaderPointer & 0xFF, frame.Data, 0, frame.Data.length);
+          }
+
+     /// Reassembles the data of a frame
+     /// <param name="virtualChannelId">Virtual Channel ID</param>
+     /// <param name="virtualChannelFrameCount">Virtual Channel Frame Count (8 bits)</param>
+     /// <param name="firstHeaderPointer">First Header Pointer (8 bits)</param>
+     /// <param name="data">Buffer containing the frame data</param>
+     /// <param name="offset">Offset of the frame data into the buffer</param>
+     /// <param name="length">Length of the frame data</param>
+     public void Reassemble(int virtualChannelId, int virtualChannelFrameCount, int firstHeaderPointer, byte[] data, int offset, int length)
+          {
+               int vc = virtualChannelId & (VirtualChannelCount - 1);
+               ChannelState channel = this.channels[vc];
+
+               // **************************************
+               // Frame continuity
+               // **************************************
+               if (channel.lastFrameCount >= 0 && virtualChannelFrameCount != ((channel.lastFrameCount + 1) & 0xFF))
+               {
+                    this.frameGapCount++;
+                    this.discard(channel);
+               }
+               channel.lastFrameCount = virtualChannelFrameCount;
+
+               if (length > MaxFrameDataLength || (firstHeaderPointer != NoFirstHeader && firstHeaderPointer > length))
+               {
+                    // Inconsistent frame, lose synchronisation
+                    this.discard(channel);
+                    this.discardedByteCount += length;
+                    return;
+               }
+
+               // **************************************
+               // End of the pending packet
+               // **************************************
+               int continuationLength = firstHeaderPointer == NoFirstHeader ? length : firstHeaderPointer;
+               if (channel.synced)
+               {
+                    this.append(channel, data, offset, continuationLength);
+                    this.decodePackets(vc, channel);
+
+                    // A packet starting in this frame means the previous ones are all complete
+                    if (firstHeaderPointer != NoFirstHeader && channel.tail != channel.head)
+                    {
+                         this.discard(channel);
+                    }
+               }
+               else
+               {
+                    this.discardedByteCount += continuationLength;
+               }
+
+               // **************************************
+               // Packets starting in this frame
+               // **************************************
+               if (firstHeaderPointer != NoFirstHeader)
+               {
+                    channel.synced = true;
+                    this.append(channel, data, offset + firstHeaderPointer, length - firstHeaderPointer);
+                    this.decodePackets(vc, channel);
+               }
+          }
+
+     /// Appends frame data at the tail of the buffer of a Virtual Channel
+     private void append(ChannelState channel, byte[] data, int offset, int length)
+          {
+               if (channel.tail + length > channel.buffer.length)
+               {
+                    // Move the pending packet to the start of the buffer, it is shorter than the largest packet
+                    int pending = channel.tail - channel.head;
+                    System.arraycopy(channel.buffer, channel.head, channel.buffer, 0, pending);
+                    channel.head = 0;
+                    channel.tail = pending;
+               }
+               System.arraycopy(data, offset, channel.buffer, channel.tail, length);
+               channel.tail += length;
+          }
+
+     /// Decodes the complete packets of a Virtual Channel
+     private void decodePackets(int vc, ChannelState channel)
+          {
+               byte[] buffer = channel.buffer;
+               while (channel.tail - channel.head >= PacketHeaderLength)
+               {
+                    int head = channel.head;
+                    int packetLength = PacketHeaderLength + (((buffer[head + 4] & 0xFF) << 8) | (buffer[head + 5] & 0xFF)) + 1;
+                    if ((buffer[head] & 0xE0) != 0 || packetLength > this.maxPacketLength)
+                    {
+                         // Corrupt header, wait for the next First Header Pointer
+                         this.discard(channel);
+                         return;
+                    }
+                    if (packetLength > channel.tail - head)
+                    {
+                         return;
+                    }
+
+                    channel.head += packetLength;
+                    int apid = ((buffer[head] & 0x07) << 8) | (buffer[head + 1] & 0xFF);
+                    if (apid != IdleApid)
+                    {
+                         Telemetry telemetry;
+                         try
+                         {
+                              telemetry = Telemetry.FromBuffer(buffer, head, this.settings);
+                         }
+                         catch (Exception e)
+                         {
+                              this.invalidPacketCount++;
+                              continue;
+                         }
+                         this.packetCount++;
+                         this.listener.TelemetryReceived(vc, telemetry);
+                    }
+               }
+               if (channel.head == channel.tail)
+               {
+                    channel.head = 0;
+                    channel.tail = 0;
+               }
+          }
+
+     /// Drops the pending bytes of a Virtual Channel, which waits for the next First Header Pointer
+     private void discard(ChannelState channel)
+          {
+               this.discardedByteCount += channel.tail - channel.head;
+               channel.head = 0;
+               channel.tail = 0;
+               channel.synced = false;
+          }
+}
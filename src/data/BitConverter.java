@@ -24,7 +24,7 @@ public class BitConverter
         long answer = 0;
         for (int i =0; i < num_bytes; i++) {
             answer = answer << 8;
-            answer += srcArray [offset + i];
+            answer += srcArray [offset + i] & 0xFF;
         }
         return answer;
     }
@@ -0,0 +1,154 @@
+package data;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/// <summary>Throughput benchmark of the packet checksums.</summary>
+/// <remarks>
+/// Run with <c>java data.ChecksumBenchmark [packetLength] [iterations]</c>. The results of
+/// the table driven implementations are first checked against a byte-wise reference.
+/// </remarks>
+public class ChecksumBenchmark
+{
+	/// <summary>The former byte-wise CRC-CCITT, kept as reference.</summary>
+	private static final long[] __referenceTable = createReferenceTable();
+
+	private static long[] createReferenceTable()
+	{
+		long[] lookupTable = new long[256];
+		for(int i = 0 ; i < 256 ; i++)
+		{
+			long tmp = 0;
+			for(int bit = 0 ; bit < 8 ; bit++)
+				if((i & (1 << bit)) != 0) tmp = tmp ^ ((0x1021 << bit) ^ (((0x1021 << bit) >> 16) * 0x1021)) & 0xFFFF;
+			lookupTable[i] = tmp;
+		}
+		return lookupTable;
+	}
+
+	static int referenceCrc(byte[] buffer, int start, int length)
+	{
+		int syndrome = 0xFFFF;
+		for(int i = start ; i < start + length ; i++)
+			syndrome = (int)(((syndrome << 8) & 0xFF00) ^ __referenceTable[(((syndrome >> 8) ^ buffer[i]) & 0x00FF)]);
+		return syndrome;
+	}
+
+	/// <summary>Straightforward ISO 8473 checksum with a modulo per byte, kept as reference.</summary>
+	static int referenceIso(byte[] buffer, int start, int length)
+	{
+		int c0 = 0;
+		int c1 = 0;
+		for(int i = start ; i < start + length ; i++)
+		{
+			c0 = (c0 + (buffer[i] & 0xFF)) % 255;
+			c1 = (c1 + c0) % 255;
+		}
+		int ck1 = (255 - (c0 + c1) % 255) % 255;
+		int ck2 = c1;
+		return ((ck1 == 0 ? 255 : ck1) << 8) | (ck2 == 0 ? 255 : ck2);
+	}
+
+	/// <summary>Checks the implementations against the references on random data.</summary>
+	private static void verify(Random random) throws Exception
+	{
+		CrcCcitt crc = new CrcCcitt();
+		for(int n = 0 ; n < 1000 ; n++)
+		{
+			byte[] data = new byte[random.nextInt(300)];
+			random.nextBytes(data);
+			int start = data.length == 0 ? 0 : random.nextInt(data.length);
+			int length = data.length - start;
+
+			int expected = referenceCrc(data, start, length);
+			if(CrcCcittChecksum.ComputeChecksum(data, start, length) != expected)
+				throw new IllegalStateException("CrcCcittChecksum differs from reference for length " + length);
+			if(IsoChecksum.ComputeChecksum(data, start, length) != referenceIso(data, start, length))
+				throw new IllegalStateException("IsoChecksum differs from reference for length " + length);
+
+			// Same data in fragments: an array, a direct buffer and single bytes
+			int split = length == 0 ? 0 : random.nextInt(length);
+			int tail = (length - split) / 2;
+			ByteBuffer direct = ByteBuffer.allocateDirect(length - split - tail);
+			direct.put(data, start + split, length - split - tail);
+			direct.flip();
+
+			crc.reset();
+			crc.update(data, start, split);
+			crc.update(direct);
+			for(int i = data.length - tail ; i < data.length ; i++)
+				crc.update(data[i]);
+			if(crc.getValue() != expected)
+				throw new IllegalStateException("CrcCcitt differs from reference for length " + length);
+		}
+
+		// Long runs of 0xFF, the worst case for the deferred modulo
+		byte[] ones = new byte[3 * IsoChecksum.BlockLength + 5];
+		Arrays.fill(ones, (byte)0xFF);
+		for(int length = ones.length - 16 ; length <= ones.length ; length++)
+			if(IsoChecksum.ComputeChecksum(ones, 0, length) != referenceIso(ones, 0, length))
+				throw new IllegalStateException("IsoChecksum differs from reference for length " + length);
+
+		// Data followed by its ISO checksum sums to zero
+		byte[] packet = new byte[100];
+		random.nextBytes(packet);
+		int iso = IsoChecksum.ComputeChecksum(packet, 0, 98);
+		packet[98] = (byte)(iso >> 8);
+		packet[99] = (byte)iso;
+		int c0 = 0, c1 = 0;
+		for(byte b : packet)
+		{
+			c0 = (c0 + (b & 0xFF)) % 255;
+			c1 = (c1 + c0) % 255;
+		}
+		if(c0 != 0 || c1 != 0)
+			throw new IllegalStateException("IsoChecksum check bytes don't cancel the sums");
+
+		System.out.println("Checksums verified against reference");
+	}
+
+	private static void run(String name, Runnable checksum, int packetLength, int iterations)
+	{
+		// Warm-up
+		for(int i = 0 ; i < iterations / 10 ; i++)
+			checksum.run();
+
+		long startTime = System.nanoTime();
+		for(int i = 0 ; i < iterations ; i++)
+			checksum.run();
+		long elapsed = System.nanoTime() - startTime;
+
+		double megabytesPerSecond = ((double)packetLength * iterations / (1024 * 1024)) / (elapsed / 1e9);
+		double packetsPerSecond = iterations / (elapsed / 1e9);
+		System.out.println(String.format("%-28s %10.1f MB/s %14.0f packets/s", name, megabytesPerSecond, packetsPerSecond));
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		final int packetLength = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+		Random random = new Random(42);
+		verify(random);
+
+		final byte[] packet = new byte[packetLength];
+		random.nextBytes(packet);
+		final int[] sink = new int[1];
+
+		run("CRC-CCITT byte-wise (old)", new Runnable() {
+			public void run() { sink[0] ^= referenceCrc(packet, 0, packetLength); }
+		}, packetLength, iterations);
+		run("CRC-CCITT slicing-by-8", new Runnable() {
+			public void run() { sink[0] ^= CrcCcittChecksum.ComputeChecksum(packet, 0, packetLength); }
+		}, packetLength, iterations);
+		run("ISO 8473 per-byte modulo", new Runnable() {
+			public void run() { sink[0] ^= referenceIso(packet, 0, packetLength); }
+		}, packetLength, iterations);
+		run("ISO 8473 deferred modulo", new Runnable() {
+			public void run() { sink[0] ^= IsoChecksum.ComputeChecksum(packet, 0, packetLength); }
+		}, packetLength, iterations);
+
+		System.out.println("(" + sink[0] + ")");
+	}
+}
@@ -0,0 +1,82 @@
+package data;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/// <summary>Incremental CRC-CCITT computation.</summary>
+/// <remarks>
+/// Gives the same result as <see cref="CrcCcittChecksum.ComputeChecksum"/> over the
+/// concatenation of all the data passed to <c>update</c>, so that frames arriving in
+/// fragments can be checked without reassembling them first.
+/// An instance is not thread-safe.
+/// </remarks>
+public class CrcCcitt implements Checksum
+{
+	/// <summary>Bytes copied at once out of buffers without an accessible array.</summary>
+	private static final int ChunkLength = 256;
+
+	private int syndrome = CrcCcittChecksum.InitialSyndrome;
+
+	/// <summary>Lazily allocated copy area for direct buffers.</summary>
+	private byte[] chunk;
+
+	/// <summary>Updates the checksum with a byte.</summary>
+	/// <param name="b">The byte, only the 8 low-order bits are used.</param>
+	public void update(int b)
+	{
+		syndrome = CrcCcittChecksum.calculateCrc((byte)b, syndrome);
+	}
+
+	/// <summary>Updates the checksum with part of a buffer.</summary>
+	/// <param name="b">The buffer containing the data.</param>
+	/// <param name="off">The starting index of the data in the buffer.</param>
+	/// <param name="len">The length of the data.</param>
+	public void update(byte[] b, int off, int len)
+	{
+		if(off < 0 || len < 0 || off > b.length - len)
+			throw new ArrayIndexOutOfBoundsException();
+		syndrome = CrcCcittChecksum.update(syndrome, b, off, len);
+	}
+
+	/// <summary>Updates the checksum with a whole buffer.</summary>
+	/// <param name="b">The buffer containing the data.</param>
+	public void update(byte[] b)
+	{
+		syndrome = CrcCcittChecksum.update(syndrome, b, 0, b.length);
+	}
+
+	/// <summary>Updates the checksum with the remaining bytes of a buffer.</summary>
+	/// <param name="buffer">The buffer, its position is moved to its limit.</param>
+	public void update(ByteBuffer buffer)
+	{
+		int length = buffer.remaining();
+		if(buffer.hasArray())
+		{
+			syndrome = CrcCcittChecksum.update(syndrome, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			buffer.position(buffer.limit());
+			return;
+		}
+
+		if(chunk == null)
+			chunk = new byte[ChunkLength];
+		while(length > 0)
+		{
+			int count = Math.min(length, ChunkLength);
+			buffer.get(chunk, 0, count);
+			syndrome = CrcCcittChecksum.update(syndrome, chunk, 0, count);
+			length -= count;
+		}
+	}
+
+	/// <summary>Gets the checksum of the data processed since the last reset.</summary>
+	public long getValue()
+	{
+		return syndrome;
+	}
+
+	/// <summary>Resets the checksum to its initial value.</summary>
+	public void reset()
+	{
+		syndrome = CrcCcittChecksum.InitialSyndrome;
+	}
+}
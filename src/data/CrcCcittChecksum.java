@@ -1,17 +1,25 @@
 package data;
 
 /// <summary>Computes CRC-CCITT checksums.</summary>
+/// <remarks>
+/// Table driven "slicing-by-8" implementation: eight bytes are folded into the
+/// syndrome per iteration using eight 256-entry tables, the remaining bytes are
+/// processed one at a time. Use <see cref="CrcCcitt"/> for data arriving in fragments.
+/// </remarks>
 public class CrcCcittChecksum
 {
-	// CRC-CCITT look-up table
-	private static long[] __lookupTable = createCrcLookupTable();
+	/// <summary>Initial value of the CRC syndrome.</summary>
+	static final int InitialSyndrome = 0xFFFF;
 
-	/// <summary>Creates the CRC-CCITT look-up table.</summary>
-	/// <returns>The CRC-CCITT look-up table.</returns>
-	private static long[] createCrcLookupTable()
+	// CRC-CCITT look-up tables, entry [k * 256 + i] is the syndrome of byte i followed by k zero bytes
+	private static final int[] __lookupTable = createCrcLookupTable();
+
+	/// <summary>Creates the CRC-CCITT look-up tables.</summary>
+	/// <returns>The eight CRC-CCITT look-up tables, one after the other.</returns>
+	private static int[] createCrcLookupTable()
 	{
-		long tmp;
-		long[] lookupTable = new long[256];
+		int tmp;
+		int[] lookupTable = new int[8 * 256];
 
 		for(int i = 0 ; i < 256 ; i++)
 		{
@@ -29,6 +37,16 @@ public class CrcCcittChecksum
 			lookupTable[i] = tmp;
 		}
 
+		// Each following table shifts the previous one by a zero byte
+		for(int k = 1 ; k < 8 ; k++)
+		{
+			for(int i = 0 ; i < 256 ; i++)
+			{
+				int previous = lookupTable[(k - 1) * 256 + i];
+				lookupTable[k * 256 + i] = ((previous << 8) & 0xFF00) ^ lookupTable[(previous >> 8) & 0xFF];
+			}
+		}
+
 		return lookupTable;
 	}
 
@@ -39,19 +57,44 @@ public class CrcCcittChecksum
 	/// <returns>The computed CRC-CCITT checksum.</returns>
 	public static int ComputeChecksum(byte[] buffer, int start, int length)
 	{
-		// Init CRC syndrome
-		int syndrome = 0xFFFF;
+		return update(InitialSyndrome, buffer, start, length);
+	}
 
+	/// <summary>Continues a CRC-CCITT computation with more data.</summary>
+	/// <param name="syndrome">The syndrome of the data processed so far.</param>
+	/// <param name="buffer">The buffer containing the data.</param>
+	/// <param name="start">The starting index of the data in the buffer.</param>
+	/// <param name="length">The length of the data.</param>
+	/// <returns>The syndrome including the data.</returns>
+	static int update(int syndrome, byte[] buffer, int start, int length)
+	{
+		final int[] table = __lookupTable;
+		int i = start;
 		int end = start + length;
-		for(int i = start ; i < end ; i++)
+
+		// Slicing-by-8
+		for( ; i <= end - 8 ; i += 8)
+		{
+			int head = syndrome ^ (((buffer[i] & 0xFF) << 8) | (buffer[i + 1] & 0xFF));
+			syndrome = table[7 * 256 + (head >> 8)]
+			         ^ table[6 * 256 + (head & 0xFF)]
+			         ^ table[5 * 256 + (buffer[i + 2] & 0xFF)]
+			         ^ table[4 * 256 + (buffer[i + 3] & 0xFF)]
+			         ^ table[3 * 256 + (buffer[i + 4] & 0xFF)]
+			         ^ table[2 * 256 + (buffer[i + 5] & 0xFF)]
+			         ^ table[1 * 256 + (buffer[i + 6] & 0xFF)]
+			         ^ table[buffer[i + 7] & 0xFF];
+		}
+
+		// Remaining bytes
+		for( ; i < end ; i++)
 			syndrome = calculateCrc(buffer[i], syndrome);
 
-		// Convertion to byte
-		return (int)syndrome;
+		return syndrome;
 	}
 
-	private static int calculateCrc(byte data, int syndrome)
+	static int calculateCrc(byte data, int syndrome)
 	{
-		return (int)(((syndrome << 8) & 0xFF00) ^ __lookupTable[(((syndrome >> 8) ^ data) & 0x00FF)]);
+		return ((syndrome << 8) & 0xFF00) ^ __lookupTable[(((syndrome >> 8) ^ data) & 0x00FF)];
 	}
 }
@@ -0,0 +1,41 @@
+package data;
+
+/// <summary>Computes CRC-16/X.25 checksums, the Frame Check Sequence of HDLC and AX.25 frames.</summary>
+/// <remarks>
+/// Reflected polynomial 0x8408, initial value 0xFFFF, complemented result. The FCS is
+/// transmitted least significant byte first.
+/// </remarks>
+public class CrcX25Checksum
+{
+	// CRC-16/X.25 look-up table
+	private static final int[] __lookupTable = createCrcLookupTable();
+
+	/// <summary>Creates the CRC-16/X.25 look-up table.</summary>
+	/// <returns>The CRC-16/X.25 look-up table.</returns>
+	private static int[] createCrcLookupTable()
+	{
+		int[] lookupTable = new int[256];
+		for(int i = 0 ; i < 256 ; i++)
+		{
+			int tmp = i;
+			for(int bit = 0 ; bit < 8 ; bit++)
+				tmp = (tmp & 1) != 0 ? (tmp >>> 1) ^ 0x8408 : tmp >>> 1;
+			lookupTable[i] = tmp;
+		}
+		return lookupTable;
+	}
+
+	/// <summary>Computes the CRC-16/X.25 checksum of a data buffer.</summary>
+	/// <param name="buffer">The buffer containing the data.</param>
+	/// <param name="start">The starting index of the data in the buffer.</param>
+	/// <param name="length">The length of the data.</param>
+	/// <returns>The computed CRC-16/X.25 checksum.</returns>
+	public static int ComputeChecksum(byte[] buffer, int start, int length)
+	{
+		final int[] table = __lookupTable;
+		int syndrome = 0xFFFF;
+		for(int i = start ; i < start + length ; i++)
+			syndrome = (syndrome >>> 8) ^ table[(syndrome ^ buffer[i]) & 0xFF];
+		return ~syndrome & 0xFFFF;
+	}
+}
@@ -1,17 +1,66 @@
 package data;
 
 	/// <summary>Computes "ISO checksum" (ISO 8473-1:1998).</summary>
-	/// <remarks>Not yet implemented.</remarks>
+	/// <remarks>
+	/// Fletcher checksum with modulo 255 sums. The modulo is deferred: the sums are accumulated
+	/// in plain integers over blocks of <see cref="BlockLength"/> bytes and reduced once per block.
+	/// Within a block, eight bytes are folded at once so that the additions don't form a single
+	/// dependency chain.
+	/// </remarks>
 	public class IsoChecksum
 	{
+		/// <summary>Number of bytes summed between two reductions.</summary>
+		/// <remarks>Largest multiple of 8 for which C1 can't overflow an int, starting from reduced sums.</remarks>
+		static final int BlockLength = 4096;
+
 		/// <summary>Computes the ISO checksum of a data buffer.</summary>
 		/// <param name="buffer">The buffer containing the data.</param>
 		/// <param name="start">The starting index of the data in the buffer.</param>
 		/// <param name="length">The length of the data.</param>
-		/// <returns>The computed ISO checksum.</returns>
-		public static int ComputeChecksum(byte[] buffer, int start, int length) throws NotImplementedException
+		/// <returns>The computed ISO checksum, CK1 in the most significant byte and CK2 in the least significant one.</returns>
+		public static int ComputeChecksum(byte[] buffer, int start, int length)
 		{
-			throw new NotImplementedException();
-			
+			int c0 = 0;
+			int c1 = 0;
+			int i = start;
+			int end = start + length;
+
+			while(i < end)
+			{
+				int blockEnd = Math.min(end, i + BlockLength);
+
+				for( ; i <= blockEnd - 8 ; i += 8)
+				{
+					int b0 = buffer[i] & 0xFF;
+					int b1 = buffer[i + 1] & 0xFF;
+					int b2 = buffer[i + 2] & 0xFF;
+					int b3 = buffer[i + 3] & 0xFF;
+					int b4 = buffer[i + 4] & 0xFF;
+					int b5 = buffer[i + 5] & 0xFF;
+					int b6 = buffer[i + 6] & 0xFF;
+					int b7 = buffer[i + 7] & 0xFF;
+
+					// Same as eight times { c0 += b; c1 += c0; }
+					c1 += (c0 << 3) + (b0 << 3) + 7 * b1 + 6 * b2 + 5 * b3 + (b4 << 2) + 3 * b5 + (b6 << 1) + b7;
+					c0 += b0 + b1 + b2 + b3 + b4 + b5 + b6 + b7;
+				}
+
+				for( ; i < blockEnd ; i++)
+				{
+					c0 += buffer[i] & 0xFF;
+					c1 += c0;
+				}
+
+				c0 %= 255;
+				c1 %= 255;
+			}
+
+			// Check bytes such that the sums over the data followed by the checksum are both 0
+			int ck1 = 255 - (c0 + c1) % 255;
+			int ck2 = c1;
+			if(ck1 == 0) ck1 = 255;
+			if(ck2 == 0) ck2 = 255;
+
+			return (ck1 << 8) | ck2;
 		}
 	}
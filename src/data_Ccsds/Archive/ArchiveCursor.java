@@ -0,0 +1,151 @@
+package data_Ccsds.Archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import data_Ccsds.Packets.CcsdsPacketStreamDecoder;
+
+/// <summary>Reads the records of a <see cref="PacketArchive"/> matching a query, in archive order.</summary>
+/// <remarks>
+/// The cursor walks the ranges of the segments selected by their sparse indexes directly in the
+/// mapped files, reading the record headers only; a packet is copied out when asked for. Records
+/// appended after the cursor was opened are not seen. A cursor belongs to one thread; any number of
+/// cursors can read an archive while it is appended to.
+/// </remarks>
+public class ArchiveCursor
+{
+	private final int apid;
+	private final long fromTime;
+	private final long toTime;
+
+	// Ranges to scan
+	private ArchiveSegment[] segments = new ArchiveSegment[8];
+	private long[] starts = new long[8];
+	private long[] ends = new long[8];
+	private int rangeCount;
+
+	// Current range and record
+	private int range = -1;
+	private ByteBuffer[] regions;
+	private long offset;
+	private long end;
+	private ByteBuffer region;
+	private int position;
+	private int length;
+
+	private byte[] packet;
+
+	/// <summary>Initializes a new instance of the <see cref="ArchiveCursor"/> class.</summary>
+	/// <param name="apid">The Application Process ID of the records, or <see cref="ArchiveIndex.AllApids"/>.</param>
+	/// <param name="fromTime">The earliest time stamp.</param>
+	/// <param name="toTime">The latest time stamp.</param>
+	ArchiveCursor(int apid, long fromTime, long toTime)
+	{
+		this.apid = apid;
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/// <summary>Adds a range of a segment to scan, after the previous ones.</summary>
+	void addRange(ArchiveSegment segment, long start, long end)
+	{
+		// Consecutive blocks are scanned as one range
+		if(rangeCount > 0 && segments[rangeCount - 1] == segment && ends[rangeCount - 1] == start)
+		{
+			ends[rangeCount - 1] = end;
+			return;
+		}
+		if(rangeCount == starts.length)
+		{
+			segments = Arrays.copyOf(segments, rangeCount * 2);
+			starts = Arrays.copyOf(starts, rangeCount * 2);
+			ends = Arrays.copyOf(ends, rangeCount * 2);
+		}
+		segments[rangeCount] = segment;
+		starts[rangeCount] = start;
+		ends[rangeCount] = end;
+		rangeCount++;
+	}
+
+	/// <summary>Moves to the next matching record.</summary>
+	/// <returns><c>true</c> if there is one; <c>false</c> at the end of the query.</returns>
+	public boolean next()
+	{
+		if(range >= rangeCount)
+			return false;
+		if(range >= 0)
+			offset += ArchiveSegment.getRecordSize(length);
+
+		for(;;)
+		{
+			if(range < 0 || offset >= end)
+			{
+				if(++range >= rangeCount)
+					return false;
+				if(range == 0 || segments[range] != segments[range - 1])
+					regions = new ByteBuffer[segments[range].getRegionCount()];
+				offset = starts[range];
+				end = ends[range];
+				continue;
+			}
+
+			int regionNumber = ArchiveSegment.getRegion(offset);
+			region = regions[regionNumber];
+			if(region == null)
+				regions[regionNumber] = region = segments[range].getRegionView(regionNumber);
+			position = ArchiveSegment.getPosition(offset);
+			length = ArchiveSegment.getLength(region, position);
+			if(length == ArchiveSegment.NextRegion)
+			{
+				offset = (long)(regionNumber + 1) * ArchiveSegment.RegionLength;
+				continue;
+			}
+			if(length <= 0)
+			{
+				offset = end;
+				continue;
+			}
+
+			long time = ArchiveSegment.getTime(region, position);
+			if(time >= fromTime && time <= toTime && (apid == ArchiveIndex.AllApids || ArchiveSegment.getApid(region, position) == apid))
+				return true;
+			offset += ArchiveSegment.getRecordSize(length);
+		}
+	}
+
+	/// <summary>Gets the Application Process ID of the current record.</summary>
+	public int getApplicationProcessId() {
+		return ArchiveSegment.getApid(region, position);
+	}
+
+	/// <summary>Gets the time stamp of the current record.</summary>
+	public long getTime() {
+		return ArchiveSegment.getTime(region, position);
+	}
+
+	/// <summary>Gets the length in bytes of the packet of the current record.</summary>
+	public int getLength() {
+		return length;
+	}
+
+	/// <summary>Copies the packet of the current record.</summary>
+	/// <param name="buffer">The destination buffer.</param>
+	/// <param name="start">The index in bytes at which the packet is copied.</param>
+	/// <returns>The length in bytes of the packet.</returns>
+	public int CopyPacket(byte[] buffer, int start)
+	{
+		region.position(position + ArchiveSegment.RecordHeaderLength);
+		region.get(buffer, start, length);
+		return length;
+	}
+
+	/// <summary>Gets the packet of the current record, in a buffer of the cursor overwritten by the next record.</summary>
+	/// <returns>The buffer, containing the packet from index 0 to <see cref="getLength"/>.</returns>
+	public byte[] getPacket()
+	{
+		if(packet == null)
+			packet = new byte[CcsdsPacketStreamDecoder.MaxPacketLength];
+		CopyPacket(packet, 0);
+		return packet;
+	}
+}
@@ -0,0 +1,190 @@
+package data_Ccsds.Archive;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import data_Ccsds.Packets.ApidMap;
+
+/// <summary>Sparse index of the records of an <see cref="ArchiveSegment"/>, by APID and time.</summary>
+/// <remarks>
+/// The records of each APID are grouped in blocks of <see cref="BlockRecords"/> consecutive records; a
+/// block is the offsets of its first record and of the end of its last one, with the earliest and
+/// latest time stamps of its records. A query scans the blocks overlapping its time range only, and
+/// within them skips the records of the other APIDs. One more set of blocks covers all the APIDs.
+/// The blocks are primitive arrays, written to a side file when the segment is closed.
+/// Appended to by one thread, read by any thread.
+/// </remarks>
+final class ArchiveIndex
+{
+	/// <summary>Pseudo APID of the blocks of all the records.</summary>
+	static final int AllApids = ApidMap.Capacity;
+
+	/// <summary>Number of records of a block.</summary>
+	static final int BlockRecords = 64;
+
+	/// <summary>Identifies an index file.</summary>
+	private static final long Magic = 0x4343534453494458L;
+
+	/// <summary>Blocks of one APID.</summary>
+	private static final class Blocks
+	{
+		long[] starts = new long[4];
+		long[] ends = new long[4];
+		long[] minTimes = new long[4];
+		long[] maxTimes = new long[4];
+		int[] counts = new int[4];
+		int size;
+
+		void add(long offset, long end, long time)
+		{
+			int last = size - 1;
+			if(last >= 0 && counts[last] < BlockRecords)
+			{
+				ends[last] = end;
+				counts[last]++;
+				if(time < minTimes[last])
+					minTimes[last] = time;
+				if(time > maxTimes[last])
+					maxTimes[last] = time;
+				return;
+			}
+			append(offset, end, time, time, 1);
+		}
+
+		void append(long start, long end, long minTime, long maxTime, int count)
+		{
+			if(size == starts.length)
+			{
+				int capacity = size * 2;
+				starts = Arrays.copyOf(starts, capacity);
+				ends = Arrays.copyOf(ends, capacity);
+				minTimes = Arrays.copyOf(minTimes, capacity);
+				maxTimes = Arrays.copyOf(maxTimes, capacity);
+				counts = Arrays.copyOf(counts, capacity);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			minTimes[size] = minTime;
+			maxTimes[size] = maxTime;
+			counts[size] = count;
+			size++;
+		}
+	}
+
+	private final Blocks[] blocks = new Blocks[ApidMap.Capacity + 1];
+	private long minTime = Long.MAX_VALUE;
+	private long maxTime = Long.MIN_VALUE;
+	private long recordCount;
+
+	/// <summary>Gets the number of records indexed.</summary>
+	synchronized long getRecordCount() {
+		return recordCount;
+	}
+
+	/// <summary>Gets the earliest time stamp, <c>Long.MAX_VALUE</c> if empty.</summary>
+	synchronized long getMinTime() {
+		return minTime;
+	}
+
+	/// <summary>Gets the latest time stamp, <c>Long.MIN_VALUE</c> if empty.</summary>
+	synchronized long getMaxTime() {
+		return maxTime;
+	}
+
+	/// <summary>Indexes an appended record.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="offset">The offset of the record in the segment.</param>
+	/// <param name="end">The offset of the end of the record.</param>
+	/// <param name="time">The time stamp of the record.</param>
+	synchronized void add(int apid, long offset, long end, long time)
+	{
+		blocks(apid).add(offset, end, time);
+		blocks(AllApids).add(offset, end, time);
+		if(time < minTime)
+			minTime = time;
+		if(time > maxTime)
+			maxTime = time;
+		recordCount++;
+	}
+
+	private Blocks blocks(int apid)
+	{
+		Blocks apidBlocks = blocks[apid];
+		if(apidBlocks == null)
+			blocks[apid] = apidBlocks = new Blocks();
+		return apidBlocks;
+	}
+
+	/// <summary>Adds to a cursor the ranges of the segment which may hold records of an APID in a time range.</summary>
+	/// <param name="segment">The segment indexed.</param>
+	/// <param name="apid">The Application Process ID, or <see cref="AllApids"/>.</param>
+	/// <param name="fromTime">The earliest time stamp.</param>
+	/// <param name="toTime">The latest time stamp.</param>
+	/// <param name="cursor">The cursor receiving the ranges.</param>
+	synchronized void collect(ArchiveSegment segment, int apid, long fromTime, long toTime, ArchiveCursor cursor)
+	{
+		Blocks apidBlocks = blocks[apid];
+		if(apidBlocks == null || fromTime > maxTime || toTime < minTime)
+			return;
+		for(int i = 0 ; i < apidBlocks.size ; i++)
+			if(apidBlocks.minTimes[i] <= toTime && apidBlocks.maxTimes[i] >= fromTime)
+				cursor.addRange(segment, apidBlocks.starts[i], apidBlocks.ends[i]);
+	}
+
+	/// <summary>Writes the index.</summary>
+	/// <param name="output">The stream.</param>
+	/// <param name="tail">The end of the last record, checked when reading the index.</param>
+	synchronized void write(DataOutputStream output, long tail) throws IOException
+	{
+		output.writeLong(Magic);
+		output.writeLong(tail);
+		output.writeLong(recordCount);
+		output.writeLong(minTime);
+		output.writeLong(maxTime);
+		for(int apid = 0 ; apid < blocks.length ; apid++)
+		{
+			Blocks apidBlocks = blocks[apid];
+			if(apidBlocks == null)
+				continue;
+			output.writeShort(apid);
+			output.writeInt(apidBlocks.size);
+			for(int i = 0 ; i < apidBlocks.size ; i++)
+			{
+				output.writeLong(apidBlocks.starts[i]);
+				output.writeLong(apidBlocks.ends[i]);
+				output.writeLong(apidBlocks.minTimes[i]);
+				output.writeLong(apidBlocks.maxTimes[i]);
+				output.writeInt(apidBlocks.counts[i]);
+			}
+		}
+		output.writeShort(-1);
+	}
+
+	/// <summary>Reads an index written by <see cref="write"/>.</summary>
+	/// <param name="input">The stream.</param>
+	/// <param name="tail">The end of the last record of the segment.</param>
+	/// <returns>The index, or <c>null</c> if it doesn't match the segment.</returns>
+	static ArchiveIndex read(DataInputStream input, long tail) throws IOException
+	{
+		if(input.readLong() != Magic || input.readLong() != tail)
+			return null;
+		ArchiveIndex index = new ArchiveIndex();
+		index.recordCount = input.readLong();
+		index.minTime = input.readLong();
+		index.maxTime = input.readLong();
+		for(;;)
+		{
+			int apid = input.readShort();
+			if(apid < 0)
+				return index;
+			if(apid > AllApids)
+				return null;
+			Blocks apidBlocks = index.blocks(apid);
+			int size = input.readInt();
+			for(int i = 0 ; i < size ; i++)
+				apidBlocks.append(input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readInt());
+		}
+	}
+}
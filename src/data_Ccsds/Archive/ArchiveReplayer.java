@@ -0,0 +1,277 @@
+package data_Ccsds.Archive;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.CcsdsPacketStreamDecoder;
+import data_Ccsds.Packets.ICcsdsPacketListener;
+import data_Ccsds.Packets.TimeSpan;
+
+/// <summary>Replays archived packets through a listener, e.g. the decoders, for anomaly investigations.</summary>
+/// <remarks>
+/// A reader thread copies the packets of an <see cref="ArchiveCursor"/> out of the mapped segments into
+/// batches, a few batches ahead, while the calling thread passes them to the
+/// <see cref="ICcsdsPacketListener"/>: reading the files and decoding overlap, and the threads only
+/// hand over one batch of packets at a time. The pace is set by the speed: <see cref="AsFastAsPossible"/>,
+/// <see cref="RealTime"/> or N times real time, from the time stamps of the packets.
+///
+/// The statistics of the last replay (packets, bytes, time spent in the listener) can be read during the
+/// replay from another thread. An instance replays one cursor at a time.
+/// </remarks>
+public class ArchiveReplayer
+{
+	/// <summary>Speed replaying the packets without waiting.</summary>
+	public static final double AsFastAsPossible = 0;
+
+	/// <summary>Speed replaying the packets at the pace of their time stamps.</summary>
+	public static final double RealTime = 1;
+
+	/// <summary>Default length of a batch of packets.</summary>
+	public static final int DefaultBatchLength = 1 << 18;
+
+	/// <summary>Batches read ahead of the listener.</summary>
+	private static final int BatchCount = 4;
+
+	/// <summary>Most packets of a batch.</summary>
+	private static final int MaxBatchPackets = 4096;
+
+	/// <summary>Waits shorter than this are spun rather than slept.</summary>
+	private static final long SpinNanos = 100000;
+
+	/// <summary>Packets copied back to back, with their time stamps.</summary>
+	private static final class Batch
+	{
+		final byte[] buffer;
+		final int[] starts = new int[MaxBatchPackets];
+		final int[] lengths = new int[MaxBatchPackets];
+		final long[] times = new long[MaxBatchPackets];
+		int count;
+		boolean last;
+
+		Batch(int length)
+		{
+			buffer = new byte[length];
+		}
+	}
+
+	private final ICcsdsPacketListener listener;
+	private final int batchLength;
+
+	private volatile boolean stopping;
+	private volatile long packetCount;
+	private volatile long byteCount;
+	private volatile long listenerNanos;
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	/// <summary>Initializes a new instance of the <see cref="ArchiveReplayer"/> class.</summary>
+	/// <param name="listener">The listener receiving the packets.</param>
+	public ArchiveReplayer(ICcsdsPacketListener listener) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		this(listener, DefaultBatchLength);
+	}
+
+	/// <summary>Initializes a new instance of the <see cref="ArchiveReplayer"/> class.</summary>
+	/// <param name="listener">The listener receiving the packets.</param>
+	/// <param name="batchLength">The length in bytes of a batch of packets, at least the length of the largest packet.</param>
+	public ArchiveReplayer(ICcsdsPacketListener listener, int batchLength) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(listener == null)
+			throw new ArgumentNullException("listener");
+		if(batchLength < CcsdsPacketStreamDecoder.MaxPacketLength)
+			throw new ArgumentOutOfRangeException("batchLength must be at least " + CcsdsPacketStreamDecoder.MaxPacketLength + " : " + batchLength);
+		this.listener = listener;
+		this.batchLength = batchLength;
+	}
+
+	/// <summary>Gets the number of packets replayed.</summary>
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	/// <summary>Gets the number of bytes replayed.</summary>
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/// <summary>Gets the time elapsed since the start of the replay, up to its end, in nanoseconds.</summary>
+	public long getElapsedNanos() {
+		long start = startNanos;
+		if(start == 0)
+			return 0;
+		long end = endNanos;
+		return (end != 0 ? end : System.nanoTime()) - start;
+	}
+
+	/// <summary>Gets the time spent in the listener, in nanoseconds.</summary>
+	public long getListenerNanos() {
+		return listenerNanos;
+	}
+
+	/// <summary>Gets the number of packets replayed per second.</summary>
+	public double getPacketRate() {
+		long elapsed = getElapsedNanos();
+		return elapsed == 0 ? 0 : packetCount * 1e9 / elapsed;
+	}
+
+	/// <summary>Gets the number of packets the listener decoded per second of its own time: the decode throughput.</summary>
+	public double getDecodeRate() {
+		long nanos = listenerNanos;
+		return nanos == 0 ? 0 : packetCount * 1e9 / nanos;
+	}
+
+	/// <summary>Stops the replay in progress, from another thread.</summary>
+	public void Stop()
+	{
+		stopping = true;
+	}
+
+	/// <summary>Replays the packets of a cursor, in the calling thread.</summary>
+	/// <param name="cursor">The cursor, e.g. from <see cref="PacketArchive.OpenCursor(long, long)"/>.</param>
+	/// <param name="speed"><see cref="AsFastAsPossible"/>, <see cref="RealTime"/> or the acceleration factor.</param>
+	/// <returns>The number of packets replayed.</returns>
+	public long Replay(final ArchiveCursor cursor, double speed) throws ArgumentNullException, ArgumentOutOfRangeException, InterruptedException
+	{
+		if(cursor == null)
+			throw new ArgumentNullException("cursor");
+		if(speed < 0 || Double.isNaN(speed) || Double.isInfinite(speed))
+			throw new ArgumentOutOfRangeException("speed : " + speed);
+
+		final BlockingQueue<Batch> free = new ArrayBlockingQueue<Batch>(BatchCount);
+		final BlockingQueue<Batch> full = new ArrayBlockingQueue<Batch>(BatchCount);
+		for(int i = 0 ; i < BatchCount ; i++)
+			free.add(new Batch(batchLength));
+
+		final Throwable[] readerFailure = new Throwable[1];
+		Thread reader = new Thread(new Runnable() {
+			public void run()
+			{
+				try
+				{
+					read(cursor, free, full);
+				}
+				catch(InterruptedException e)
+				{
+					// Replay stopped
+				}
+				catch(Throwable e)
+				{
+					readerFailure[0] = e;
+					Batch end = new Batch(0);
+					end.last = true;
+					try
+					{
+						full.put(end);
+					}
+					catch(InterruptedException interrupted)
+					{
+						// Replay stopped
+					}
+				}
+			}
+		}, "Archive replay reader");
+		reader.setDaemon(true);
+
+		stopping = false;
+		packetCount = 0;
+		byteCount = 0;
+		listenerNanos = 0;
+		endNanos = 0;
+		startNanos = System.nanoTime();
+		reader.start();
+		try
+		{
+			// Pace: packet time stamps (ticks) to nanoseconds since the start
+			double nanosPerTick = speed == AsFastAsPossible ? 0 : 1e9 / TimeSpan.TicksPerSecond / speed;
+			long firstTime = 0;
+			boolean first = true;
+
+			for(;;)
+			{
+				Batch batch = full.take();
+				if(batch.last && readerFailure[0] != null)
+					throw new IllegalStateException("The archive could not be read.", readerFailure[0]);
+
+				long count = packetCount;
+				long bytes = byteCount;
+				long nanos = listenerNanos;
+				if(nanosPerTick == 0)
+				{
+					long batchStart = System.nanoTime();
+					for(int i = 0 ; i < batch.count && !stopping ; i++)
+					{
+						listener.PacketReceived(batch.buffer, batch.starts[i], batch.lengths[i]);
+						count++;
+						bytes += batch.lengths[i];
+					}
+					nanos += System.nanoTime() - batchStart;
+				}
+				else
+				{
+					for(int i = 0 ; i < batch.count && !stopping ; i++)
+					{
+						if(first)
+						{
+							firstTime = batch.times[i];
+							first = false;
+						}
+						long due = startNanos + (long)((batch.times[i] - firstTime) * nanosPerTick);
+						// Sleep, then spin the last microseconds: parking is too coarse for close packets
+						for(long wait = due - System.nanoTime() ; wait > 0 && !stopping ; wait = due - System.nanoTime())
+							if(wait > SpinNanos)
+								LockSupport.parkNanos(wait - SpinNanos);
+
+						long packetStart = System.nanoTime();
+						listener.PacketReceived(batch.buffer, batch.starts[i], batch.lengths[i]);
+						nanos += System.nanoTime() - packetStart;
+						count++;
+						bytes += batch.lengths[i];
+					}
+				}
+				packetCount = count;
+				byteCount = bytes;
+				listenerNanos = nanos;
+
+				if(batch.last || stopping)
+					return count;
+				free.put(batch);
+			}
+		}
+		finally
+		{
+			endNanos = System.nanoTime();
+			reader.interrupt();
+		}
+	}
+
+	/// <summary>Copies the packets of the cursor into batches (reader thread).</summary>
+	private static void read(ArchiveCursor cursor, BlockingQueue<Batch> free, BlockingQueue<Batch> full) throws InterruptedException
+	{
+		boolean pending = cursor.next();
+		for(;;)
+		{
+			Batch batch = free.take();
+			int used = 0;
+			batch.count = 0;
+			while(pending && batch.count < MaxBatchPackets)
+			{
+				int length = cursor.getLength();
+				if(used + length > batch.buffer.length)
+					break;
+				batch.starts[batch.count] = used;
+				batch.lengths[batch.count] = length;
+				batch.times[batch.count] = cursor.getTime();
+				used += cursor.CopyPacket(batch.buffer, used);
+				batch.count++;
+				pending = cursor.next();
+			}
+			batch.last = !pending;
+			full.put(batch);
+			if(batch.last || Thread.currentThread().isInterrupted())
+				return;
+		}
+	}
+}
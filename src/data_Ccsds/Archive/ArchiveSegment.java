@@ -0,0 +1,397 @@
+package data_Ccsds.Archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import data_Ccsds.Packets.CcsdsPacketStreamDecoder;
+
+/// <summary>Segment file of a <see cref="PacketArchive"/>: a fixed-size file, memory-mapped, filled with packet records.</summary>
+/// <remarks>
+/// The file starts with a <see cref="HeaderLength"/>-byte header, followed by the records, 8-byte aligned:
+/// a <see cref="RecordHeaderLength"/>-byte record header (packet length, CRC-32, time stamp, APID) and
+/// the raw packet. The file is mapped in regions of <see cref="RegionLength"/> bytes, so that a segment
+/// can be larger than one mapping; a record never spans two regions, a length of
+/// <see cref="NextRegion"/> sends the reader to the next one. A length of 0 ends the records.
+///
+/// A record is written body first and length last, followed by a 0 length; its CRC covers the time
+/// stamp, the APID and the packet. When a segment was not closed cleanly, it is scanned on opening
+/// and the records end at the first one which is incomplete or fails its CRC. A cleanly closed segment
+/// keeps the end of its records in its header and its <see cref="ArchiveIndex"/> in a side file.
+/// </remarks>
+final class ArchiveSegment
+{
+	/// <summary>Length of the file header.</summary>
+	static final int HeaderLength = 64;
+
+	/// <summary>Length of a record header.</summary>
+	static final int RecordHeaderLength = 24;
+
+	/// <summary>Length of the mapped regions.</summary>
+	static final int RegionLength = 1 << 30;
+
+	/// <summary>Record length ending the records.</summary>
+	static final int EndOfRecords = 0;
+
+	/// <summary>Record length sending the reader to the start of the next region.</summary>
+	static final int NextRegion = -1;
+
+	/// <summary>"CCSDSARC"</summary>
+	private static final long Magic = 0x4343534453415243L;
+	private static final int Version = 1;
+	private static final int ClosedFlag = 1;
+
+	// File header fields
+	private static final int MagicOffset = 0;
+	private static final int VersionOffset = 8;
+	private static final int CapacityOffset = 16;
+	private static final int NumberOffset = 24;
+	private static final int TailOffset = 32;
+	private static final int FlagsOffset = 40;
+
+	// Record header fields
+	private static final int LengthOffset = 0;
+	private static final int CrcOffset = 4;
+	private static final int TimeOffset = 8;
+	private static final int ApidOffset = 16;
+
+	private final File file;
+	private final File indexFile;
+	private final long number;
+	private final long capacity;
+	private final MappedByteBuffer[] regions;
+	private final ArchiveIndex index;
+
+	/// <summary>End of the last record, published to the readers.</summary>
+	private volatile long tail;
+	private boolean closed;
+
+	// Writer only
+	private final CRC32 crc = new CRC32();
+	private final byte[] recordHeader = new byte[RecordHeaderLength];
+	private final ByteBuffer recordHeaderBuffer = ByteBuffer.wrap(recordHeader);
+
+	private ArchiveSegment(File file, long number, long capacity, MappedByteBuffer[] regions, ArchiveIndex index, long tail)
+	{
+		this.file = file;
+		this.indexFile = getIndexFile(file);
+		this.number = number;
+		this.capacity = capacity;
+		this.regions = regions;
+		this.index = index;
+		this.tail = tail;
+	}
+
+	/// <summary>Creates a segment file.</summary>
+	/// <param name="file">The file, which must not exist.</param>
+	/// <param name="number">The number of the segment in the archive.</param>
+	/// <param name="capacity">The size of the file, a multiple of 8.</param>
+	static ArchiveSegment Create(File file, long number, long capacity) throws IOException
+	{
+		if(!file.createNewFile())
+			throw new IOException("The archive segment " + file + " already exists.");
+		MappedByteBuffer[] regions = map(file, capacity);
+		MappedByteBuffer header = regions[0];
+		header.putLong(MagicOffset, Magic);
+		header.putInt(VersionOffset, Version);
+		header.putLong(CapacityOffset, capacity);
+		header.putLong(NumberOffset, number);
+		header.putLong(TailOffset, HeaderLength);
+		header.putInt(FlagsOffset, 0);
+		header.force();
+		return new ArchiveSegment(file, number, capacity, regions, new ArchiveIndex(), HeaderLength);
+	}
+
+	/// <summary>Opens a segment file, recovering its records if it was not closed cleanly.</summary>
+	/// <param name="file">The file.</param>
+	/// <param name="append">Whether records will be appended: the segment is then marked as not closed.</param>
+	static ArchiveSegment Open(File file, boolean append) throws IOException
+	{
+		long capacity = file.length();
+		if(capacity < HeaderLength)
+			throw new IOException("The file " + file + " is not an archive segment.");
+		MappedByteBuffer[] regions = map(file, capacity);
+		MappedByteBuffer header = regions[0];
+		if(header.getLong(MagicOffset) != Magic || header.getLong(CapacityOffset) != capacity)
+			throw new IOException("The file " + file + " is not an archive segment.");
+		if(header.getInt(VersionOffset) != Version)
+			throw new IOException("The archive segment " + file + " has the unsupported version " + header.getInt(VersionOffset) + ".");
+
+		long number = header.getLong(NumberOffset);
+		ArchiveIndex index = null;
+		long tail = header.getLong(TailOffset);
+		if((header.getInt(FlagsOffset) & ClosedFlag) != 0)
+			index = readIndex(getIndexFile(file), tail);
+
+		ArchiveSegment segment;
+		if(index != null)
+		{
+			segment = new ArchiveSegment(file, number, capacity, regions, index, tail);
+		}
+		else
+		{
+			segment = new ArchiveSegment(file, number, capacity, regions, new ArchiveIndex(), HeaderLength);
+			segment.recover();
+		}
+
+		if(append)
+		{
+			header.putInt(FlagsOffset, 0);
+			header.force();
+		}
+		else
+		{
+			segment.closed = true;
+		}
+		return segment;
+	}
+
+	private static MappedByteBuffer[] map(File file, long capacity) throws IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try
+		{
+			randomAccessFile.setLength(capacity);
+			FileChannel channel = randomAccessFile.getChannel();
+			MappedByteBuffer[] regions = new MappedByteBuffer[(int)((capacity + RegionLength - 1) / RegionLength)];
+			for(int i = 0 ; i < regions.length ; i++)
+			{
+				long start = (long)i * RegionLength;
+				regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(RegionLength, capacity - start));
+			}
+			// The mappings stay valid once the file is closed
+			return regions;
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+	}
+
+	private static File getIndexFile(File file)
+	{
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(file.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".idx");
+	}
+
+	private static ArchiveIndex readIndex(File indexFile, long tail)
+	{
+		if(!indexFile.isFile())
+			return null;
+		try
+		{
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try
+			{
+				return ArchiveIndex.read(input, tail);
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+		catch(IOException e)
+		{
+			// Rebuilt from the records
+			return null;
+		}
+	}
+
+	/// <summary>Scans the records, from the first one to the first invalid one, and rebuilds the index.</summary>
+	private void recover()
+	{
+		byte[] packet = new byte[CcsdsPacketStreamDecoder.MaxPacketLength];
+		long offset = HeaderLength;
+		while(offset + RecordHeaderLength <= capacity)
+		{
+			ByteBuffer region = regions[getRegion(offset)];
+			int position = getPosition(offset);
+			int length = region.getInt(position + LengthOffset);
+			if(length == NextRegion)
+			{
+				offset = (long)(getRegion(offset) + 1) * RegionLength;
+				continue;
+			}
+			int size = getRecordSize(length);
+			if(length <= 0 || length > packet.length || position + size > region.capacity())
+				break;
+
+			region.position(position + RecordHeaderLength);
+			region.get(packet, 0, length);
+			region.position(position);
+			region.get(recordHeader);
+			if(computeCrc(packet, 0, length) != region.getInt(position + CrcOffset))
+				break;
+
+			index.add(region.getShort(position + ApidOffset) & 0x7FF, offset, offset + size, region.getLong(position + TimeOffset));
+			offset += size;
+		}
+
+		// Cut off the partial record, if any
+		if(offset + 4 <= capacity)
+			regions[getRegion(offset)].putInt(getPosition(offset), EndOfRecords);
+		tail = offset;
+	}
+
+	/// <summary>Computes the CRC of the record header in <see cref="recordHeader"/> and of a packet.</summary>
+	private int computeCrc(byte[] packet, int start, int length)
+	{
+		crc.reset();
+		crc.update(recordHeader, TimeOffset, RecordHeaderLength - TimeOffset);
+		crc.update(packet, start, length);
+		return (int)crc.getValue();
+	}
+
+	/// <summary>Appends a record.</summary>
+	/// <param name="buffer">The buffer containing the packet.</param>
+	/// <param name="start">The index in bytes of the start of the packet in the buffer.</param>
+	/// <param name="length">The length in bytes of the packet.</param>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="time">The time stamp.</param>
+	/// <returns><c>true</c> if appended; <c>false</c> if the segment is full.</returns>
+	boolean Append(byte[] buffer, int start, int length, int apid, long time)
+	{
+		int size = getRecordSize(length);
+		long offset = tail;
+		long regionEnd = Math.min((long)(getRegion(offset) + 1) * RegionLength, capacity);
+		boolean nextRegion = offset + size > regionEnd;
+		if(nextRegion)
+		{
+			if(regionEnd + size > capacity)
+				return false;
+			regions[getRegion(offset)].putInt(getPosition(offset), NextRegion);
+			offset = regionEnd;
+		}
+		else if(offset + size > capacity)
+		{
+			return false;
+		}
+
+		recordHeaderBuffer.putLong(TimeOffset, time);
+		recordHeaderBuffer.putShort(ApidOffset, (short)apid);
+		int checksum = computeCrc(buffer, start, length);
+
+		// Body, then end of the records, then length
+		MappedByteBuffer region = regions[getRegion(offset)];
+		int position = getPosition(offset);
+		region.position(position + TimeOffset);
+		region.put(recordHeader, TimeOffset, RecordHeaderLength - TimeOffset);
+		region.put(buffer, start, length);
+		for(int i = RecordHeaderLength + length ; i < size ; i++)
+			region.put((byte)0);
+		long end = offset + size;
+		if(end + 4 <= capacity)
+			regions[getRegion(end)].putInt(getPosition(end), EndOfRecords);
+		region.putInt(position + CrcOffset, checksum);
+		region.putInt(position + LengthOffset, length);
+
+		tail = end;
+		index.add(apid, offset, end, time);
+		return true;
+	}
+
+	/// <summary>Writes the mapped pages to the disk.</summary>
+	void Flush()
+	{
+		for(MappedByteBuffer region : regions)
+			region.force();
+	}
+
+	/// <summary>Closes the segment: writes its index and marks it as closed cleanly. Its records can still be read.</summary>
+	void Close() throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+
+		File temporaryFile = new File(indexFile.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+		try
+		{
+			index.write(output, tail);
+		}
+		finally
+		{
+			output.close();
+		}
+		if(indexFile.exists() && !indexFile.delete() || !temporaryFile.renameTo(indexFile))
+			throw new IOException("The index " + indexFile + " could not be written.");
+
+		Flush();
+		MappedByteBuffer header = regions[0];
+		header.putLong(TailOffset, tail);
+		header.putInt(FlagsOffset, ClosedFlag);
+		header.force();
+	}
+
+	/// <summary>Gets the file of the segment.</summary>
+	File getFile() {
+		return file;
+	}
+
+	/// <summary>Gets the number of the segment in the archive.</summary>
+	long getNumber() {
+		return number;
+	}
+
+	/// <summary>Gets the end of the last record.</summary>
+	long getTail() {
+		return tail;
+	}
+
+	/// <summary>Gets the index of the segment.</summary>
+	ArchiveIndex getIndex() {
+		return index;
+	}
+
+	/// <summary>Gets a new view of a region, for a reader.</summary>
+	/// <param name="region">The region number.</param>
+	ByteBuffer getRegionView(int region) {
+		return regions[region].duplicate();
+	}
+
+	/// <summary>Gets the number of regions.</summary>
+	int getRegionCount() {
+		return regions.length;
+	}
+
+	static int getRegion(long offset) {
+		return (int)(offset / RegionLength);
+	}
+
+	static int getPosition(long offset) {
+		return (int)(offset % RegionLength);
+	}
+
+	/// <summary>Gets the size of a record, header and alignment included.</summary>
+	/// <param name="length">The length of the packet.</param>
+	static int getRecordSize(int length) {
+		return (RecordHeaderLength + length + 7) & ~7;
+	}
+
+	/// <summary>Gets the packet length of a record.</summary>
+	static int getLength(ByteBuffer region, int position) {
+		return region.getInt(position + LengthOffset);
+	}
+
+	/// <summary>Gets the time stamp of a record.</summary>
+	static long getTime(ByteBuffer region, int position) {
+		return region.getLong(position + TimeOffset);
+	}
+
+	/// <summary>Gets the APID of a record.</summary>
+	static int getApid(ByteBuffer region, int position) {
+		return region.getShort(position + ApidOffset) & 0x7FF;
+	}
+}
@@ -0,0 +1,221 @@
+package data_Ccsds.Archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import data.NotImplementedException;
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ApidMap;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.CcsdsPacket;
+import data_Ccsds.Packets.CcsdsPacketStreamDecoder;
+import data_Ccsds.Packets.ICcsdsPacketListener;
+import data_Ccsds.Packets.NotSupportedException;
+import data_Ccsds.Packets.Telemetry;
+import data_Ccsds.Packets.TelemetryView;
+
+/// <summary>Append-only archive of raw CCSDS packets, in memory-mapped segment files.</summary>
+/// <remarks>
+/// The packets are appended with their APID and a time stamp (the on-board time, in
+/// <see cref="data_Ccsds.Packets.TimeSpan"/> ticks, for telemetry) to the last segment of the archive
+/// directory; a full segment is closed and the next one created. Each segment has a sparse index by
+/// APID and time (see <see cref="ArchiveIndex"/>), so a query such as "APID 0x23 between T1 and T2" only
+/// scans the parts of the files that can hold matching packets, through the mappings, without reading
+/// whole files. The records of a segment not closed cleanly are recovered when the archive is opened:
+/// a packet is archived once its append has returned, even if the process dies afterwards, and also
+/// on power loss once <see cref="Flush"/> has returned.
+///
+/// Appends come from one thread at a time; queries can run in any number of threads meanwhile.
+/// </remarks>
+public class PacketArchive
+{
+	/// <summary>Default size of the segment files.</summary>
+	public static final long DefaultSegmentCapacity = 1L << 32;
+
+	/// <summary>Smallest size of the segment files.</summary>
+	public static final long MinSegmentCapacity = 1 << 20;
+
+	/// <summary>Extension of the segment files.</summary>
+	private static final String SegmentExtension = ".arc";
+
+	private final File directory;
+	private final long segmentCapacity;
+	private final List<ArchiveSegment> segments = new ArrayList<ArchiveSegment>();
+	private ArchiveSegment current;
+	private boolean closed;
+
+	/// <summary>Packet encoded by <see cref="Append(Telemetry)"/>, lazily allocated.</summary>
+	private byte[] packet;
+
+	/// <summary>Opens an archive with segments of the default size, creating it if needed.</summary>
+	/// <param name="directory">The directory of the segment files.</param>
+	public PacketArchive(File directory) throws ArgumentNullException, ArgumentOutOfRangeException, IOException
+	{
+		this(directory, DefaultSegmentCapacity);
+	}
+
+	/// <summary>Opens an archive, creating it if needed.</summary>
+	/// <param name="directory">The directory of the segment files.</param>
+	/// <param name="segmentCapacity">The size of the segment files created, a multiple of 8 (existing segments keep their size).</param>
+	public PacketArchive(File directory, long segmentCapacity) throws ArgumentNullException, ArgumentOutOfRangeException, IOException
+	{
+		if(directory == null)
+			throw new ArgumentNullException("directory");
+		if(segmentCapacity < MinSegmentCapacity || (segmentCapacity & 7) != 0)
+			throw new ArgumentOutOfRangeException("segmentCapacity : " + segmentCapacity);
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("The archive directory " + directory + " could not be created.");
+
+		this.directory = directory;
+		this.segmentCapacity = segmentCapacity;
+
+		File[] files = directory.listFiles();
+		String[] names = new String[files == null ? 0 : files.length];
+		int count = 0;
+		for(int i = 0 ; i < names.length ; i++)
+			if(files[i].getName().endsWith(SegmentExtension))
+				names[count++] = files[i].getName();
+		names = Arrays.copyOf(names, count);
+		Arrays.sort(names);
+
+		for(int i = 0 ; i < names.length ; i++)
+			segments.add(ArchiveSegment.Open(new File(directory, names[i]), i == names.length - 1));
+		if(segments.isEmpty())
+			segments.add(ArchiveSegment.Create(getSegmentFile(0), 0, segmentCapacity));
+		current = segments.get(segments.size() - 1);
+	}
+
+	private File getSegmentFile(long number)
+	{
+		return new File(directory, String.format("segment-%010d%s", number, SegmentExtension));
+	}
+
+	/// <summary>Gets the number of segment files.</summary>
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/// <summary>Gets the number of packets archived.</summary>
+	public synchronized long getPacketCount()
+	{
+		long count = 0;
+		for(ArchiveSegment segment : segments)
+			count += segment.getIndex().getRecordCount();
+		return count;
+	}
+
+	/// <summary>Appends a packet.</summary>
+	/// <param name="buffer">The buffer containing the packet, e.g. as received.</param>
+	/// <param name="start">The index in bytes of the start of the packet in the buffer.</param>
+	/// <param name="length">The length in bytes of the packet, Packet Header included.</param>
+	/// <param name="time">The time stamp of the packet, used by the queries.</param>
+	public synchronized void Append(byte[] buffer, int start, int length, long time) throws ArgumentNullException, ArgumentOutOfRangeException, IOException
+	{
+		if(buffer == null)
+			throw new ArgumentNullException("buffer");
+		if(length <= CcsdsPacket.getHeaderLength() || length > CcsdsPacketStreamDecoder.MaxPacketLength || start < 0 || start + length > buffer.length)
+			throw new ArgumentOutOfRangeException("length : " + length);
+		if(closed)
+			throw new IOException("The archive is closed.");
+
+		int apid = ((buffer[start] & 0x07) << 8) | (buffer[start + 1] & 0xFF);
+		if(current.Append(buffer, start, length, apid, time))
+			return;
+
+		// Segment full
+		current.Close();
+		current = ArchiveSegment.Create(getSegmentFile(current.getNumber() + 1), current.getNumber() + 1, segmentCapacity);
+		segments.add(current);
+		current.Append(buffer, start, length, apid, time);
+	}
+
+	/// <summary>Appends a received telemetry packet, time-stamped with its on-board time (0 without Time field).</summary>
+	/// <param name="view">The view of the packet.</param>
+	public void Append(TelemetryView view) throws ArgumentNullException, ArgumentOutOfRangeException, IOException
+	{
+		if(view == null)
+			throw new ArgumentNullException("view");
+		Append(view.getBuffer(), view.getStart(), view.getCompletePacketLength(), view.hasTime() ? view.getTimeTicks() : 0);
+	}
+
+	/// <summary>Appends a telemetry packet, encoded with <see cref="CcsdsPacket.ToBuffer(byte[], int)"/> and time-stamped with its on-board time (0 without Time field).</summary>
+	/// <param name="telemetry">The telemetry packet.</param>
+	public synchronized void Append(Telemetry telemetry) throws ArgumentNullException, ArgumentException, ArgumentOutOfRangeException, NotImplementedException, NotSupportedException, UnsupportedEncodingException, IOException
+	{
+		if(telemetry == null)
+			throw new ArgumentNullException("telemetry");
+		if(packet == null)
+			packet = new byte[CcsdsPacketStreamDecoder.MaxPacketLength];
+		int length = telemetry.ToBuffer(packet, 0);
+		Append(packet, 0, length, telemetry.Time != null ? telemetry.Time.Ticks : 0);
+	}
+
+	/// <summary>Writes the archived packets to the disk.</summary>
+	public synchronized void Flush()
+	{
+		current.Flush();
+	}
+
+	/// <summary>Opens a cursor on the packets of an APID in a time range.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="fromTime">The earliest time stamp.</param>
+	/// <param name="toTime">The latest time stamp.</param>
+	/// <returns>The cursor, reading the packets in archive order.</returns>
+	public ArchiveCursor OpenCursor(int apid, long fromTime, long toTime) throws ArgumentOutOfRangeException
+	{
+		if(apid < 0 || apid >= ApidMap.Capacity)
+			throw new ArgumentOutOfRangeException("apid : " + apid);
+		return openCursor(apid, fromTime, toTime);
+	}
+
+	/// <summary>Opens a cursor on the packets of all the APIDs in a time range.</summary>
+	/// <param name="fromTime">The earliest time stamp.</param>
+	/// <param name="toTime">The latest time stamp.</param>
+	/// <returns>The cursor, reading the packets in archive order.</returns>
+	public ArchiveCursor OpenCursor(long fromTime, long toTime)
+	{
+		return openCursor(ArchiveIndex.AllApids, fromTime, toTime);
+	}
+
+	private synchronized ArchiveCursor openCursor(int apid, long fromTime, long toTime)
+	{
+		ArchiveCursor cursor = new ArchiveCursor(apid, fromTime, toTime);
+		for(ArchiveSegment segment : segments)
+			segment.getIndex().collect(segment, apid, fromTime, toTime, cursor);
+		return cursor;
+	}
+
+	/// <summary>Passes the packets of an APID in a time range to a listener, in archive order.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="fromTime">The earliest time stamp.</param>
+	/// <param name="toTime">The latest time stamp.</param>
+	/// <param name="listener">The listener receiving the packets.</param>
+	/// <returns>The number of packets.</returns>
+	public long Query(int apid, long fromTime, long toTime, ICcsdsPacketListener listener) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(listener == null)
+			throw new ArgumentNullException("listener");
+		ArchiveCursor cursor = OpenCursor(apid, fromTime, toTime);
+		long count = 0;
+		while(cursor.next())
+		{
+			listener.PacketReceived(cursor.getPacket(), 0, cursor.getLength());
+			count++;
+		}
+		return count;
+	}
+
+	/// <summary>Closes the archive: the last segment is closed cleanly. The open cursors can still be read.</summary>
+	public synchronized void Close() throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+		current.Close();
+	}
+}
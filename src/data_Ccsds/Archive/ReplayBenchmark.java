@@ -0,0 +1,99 @@
+package data_Ccsds.Archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import data_Ccsds.Packets.ICcsdsPacketListener;
+
+/// <summary>Throughput benchmark of the archive replay.</summary>
+/// <remarks>
+/// Run with <c>java data_Ccsds.Archive.ReplayBenchmark [packetCount] [iterations]</c>. An archive of
+/// telemetry packets of 10 to 210 bytes over 50 APIDs is written to a temporary directory, then replayed
+/// as fast as possible; the listener only sums the bytes, so the rates are those of the replay itself.
+/// The replayed packets are first checked against the appended ones.
+/// </remarks>
+public class ReplayBenchmark
+{
+	private static final long SegmentCapacity = 64L << 20;
+
+	/// <summary>Listener summing the packets, to check them and keep the replay from being optimized out.</summary>
+	private static final class SumListener implements ICcsdsPacketListener
+	{
+		long count;
+		long sum;
+
+		public void PacketReceived(byte[] buffer, int start, int length)
+		{
+			count++;
+			sum += length + buffer[start + 1] + buffer[start + length - 1];
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int packetCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		File directory = Files.createTempDirectory("replay-benchmark").toFile();
+		try
+		{
+			// Archive
+			Random random = new Random(42);
+			byte[] packet = new byte[256];
+			long expectedSum = 0;
+			PacketArchive archive = new PacketArchive(directory, SegmentCapacity);
+			long startTime = System.nanoTime();
+			for(int i = 0 ; i < packetCount ; i++)
+			{
+				int apid = random.nextInt(50);
+				int length = 10 + random.nextInt(200);
+				random.nextBytes(packet);
+				packet[0] = (byte)(0x08 | (apid >> 8));
+				packet[1] = (byte)apid;
+				packet[4] = (byte)((length - 7) >> 8);
+				packet[5] = (byte)(length - 7);
+				archive.Append(packet, 0, length, i * 10L);
+				expectedSum += length + packet[1] + packet[length - 1];
+			}
+			archive.Flush();
+			long elapsed = System.nanoTime() - startTime;
+			System.out.println(String.format("%-20s %14.0f packets/s (%d packets, %d segments)", "Append", packetCount / (elapsed / 1e9), packetCount, archive.getSegmentCount()));
+
+			// Check
+			SumListener listener = new SumListener();
+			ArchiveReplayer replayer = new ArchiveReplayer(listener);
+			replayer.Replay(archive.OpenCursor(Long.MIN_VALUE, Long.MAX_VALUE), ArchiveReplayer.AsFastAsPossible);
+			if(listener.count != packetCount || listener.sum != expectedSum)
+				throw new IllegalStateException("Replayed " + listener.count + " packets out of " + packetCount + ", or their content differs");
+			System.out.println("Replay verified against the appended packets");
+
+			// Replay, the first iteration warms up
+			for(int i = 0 ; i <= iterations ; i++)
+			{
+				replayer.Replay(archive.OpenCursor(Long.MIN_VALUE, Long.MAX_VALUE), ArchiveReplayer.AsFastAsPossible);
+				if(i == 0)
+					continue;
+				System.out.println(String.format("%-20s %14.0f packets/s %10.1f MB/s, listener %14.0f packets/s",
+					"Replay " + i, replayer.getPacketRate(), replayer.getByteCount() / (1024.0 * 1024.0) / (replayer.getElapsedNanos() / 1e9), replayer.getDecodeRate()));
+			}
+			System.out.println("(" + listener.sum + ")");
+			archive.Close();
+		}
+		finally
+		{
+			delete(directory);
+		}
+	}
+
+	private static void delete(File directory) throws IOException
+	{
+		File[] files = directory.listFiles();
+		for(int i = 0 ; files != null && i < files.length ; i++)
+			if(!files[i].delete())
+				throw new IOException("Could not delete " + files[i]);
+		if(!directory.delete())
+			throw new IOException("Could not delete " + directory);
+	}
+}
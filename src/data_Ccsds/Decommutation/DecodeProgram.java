@@ -0,0 +1,285 @@
+package data_Ccsds.Decommutation;
+
+import java.util.List;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.NotSupportedException;
+import data_Ccsds.ParameterCode.ParameterCode;
+import data_Ccsds.ParameterCode.ParameterCodec;
+import data_Ccsds.ParameterCode.PtcType;
+import data_Ccsds.ParameterCode.UnalignedData;
+
+/// <summary>A <see cref="PacketDefinition"/> compiled into a flat list of instructions.</summary>
+/// <remarks>
+/// Every parameter becomes one instruction of parallel primitive arrays: an opcode for its primitive
+/// representation, its bit offset and its size. Sequential parameters that follow only fixed size fields get a
+/// constant offset, so the bounds of the whole fixed part are checked once per packet; only the fields after a
+/// variable length string are placed and checked while decoding. <see cref="Decode"/> then extracts every
+/// parameter in one pass with <see cref="UnalignedData.ReadBits"/>, without the PTC/PFC dispatch,
+/// boxing nor allocation of <see cref="data_Ccsds.ParameterCode.ParameterConverter.ExtractValue"/>.
+/// Programs are immutable and can be shared between threads; use one <see cref="DecodedRecord"/> per thread.
+/// </remarks>
+public class DecodeProgram
+{
+	// Opcodes
+	private static final int OpUnsigned = 0;
+	private static final int OpSigned = 1;
+	private static final int OpFloat = 2;
+	private static final int OpDouble = 3;
+	private static final int OpTime = 4;
+	private static final int OpLocate = 5;
+	private static final int OpSkip = 6;
+
+	/// <summary>Offset of an instruction placed while decoding, after the previous one.</summary>
+	private static final int AtCursor = -1;
+
+	private final PacketDefinition packet;
+
+	// Instructions
+	private final int[] opcodes;
+	private final int[] offsets;
+	/// <summary>Size in bits; for variable length strings, minus the size in bits of a unit of the length prefix.</summary>
+	private final int[] sizes;
+	private final int[] slots;
+	private final ParameterCodec[] timeCodecs;
+	/// <summary>End in bits of the instructions with a constant offset and size.</summary>
+	private final int fixedLength;
+
+	// Slots of the decoded values
+	private final int[] parameterIds;
+	private final String[] names;
+	private final boolean[] reals;
+
+	/// <summary>Compiles a packet definition.</summary>
+	/// <param name="packet">The packet definition.</param>
+	/// <param name="parameterIds">The parameter ID of each parameter of the packet that is not a spare, in order.</param>
+	/// <exception cref="NotSupportedException">A parameter has no primitive representation.</exception>
+	/// <exception cref="ArgumentException">A parameter does not fit in the Source Data.</exception>
+	DecodeProgram(PacketDefinition packet, int[] parameterIds) throws NotSupportedException, ArgumentException
+	{
+		List<ParameterDefinition> parameters = packet.getParameters();
+		int count = parameters.size();
+		this.packet = packet;
+		this.opcodes = new int[count];
+		this.offsets = new int[count];
+		this.sizes = new int[count];
+		this.slots = new int[count];
+		this.timeCodecs = new ParameterCodec[count];
+		this.parameterIds = parameterIds.clone();
+		this.names = new String[parameterIds.length];
+		this.reals = new boolean[parameterIds.length];
+
+		long cursor = 0;
+		boolean placed = true;
+		long end = 0;
+		int slot = 0;
+		for(int i = 0 ; i < count ; i++)
+		{
+			ParameterDefinition parameter = parameters.get(i);
+			ParameterCode parameterCode = parameter.getParameterCode();
+			int opcode = parameter.isSpare() ? OpSkip : getOpcode(parameterCode);
+			int size = getSize(parameterCode);
+
+			if(parameter.getBitOffset() != ParameterDefinition.Sequential)
+			{
+				cursor = parameter.getBitOffset();
+				placed = true;
+			}
+			opcodes[i] = opcode;
+			offsets[i] = placed ? (int)cursor : AtCursor;
+			sizes[i] = size;
+			if(opcode == OpTime)
+				timeCodecs[i] = parameterCode.getCodec();
+			if(placed)
+			{
+				if(size < 0)
+				{
+					// The length prefix is fixed, what follows is placed while decoding
+					end = Math.max(end, cursor + 8);
+					placed = false;
+				}
+				else
+				{
+					cursor += size;
+					end = Math.max(end, cursor);
+				}
+				if(end > Integer.MAX_VALUE)
+					throw new ArgumentException("The parameter " + parameter.getName() + " of " + packet.ToString() + " is beyond the largest Source Data.");
+			}
+
+			if(opcode == OpSkip)
+			{
+				slots[i] = -1;
+				continue;
+			}
+			if(slot == parameterIds.length)
+				throw new ArgumentException("Parameter IDs are missing for " + packet.ToString() + ".");
+			slots[i] = slot;
+			names[slot] = parameter.getName();
+			reals[slot] = opcode == OpFloat || opcode == OpDouble;
+			slot++;
+		}
+		if(slot != parameterIds.length)
+			throw new ArgumentException("Too many parameter IDs for " + packet.ToString() + ".");
+		this.fixedLength = (int)end;
+	}
+
+	private static int getOpcode(ParameterCode parameterCode) throws NotSupportedException
+	{
+		switch(parameterCode.getPtc())
+		{
+		case Boolean:
+		case Enumerated:
+		case UnsignedInteger:
+		case ObtCounter:
+			return OpUnsigned;
+		case SignedInteger:
+			return OpSigned;
+		case Real:
+			if(parameterCode.getPfc() == 1)
+				return OpFloat;
+			if(parameterCode.getPfc() == 2)
+				return OpDouble;
+			break;
+		case AbsoluteTime:
+		case RelativeTime:
+			return OpTime;
+		case BitString:
+		case OctetString:
+		case CharacterString:
+			return OpLocate;
+		default:
+			break;
+		}
+		throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " cannot be decommutated.");
+	}
+
+	private static int getSize(ParameterCode parameterCode) throws NotSupportedException
+	{
+		int size = parameterCode.getCodec().getBitsSize();
+		if(size >= 0)
+			return size;
+		switch(parameterCode.getPtc())
+		{
+		case BitString:
+			return -1;
+		case OctetString:
+		case CharacterString:
+			return -8;
+		default:
+			throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " cannot be decommutated.");
+		}
+	}
+
+	/// <summary>Gets the compiled packet definition.</summary>
+	public PacketDefinition getPacket() {
+		return packet;
+	}
+
+	/// <summary>Gets the number of decoded parameters, without the spares.</summary>
+	public int getParameterCount() {
+		return parameterIds.length;
+	}
+
+	/// <summary>Gets the parameter ID of a decoded parameter.</summary>
+	/// <param name="index">The index of the parameter in the <see cref="DecodedRecord"/>.</param>
+	public int getParameterId(int index) {
+		return parameterIds[index];
+	}
+
+	/// <summary>Gets the name of a decoded parameter.</summary>
+	/// <param name="index">The index of the parameter in the <see cref="DecodedRecord"/>.</param>
+	public String getName(int index) {
+		return names[index];
+	}
+
+	/// <summary>Gets a value indicating whether a decoded parameter has <c>double</c> values rather than <c>long</c>.</summary>
+	/// <param name="index">The index of the parameter in the <see cref="DecodedRecord"/>.</param>
+	public boolean isReal(int index) {
+		return reals[index];
+	}
+
+	/// <summary>Gets the size in bytes of the Source Data up to the end of the last fixed size parameter.</summary>
+	public int getMinimumDataLength() {
+		return (fixedLength + 7) / 8;
+	}
+
+	/// <summary>Decodes the parameters of a packet.</summary>
+	/// <param name="buffer">The buffer containing the Source Data.</param>
+	/// <param name="dataOffset">The index in bytes of the Source Data in the buffer.</param>
+	/// <param name="dataLength">The length in bytes of the Source Data.</param>
+	/// <param name="record">The record receiving the values, reused.</param>
+	/// <returns><c>true</c> if decoded; <c>false</c> if a parameter lies beyond the Source Data, the record is then empty.</returns>
+	public boolean Decode(byte[] buffer, int dataOffset, int dataLength, DecodedRecord record) throws ArgumentNullException, ArgumentException, NotSupportedException
+	{
+		if(buffer == null)
+			throw new ArgumentNullException("buffer");
+		if(record == null)
+			throw new ArgumentNullException("record");
+		if(dataOffset < 0 || dataLength < 0 || dataOffset > buffer.length - dataLength)
+			throw new ArgumentException("The Source Data is outside the buffer.");
+
+		record.reset(this, buffer, dataOffset);
+		int limit = dataLength * 8;
+		if(fixedLength > limit)
+			return false;
+
+		long[] values = record.Values;
+		int[] positions = record.Positions;
+		int origin = dataOffset * 8;
+		int cursor = 0;
+		for(int i = 0 ; i < opcodes.length ; i++)
+		{
+			int position = offsets[i];
+			int size = sizes[i];
+			if(position == AtCursor)
+			{
+				position = cursor;
+				if(size < 0 && position + 8 > limit)
+					return false;
+			}
+			if(size < 0)
+				size = (int)UnalignedData.ReadBits(buffer, origin + position, 8) * -size + 8;
+			if((offsets[i] == AtCursor || sizes[i] < 0) && size > limit - position)
+				return false;
+			cursor = position + size;
+
+			int slot = slots[i];
+			int index = origin + position;
+			switch(opcodes[i])
+			{
+			case OpUnsigned:
+				values[slot] = UnalignedData.ReadBits(buffer, index, size);
+				break;
+			case OpSigned:
+				values[slot] = (UnalignedData.ReadBits(buffer, index, size) << (64 - size)) >> (64 - size);
+				break;
+			case OpFloat:
+				values[slot] = Double.doubleToRawLongBits(Float.intBitsToFloat((int)UnalignedData.ReadBits(buffer, index, 32)));
+				break;
+			case OpDouble:
+				values[slot] = UnalignedData.ReadBits(buffer, index, 64);
+				break;
+			case OpTime:
+				values[slot] = timeCodecs[i].ExtractTimeTicks(buffer, index);
+				break;
+			case OpLocate:
+				if(sizes[i] < 0)
+				{
+					// Past the length prefix
+					values[slot] = size - 8;
+					positions[slot] = position + 8;
+					continue;
+				}
+				values[slot] = size;
+				break;
+			default:
+				continue;
+			}
+			positions[slot] = position;
+		}
+		record.Count = parameterIds.length;
+		return true;
+	}
+}
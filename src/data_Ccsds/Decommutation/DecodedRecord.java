@@ -0,0 +1,72 @@
+package data_Ccsds.Decommutation;
+
+/// <summary>Values of the parameters of a packet decoded by a <see cref="DecodeProgram"/>, reused across packets.</summary>
+/// <remarks>
+/// Parameter <c>i</c> of the program has its value in <c>Values[i]</c>: a <c>long</c> for integers,
+/// enumerations and booleans (0 or 1), the raw bits of a <c>double</c> for reals (see
+/// <see cref="DecodeProgram.isReal"/>), the ticks for times (see <see cref="data_Ccsds.Packets.TimeSpan"/>) and
+/// the length in bits for strings, which are located rather than decoded: their content starts at bit
+/// <c>Positions[i]</c> of the Source Data, in <see cref="getBuffer"/> from <see cref="getDataOffset"/>.
+/// The arrays only grow, a record allocates nothing once sized for the largest program.
+/// </remarks>
+public class DecodedRecord
+{
+	/// <summary>Number of decoded parameters, 0 if the last packet could not be decoded.</summary>
+	public int Count;
+	/// <summary>Value of each parameter.</summary>
+	public long[] Values = new long[0];
+	/// <summary>Index in bits of each parameter from the start of the Source Data.</summary>
+	public int[] Positions = new int[0];
+
+	private DecodeProgram program;
+	private byte[] buffer;
+	private int dataOffset;
+
+	/// <summary>Gets the program of the last decoded packet, <c>null</c> if none.</summary>
+	public DecodeProgram getProgram() {
+		return program;
+	}
+
+	/// <summary>Gets the buffer of the last decoded packet.</summary>
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/// <summary>Gets the index in bytes of the Source Data in the buffer of the last decoded packet.</summary>
+	public int getDataOffset() {
+		return dataOffset;
+	}
+
+	/// <summary>Gets the parameter ID of a parameter.</summary>
+	/// <param name="index">The index of the parameter, 0 to <see cref="Count"/> - 1.</param>
+	public int getParameterId(int index) {
+		return program.getParameterId(index);
+	}
+
+	/// <summary>Gets the value of a parameter as a <c>long</c>, truncating reals.</summary>
+	/// <param name="index">The index of the parameter, 0 to <see cref="Count"/> - 1.</param>
+	public long getLong(int index) {
+		return program.isReal(index) ? (long)Double.longBitsToDouble(Values[index]) : Values[index];
+	}
+
+	/// <summary>Gets the value of a parameter as a <c>double</c>.</summary>
+	/// <param name="index">The index of the parameter, 0 to <see cref="Count"/> - 1.</param>
+	public double getDouble(int index) {
+		return program.isReal(index) ? Double.longBitsToDouble(Values[index]) : Values[index];
+	}
+
+	/// <summary>Empties the record for a new packet.</summary>
+	void reset(DecodeProgram program, byte[] buffer, int dataOffset)
+	{
+		int count = program.getParameterCount();
+		if(Values.length < count)
+		{
+			Values = new long[count];
+			Positions = new int[count];
+		}
+		this.Count = 0;
+		this.program = program;
+		this.buffer = buffer;
+		this.dataOffset = dataOffset;
+	}
+}
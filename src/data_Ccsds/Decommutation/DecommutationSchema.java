@@ -0,0 +1,303 @@
+package data_Ccsds.Decommutation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ApidMap;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.NotSupportedException;
+import data_Ccsds.Packets.Telemetry;
+import data_Ccsds.Packets.TelemetryView;
+import data_Ccsds.ParameterCode.ParameterCode;
+import data_Ccsds.ParameterCode.PtcType;
+
+/// <summary>The packet definitions of a mission, compiled into a <see cref="DecodeProgram"/> per APID, service type and subtype.</summary>
+/// <remarks>
+/// Each parameter name gets a dense parameter ID, in order of first appearance, shared by all the packets
+/// containing the parameter: the IDs index a <see cref="data_Ccsds.Housekeeping.LatestValueTable"/> or a
+/// <see cref="data_Ccsds.Housekeeping.HousekeepingStore"/> directly.
+///
+/// The definitions are usually loaded at startup with <see cref="Load(File)"/>, from a text file such as:
+/// <code>
+/// # APID service subtype name
+/// packet 100 3 25 PowerHousekeeping
+///     # name  PTC  PFC  [@bit offset from the start of the Source Data]
+///     BatteryVoltage   5 1
+///     BatteryCurrent   SignedInteger 12
+///     -                3 4            # spare
+///     Mode             2 8  @96
+/// </code>
+/// Parameters without an offset follow the previous one. The PTC is a code or a <see cref="PtcType"/> name.
+/// Not thread-safe while definitions are added; a loaded schema can decode from any thread.
+/// </remarks>
+public class DecommutationSchema
+{
+	private static final String PacketKeyword = "packet";
+	private static final String SpareName = "-";
+
+	/// <summary>Programs of each APID, keyed by service type and subtype.</summary>
+	private final ApidMap<DecodeProgram[]> programs = new ApidMap<DecodeProgram[]>();
+
+	private final HashMap<String, Integer> parameterIds = new HashMap<String, Integer>();
+	private String[] parameterNames = new String[16];
+	private boolean[] parameterReals = new boolean[16];
+	private int parameterCount;
+
+	/// <summary>Loads a schema from a definition file.</summary>
+	/// <param name="file">The definition file, in UTF-8.</param>
+	public static DecommutationSchema Load(File file) throws ArgumentNullException, IOException
+	{
+		if(file == null)
+			throw new ArgumentNullException("file");
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try
+		{
+			return Load(reader, file.getName());
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/// <summary>Loads a schema from definitions.</summary>
+	/// <param name="reader">The definitions, see <see cref="DecommutationSchema"/>.</param>
+	/// <param name="source">The name of the definitions in the error messages.</param>
+	/// <exception cref="IOException">The definitions could not be read or are invalid.</exception>
+	public static DecommutationSchema Load(Reader reader, String source) throws ArgumentNullException, IOException
+	{
+		if(reader == null)
+			throw new ArgumentNullException("reader");
+
+		DecommutationSchema schema = new DecommutationSchema();
+		BufferedReader lines = new BufferedReader(reader);
+		PacketDefinition packet = null;
+		int packetLine = 0;
+		String line;
+		for(int lineNumber = 1 ; (line = lines.readLine()) != null ; lineNumber++)
+		{
+			int comment = line.indexOf('#');
+			if(comment >= 0)
+				line = line.substring(0, comment);
+			line = line.trim();
+			if(line.isEmpty())
+				continue;
+
+			String[] fields = line.split("\\s+");
+			try
+			{
+				if(fields[0].equals(PacketKeyword))
+				{
+					if(packet != null)
+						schema.add(packet, source, packetLine);
+					if(fields.length < 4 || fields.length > 5)
+						throw new ArgumentException("Expected: packet <APID> <service type> <service subtype> [name].");
+					packet = new PacketDefinition(fields.length == 5 ? fields[4] : null, Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+					packetLine = lineNumber;
+				}
+				else
+				{
+					if(packet == null)
+						throw new ArgumentException("Parameter outside of a packet.");
+					if(fields.length < 3 || fields.length > 4 || (fields.length == 4 && !fields[3].startsWith("@")))
+						throw new ArgumentException("Expected: <name> <PTC> <PFC> [@<bit offset>].");
+					int bitOffset = fields.length == 4 ? Integer.parseInt(fields[3].substring(1)) : ParameterDefinition.Sequential;
+					ParameterCode parameterCode = new ParameterCode(parsePtc(fields[1]), Integer.parseInt(fields[2]));
+					packet.Add(new ParameterDefinition(fields[0].equals(SpareName) ? null : fields[0], parameterCode, bitOffset));
+				}
+			}
+			catch(NumberFormatException e)
+			{
+				throw new IOException(source + ":" + lineNumber + ": Invalid number, " + e.getMessage());
+			}
+			catch(ArgumentException e)
+			{
+				throw new IOException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+			}
+			catch(IOException e)
+			{
+				throw e;
+			}
+			catch(Exception e)
+			{
+				throw new IOException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+			}
+		}
+		if(packet != null)
+			schema.add(packet, source, packetLine);
+		return schema;
+	}
+
+	private static PtcType parsePtc(String field) throws ArgumentException
+	{
+		for(PtcType ptc : PtcType.values())
+			if(ptc.name().equals(field) || String.valueOf(ptc.getCode()).equals(field))
+				return ptc;
+		throw new ArgumentException("Unknown PTC " + field + ".");
+	}
+
+	private void add(PacketDefinition packet, String source, int lineNumber) throws IOException
+	{
+		try
+		{
+			Add(packet);
+		}
+		catch(Exception e)
+		{
+			throw new IOException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+
+	/// <summary>Compiles a packet definition and adds it to the schema.</summary>
+	/// <param name="packet">The packet definition.</param>
+	/// <returns>The compiled program.</returns>
+	/// <exception cref="ArgumentException">The packet is already defined, or a parameter conflicts with another packet.</exception>
+	/// <exception cref="NotSupportedException">A parameter has no primitive representation.</exception>
+	public DecodeProgram Add(PacketDefinition packet) throws ArgumentNullException, ArgumentException, NotSupportedException
+	{
+		if(packet == null)
+			throw new ArgumentNullException("packet");
+		if(getProgram(packet.getApplicationProcessId(), packet.getServiceType(), packet.getServiceSubtype()) != null)
+			throw new ArgumentException(packet.ToString() + " is already defined.");
+
+		// IDs of the new names are only reserved once the packet compiled
+		List<ParameterDefinition> parameters = packet.getParameters();
+		List<String> newNames = new ArrayList<String>();
+		List<Boolean> newReals = new ArrayList<Boolean>();
+		int[] ids = new int[parameters.size()];
+		int count = 0;
+		for(ParameterDefinition parameter : parameters)
+		{
+			if(parameter.isSpare())
+				continue;
+			boolean real = parameter.getParameterCode().getPtc() == PtcType.Real;
+			Integer id = parameterIds.get(parameter.getName());
+			int index = newNames.indexOf(parameter.getName());
+			if(id == null && index < 0)
+			{
+				index = newNames.size();
+				newNames.add(parameter.getName());
+				newReals.add(real);
+			}
+			int parameterId = id != null ? id : parameterCount + index;
+			boolean existingReal = id != null ? parameterReals[id] : newReals.get(index);
+			if(existingReal != real)
+				throw new ArgumentException("The parameter " + parameter.getName() + " of " + packet.ToString() + " has " + (real ? "real" : "integer") + " values in another packet.");
+			ids[count++] = parameterId;
+		}
+
+		DecodeProgram program = new DecodeProgram(packet, Arrays.copyOf(ids, count));
+
+		for(int i = 0 ; i < newNames.size() ; i++)
+		{
+			if(parameterCount == parameterNames.length)
+			{
+				parameterNames = Arrays.copyOf(parameterNames, parameterCount * 2);
+				parameterReals = Arrays.copyOf(parameterReals, parameterCount * 2);
+			}
+			parameterIds.put(newNames.get(i), parameterCount);
+			parameterNames[parameterCount] = newNames.get(i);
+			parameterReals[parameterCount] = newReals.get(i);
+			parameterCount++;
+		}
+		DecodeProgram[] apidPrograms = programs.get(packet.getApplicationProcessId(), new DecodeProgram[0]);
+		apidPrograms = Arrays.copyOf(apidPrograms, apidPrograms.length + 1);
+		apidPrograms[apidPrograms.length - 1] = program;
+		programs.put(packet.getApplicationProcessId(), apidPrograms);
+		return program;
+	}
+
+	/// <summary>Gets the program of a kind of packet.</summary>
+	/// <param name="applicationProcessId">The Application Process ID.</param>
+	/// <param name="serviceType">The service type.</param>
+	/// <param name="serviceSubtype">The service subtype.</param>
+	/// <returns>The program, or <c>null</c> if the packet is not defined.</returns>
+	public DecodeProgram getProgram(int applicationProcessId, int serviceType, int serviceSubtype)
+	{
+		if(applicationProcessId < 0 || applicationProcessId >= ApidMap.Capacity)
+			return null;
+		DecodeProgram[] apidPrograms = programs.get(applicationProcessId);
+		if(apidPrograms == null)
+			return null;
+		serviceType &= 0xFF;
+		serviceSubtype &= 0xFF;
+		for(DecodeProgram program : apidPrograms)
+			if(program.getPacket().getServiceType() == serviceType && program.getPacket().getServiceSubtype() == serviceSubtype)
+				return program;
+		return null;
+	}
+
+	/// <summary>Decodes the parameters of a wrapped telemetry packet.</summary>
+	/// <param name="view">The view wrapping the packet.</param>
+	/// <param name="record">The record receiving the values, reused.</param>
+	/// <returns><c>true</c> if decoded; <c>false</c> if the packet is not defined or too short.</returns>
+	public boolean Decode(TelemetryView view, DecodedRecord record) throws ArgumentNullException, ArgumentException, NotSupportedException
+	{
+		if(view == null)
+			throw new ArgumentNullException("view");
+		DecodeProgram program = getProgram(view.getApplicationProcessId(), view.getServiceType(), view.getServiceSubtype());
+		if(program == null)
+		{
+			if(record == null)
+				throw new ArgumentNullException("record");
+			record.Count = 0;
+			return false;
+		}
+		return program.Decode(view.getBuffer(), view.getDataOffset(), view.getDataLength(), record);
+	}
+
+	/// <summary>Decodes the parameters of a telemetry packet.</summary>
+	/// <param name="packet">The packet.</param>
+	/// <param name="record">The record receiving the values, reused.</param>
+	/// <returns><c>true</c> if decoded; <c>false</c> if the packet is not defined or too short.</returns>
+	public boolean Decode(Telemetry packet, DecodedRecord record) throws ArgumentNullException, ArgumentException, NotSupportedException
+	{
+		if(packet == null)
+			throw new ArgumentNullException("packet");
+		DecodeProgram program = getProgram(packet.getApplicationProcessId(), packet.getServiceType(), packet.getServiceSubtype());
+		byte[] data = packet.getData();
+		if(program == null || data == null)
+		{
+			if(record == null)
+				throw new ArgumentNullException("record");
+			record.Count = 0;
+			return false;
+		}
+		return program.Decode(data, 0, packet.getDataLength(), record);
+	}
+
+	/// <summary>Gets the number of parameters, their IDs are 0 to <c>getParameterCount() - 1</c>.</summary>
+	public int getParameterCount() {
+		return parameterCount;
+	}
+
+	/// <summary>Gets the ID of a parameter.</summary>
+	/// <param name="name">The name of the parameter.</param>
+	/// <returns>The parameter ID, or -1 if no packet contains the parameter.</returns>
+	public int getParameterId(String name)
+	{
+		Integer id = parameterIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/// <summary>Gets the name of a parameter.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	public String getParameterName(int parameterId) {
+		return parameterNames[parameterId];
+	}
+
+	/// <summary>Gets a value indicating whether a parameter has <c>double</c> values rather than <c>long</c>.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	public boolean isReal(int parameterId) {
+		return parameterReals[parameterId];
+	}
+}
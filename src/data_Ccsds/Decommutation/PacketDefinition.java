@@ -0,0 +1,75 @@
+package data_Ccsds.Decommutation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ApidMap;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// <summary>Declares the layout of the Source Data of the telemetry packets of an APID, service type and subtype.</summary>
+/// <remarks>The parameters are listed in the order they are decoded, see <see cref="DecodeProgram"/>.</remarks>
+public class PacketDefinition
+{
+	private final String name;
+	private final int applicationProcessId;
+	private final int serviceType;
+	private final int serviceSubtype;
+	private final List<ParameterDefinition> parameters = new ArrayList<ParameterDefinition>();
+
+	/// <summary>Initializes a new instance of the <see cref="PacketDefinition"/> class.</summary>
+	/// <param name="name">The name of the packet, can be <c>null</c>.</param>
+	/// <param name="applicationProcessId">The Application Process ID.</param>
+	/// <param name="serviceType">The service type.</param>
+	/// <param name="serviceSubtype">The service subtype.</param>
+	public PacketDefinition(String name, int applicationProcessId, int serviceType, int serviceSubtype) throws ArgumentOutOfRangeException
+	{
+		if(applicationProcessId < 0 || applicationProcessId >= ApidMap.Capacity)
+			throw new ArgumentOutOfRangeException("applicationProcessId : " + applicationProcessId);
+		if(serviceType < 0 || serviceType > 0xFF)
+			throw new ArgumentOutOfRangeException("serviceType : " + serviceType);
+		if(serviceSubtype < 0 || serviceSubtype > 0xFF)
+			throw new ArgumentOutOfRangeException("serviceSubtype : " + serviceSubtype);
+		this.name = name;
+		this.applicationProcessId = applicationProcessId;
+		this.serviceType = serviceType;
+		this.serviceSubtype = serviceSubtype;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getApplicationProcessId() {
+		return applicationProcessId;
+	}
+
+	public int getServiceType() {
+		return serviceType;
+	}
+
+	public int getServiceSubtype() {
+		return serviceSubtype;
+	}
+
+	/// <summary>Gets the parameters, in decoding order.</summary>
+	public List<ParameterDefinition> getParameters() {
+		return Collections.unmodifiableList(parameters);
+	}
+
+	/// <summary>Appends a parameter to the packet.</summary>
+	/// <param name="parameter">The parameter.</param>
+	public void Add(ParameterDefinition parameter) throws ArgumentNullException
+	{
+		if(parameter == null)
+			throw new ArgumentNullException("parameter");
+		parameters.add(parameter);
+	}
+
+	/// <summary>Returns a <see cref="System.String"/> that represents the current <see cref="PacketDefinition"/>.</summary>
+	public String ToString()
+	{
+		return (name == null ? "" : name + " ") + "(APID=" + applicationProcessId + ", TM(" + serviceType + "," + serviceSubtype + "))";
+	}
+}
@@ -0,0 +1,50 @@
+package data_Ccsds.Decommutation;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.ParameterCode.ParameterCode;
+
+/// <summary>Declares a parameter of a <see cref="PacketDefinition"/>: its name, encoding and position.</summary>
+public class ParameterDefinition
+{
+	/// <summary>Bit offset of a parameter that directly follows the previous one.</summary>
+	public static final int Sequential = -1;
+
+	private final String name;
+	private final ParameterCode parameterCode;
+	private final int bitOffset;
+
+	/// <summary>Initializes a new instance of the <see cref="ParameterDefinition"/> class.</summary>
+	/// <param name="name">The name of the parameter, or <c>null</c> for a spare field that is skipped.</param>
+	/// <param name="parameterCode">The encoding of the parameter.</param>
+	/// <param name="bitOffset">The index in bits of the parameter from the start of the Source Data, or <see cref="Sequential"/>.</param>
+	public ParameterDefinition(String name, ParameterCode parameterCode, int bitOffset) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(parameterCode == null)
+			throw new ArgumentNullException("parameterCode");
+		if(bitOffset < Sequential)
+			throw new ArgumentOutOfRangeException("bitOffset : " + bitOffset);
+		this.name = name;
+		this.parameterCode = parameterCode;
+		this.bitOffset = bitOffset;
+	}
+
+	/// <summary>Gets the name of the parameter, <c>null</c> for a spare field.</summary>
+	public String getName() {
+		return name;
+	}
+
+	/// <summary>Gets a value indicating whether the field is a spare, skipped by the decoding.</summary>
+	public boolean isSpare() {
+		return name == null;
+	}
+
+	public ParameterCode getParameterCode() {
+		return parameterCode;
+	}
+
+	/// <summary>Gets the index in bits of the parameter from the start of the Source Data, or <see cref="Sequential"/>.</summary>
+	public int getBitOffset() {
+		return bitOffset;
+	}
+}
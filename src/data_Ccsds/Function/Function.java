@@ -6,8 +6,9 @@ import data_Ccsds.Packets.ArgumentException;
 import data_Ccsds.Packets.ArgumentOutOfRangeException;
 import data_Ccsds.Packets.NotSupportedException;
 import data_Ccsds.Packets.Telecommand;
+import data_Ccsds.Packets.TelecommandSettings;
 import data_Ccsds.ParameterCode.ParameterCode;
-import data_Ccsds.ParameterCode.ParameterConverter;
+import data_Ccsds.ParameterCode.ParameterCodec;
 
    /// <summary>Function class</summary>
 	public class Function extends data.IDataBlock
@@ -30,6 +31,16 @@ import data_Ccsds.ParameterCode.ParameterConverter;
 			return Parameters;
 		}
 
+		/// <summary>The settings defining the Function ID field.</summary>
+		/// <remarks>When <c>null</c>, the effective telecommand settings of the calling thread are used.</remarks>
+		private TelecommandSettings boundSettings;
+		public TelecommandSettings getBoundSettings() {
+			return boundSettings;
+		}
+		public void setBoundSettings(TelecommandSettings settings) {
+			boundSettings = settings;
+		}
+
 		/// <summary>Initializes a new instance of the <see cref="Function"/> class.</summary>
 		/// <param name="apid">The function's Application Process ID.</param>
 		/// <param name="number">The function number.</param>
@@ -47,14 +58,8 @@ import data_Ccsds.ParameterCode.ParameterConverter;
 			int length = 0;
 
 			// Function ID field
-			ParameterCode functionIdPc;
-			if (Telecommand.EffectiveSettings.FunctionIdPcPerApid.containsKey (Apid)) {
-				functionIdPc = Telecommand.EffectiveSettings.FunctionIdPcPerApid.get (Apid);
-			}
-			else {
-				functionIdPc = Telecommand.EffectiveSettings.DefaultFunctionIdPc;
-			}
-			length += ParameterConverter.GetByteSize (functionIdPc);
+			ParameterCode functionIdPc = getFunctionIdPc(effectiveSettings(boundSettings), Apid);
+			length += functionIdPc.getCodec().getByteSize();
 
 			// Parameters field
 			if(Parameters != null)
@@ -74,16 +79,11 @@ import data_Ccsds.ParameterCode.ParameterConverter;
 			int index = start;
 
 			// Get Function ID PC (padded)
-			ParameterCode functionIdPc;
-			if(Telecommand.EffectiveSettings.FunctionIdPcPerApid.containsKey (Apid)) {
-				functionIdPc = Telecommand.EffectiveSettings.FunctionIdPcPerApid.get (Apid);
-			}
-			else {
-				functionIdPc = Telecommand.EffectiveSettings.DefaultFunctionIdPc;
-			}
+			ParameterCode functionIdPc = getFunctionIdPc(effectiveSettings(boundSettings), Apid);
 			// Insert Function ID field
-			ParameterConverter.InsertValue(buffer, index * 8, Number, functionIdPc); // Need bits index, have bytes
-			index += ParameterConverter.GetByteSize (functionIdPc);
+			ParameterCodec functionIdCodec = functionIdPc.getCodec();
+			functionIdCodec.InsertLong(buffer, index * 8, Number); // Need bits index, have bytes
+			index += functionIdCodec.getByteSize();
 
 			// Insert Parameters field
 			if(Parameters != null)
@@ -101,20 +101,31 @@ import data_Ccsds.ParameterCode.ParameterConverter;
 		/// <param name="length">The length in bytes of the data belonging to the function.</param>
 		/// <param name="apid">The function's Application Process ID.</param>
 		/// <returns>The read <see cref="Function"/>.</returns>
+		/// <exception cref="IllegalStateException">No telecommand settings have been set for the current thread.</exception>
 		public static Function FromBuffer(byte[] buffer, int start, int length, int apid) throws ArgumentNullException, ArgumentException, NotSupportedException
 		{
+			return FromBuffer(buffer, start, length, apid, effectiveSettings(null));
+		}
+
+		/// <summary>Reads a <see cref="Function"/> from a buffer using the specified <see cref="TelecommandSettings"/>.</summary>
+		/// <param name="buffer">The buffer containing the <see cref="Function"/>.</param>
+		/// <param name="start">The index in bytes of the start of the <see cref="Function"/> in the buffer.</param>
+		/// <param name="length">The length in bytes of the data belonging to the function.</param>
+		/// <param name="apid">The function's Application Process ID.</param>
+		/// <param name="settings">The <see cref="TelecommandSettings"/> defining the Function ID field.</param>
+		/// <returns>The read <see cref="Function"/>, bound to <paramref name="settings"/>.</returns>
+		public static Function FromBuffer(byte[] buffer, int start, int length, int apid, TelecommandSettings settings) throws ArgumentNullException, ArgumentException, NotSupportedException
+		{
+			if(settings == null)
+				throw new ArgumentNullException("settings");
+
 			// Get Function ID PC (padded)
-			ParameterCode functionIdPc;
-			if(Telecommand.EffectiveSettings.FunctionIdPcPerApid.containsKey(apid)) {
-				functionIdPc = Telecommand.EffectiveSettings.FunctionIdPcPerApid.get (apid);
-			}
-			else {
-				functionIdPc = Telecommand.EffectiveSettings.DefaultFunctionIdPc;
-			}
-			int functionIdLength = ParameterConverter.GetByteSize (functionIdPc);
+			ParameterCode functionIdPc = getFunctionIdPc(settings, apid);
+			ParameterCodec functionIdCodec = functionIdPc.getCodec();
+			int functionIdLength = functionIdCodec.getByteSize();
 
 			// Extract number
-			long number = (long) ParameterConverter.ExtractValue (buffer, functionIdPc, start * 8); // Need bits index, have bytes
+			long number = functionIdCodec.ExtractLong(buffer, start * 8); // Need bits index, have bytes
 
 			// Extract parameters
 			int parametersLength = length - functionIdLength;
@@ -125,6 +136,24 @@ import data_Ccsds.ParameterCode.ParameterConverter;
 				System.arraycopy(buffer, start + functionIdLength, parameters, 0, parameters.length);
 			}
 
-			return new Function(apid, number, parameters);
+			Function function = new Function(apid, number, parameters);
+			function.boundSettings = settings;
+			return function;
+		}
+
+		/// <summary>Gets the given settings, or else the effective telecommand settings of the calling thread.</summary>
+		private static TelecommandSettings effectiveSettings(TelecommandSettings settings)
+		{
+			if(settings == null)
+				settings = Telecommand.resolveEffectiveSettings();
+			if(settings == null)
+				throw new IllegalStateException("No telecommand settings have been set using either Telecommand.GlobalSettings or Telecommand.Settings.");
+			return settings;
+		}
+
+		/// <summary>Gets the Function ID parameter code of an APID.</summary>
+		private static ParameterCode getFunctionIdPc(TelecommandSettings settings, int apid)
+		{
+			return settings.FunctionIdPcPerApid.get(apid, settings.DefaultFunctionIdPc);
 		}
 	}
@@ -0,0 +1,115 @@
+package data_Ccsds.Housekeeping;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// <summary>Columnar store of decommutated housekeeping values, one <see cref="ParameterSeries"/> per parameter.</summary>
+/// <remarks>
+/// Parameters are identified by dense IDs (0 to a few thousands); each has its own column file in the
+/// store directory, opened when the store is. The values are appended by the decommutation path, e.g.
+/// from <see cref="data_Ccsds.ParameterCode.ParameterConverter.ExtractDouble"/>, with their on-board time
+/// in <see cref="data_Ccsds.Packets.TimeSpan"/> ticks, and queried per parameter.
+/// </remarks>
+public class HousekeepingStore
+{
+	/// <summary>Largest parameter ID plus one.</summary>
+	public static final int MaxParameters = 1 << 16;
+
+	private static final String FilePrefix = "parameter-";
+	private static final String FileExtension = ".hk";
+
+	private final File directory;
+	private volatile ParameterSeries[] series = new ParameterSeries[0];
+
+	/// <summary>Opens a store, creating its directory if needed.</summary>
+	/// <param name="directory">The directory of the column files.</param>
+	public HousekeepingStore(File directory) throws ArgumentNullException, IOException
+	{
+		if(directory == null)
+			throw new ArgumentNullException("directory");
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("The store directory " + directory + " could not be created.");
+		this.directory = directory;
+
+		File[] files = directory.listFiles();
+		for(int i = 0 ; files != null && i < files.length ; i++)
+		{
+			String name = files[i].getName();
+			if(!name.startsWith(FilePrefix) || !name.endsWith(FileExtension))
+				continue;
+			int parameterId;
+			try
+			{
+				parameterId = Integer.parseInt(name.substring(FilePrefix.length(), name.length() - FileExtension.length()));
+			}
+			catch(NumberFormatException e)
+			{
+				continue;
+			}
+			if(parameterId >= 0 && parameterId < MaxParameters)
+				put(ParameterSeries.Open(files[i], parameterId, false));
+		}
+	}
+
+	private void put(ParameterSeries parameterSeries)
+	{
+		int parameterId = parameterSeries.getParameterId();
+		ParameterSeries[] current = series;
+		if(parameterId >= current.length)
+			current = Arrays.copyOf(current, Math.max(parameterId + 1, current.length * 2));
+		else
+			current = current.clone();
+		current[parameterId] = parameterSeries;
+		series = current;
+	}
+
+	/// <summary>Gets the series of a parameter.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <returns>The series, or <c>null</c> if the parameter has none.</returns>
+	public ParameterSeries getSeries(int parameterId)
+	{
+		ParameterSeries[] current = series;
+		return parameterId >= 0 && parameterId < current.length ? current[parameterId] : null;
+	}
+
+	/// <summary>Gets the series of a parameter, creating it if needed.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <param name="integral">Whether the values are <c>long</c> rather than <c>double</c>.</param>
+	/// <returns>The series.</returns>
+	/// <exception cref="ArgumentException">The series exists with the other value type.</exception>
+	public synchronized ParameterSeries OpenSeries(int parameterId, boolean integral) throws ArgumentOutOfRangeException, ArgumentException, IOException
+	{
+		if(parameterId < 0 || parameterId >= MaxParameters)
+			throw new ArgumentOutOfRangeException("parameterId : " + parameterId);
+		ParameterSeries parameterSeries = getSeries(parameterId);
+		if(parameterSeries == null)
+		{
+			parameterSeries = ParameterSeries.Open(new File(directory, String.format("%s%05d%s", FilePrefix, parameterId, FileExtension)), parameterId, integral);
+			put(parameterSeries);
+		}
+		if(parameterSeries.isIntegral() != integral)
+			throw new ArgumentException("The parameter " + parameterId + " has " + (integral ? "double" : "long") + " values.");
+		return parameterSeries;
+	}
+
+	/// <summary>Writes the values of all the parameters to the disk.</summary>
+	public void Flush() throws IOException
+	{
+		for(ParameterSeries parameterSeries : series)
+			if(parameterSeries != null)
+				parameterSeries.Flush();
+	}
+
+	/// <summary>Writes the values of all the parameters to the disk and closes the files.</summary>
+	public synchronized void Close() throws IOException
+	{
+		for(ParameterSeries parameterSeries : series)
+			if(parameterSeries != null)
+				parameterSeries.Close();
+	}
+}
@@ -0,0 +1,26 @@
+package data_Ccsds.Housekeeping;
+
+import data_Ccsds.Function.MonitoringCheck;
+
+/// <summary>Copy of a slot of a <see cref="LatestValueTable"/>, reused by a display thread across reads.</summary>
+public class LatestValue
+{
+	/// <summary>The bits of the value: a <c>long</c>, or the raw bits of a <c>double</c>.</summary>
+	public long Bits;
+	/// <summary>The receive time of the value.</summary>
+	public long ReceiveTime;
+	/// <summary>The result of the monitoring check of the value.</summary>
+	public MonitoringCheck Check;
+	/// <summary>The number of updates of the slot, to tell whether the value changed since the last read.</summary>
+	public long Version;
+
+	/// <summary>Gets the value of a parameter with <c>double</c> values.</summary>
+	public double getDouble() {
+		return Double.longBitsToDouble(Bits);
+	}
+
+	/// <summary>Gets the value of a parameter with <c>long</c> values.</summary>
+	public long getLong() {
+		return Bits;
+	}
+}
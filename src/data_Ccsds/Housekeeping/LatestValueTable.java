@@ -0,0 +1,149 @@
+package data_Ccsds.Housekeeping;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Function.MonitoringCheck;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// <summary>Current value of every telemetry parameter, for the operator displays.</summary>
+/// <remarks>
+/// One slot per dense parameter ID holds the value, its receive time and its
+/// <see cref="MonitoringCheck"/> result, in a primitive atomic array. Each slot is a sequence lock: the
+/// writer makes the sequence odd, writes the fields with ordered stores and makes it even again;
+/// a reader copies the fields between two reads of the sequence and retries if it changed. Writers
+/// never wait nor allocate, readers never block the writers and take no lock.
+///
+/// A parameter must be updated by one thread at a time (e.g. the decommutation thread of its APID);
+/// different parameters can be updated concurrently. Any number of threads can read.
+/// </remarks>
+public class LatestValueTable
+{
+	// Words of a slot
+	private static final int SequenceIndex = 0;
+	private static final int BitsIndex = 1;
+	private static final int ReceiveTimeIndex = 2;
+	private static final int CheckIndex = 3;
+	private static final int Stride = 4;
+
+	/// <summary>Read attempts spun before yielding to a preempted writer.</summary>
+	private static final int SpinCount = 64;
+
+	private static final MonitoringCheck[] Checks = MonitoringCheck.values();
+
+	private final AtomicLongArray slots;
+	private final int capacity;
+
+	/// <summary>Initializes a new instance of the <see cref="LatestValueTable"/> class.</summary>
+	/// <param name="capacity">The number of parameters, identified by 0 to <c>capacity - 1</c>.</param>
+	public LatestValueTable(int capacity) throws ArgumentOutOfRangeException
+	{
+		if(capacity <= 0 || capacity > Integer.MAX_VALUE / Stride)
+			throw new ArgumentOutOfRangeException("capacity : " + capacity);
+		this.capacity = capacity;
+		this.slots = new AtomicLongArray(capacity * Stride);
+	}
+
+	/// <summary>Gets the number of parameters.</summary>
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/// <summary>Updates the value of a parameter with <c>double</c> values.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <param name="value">The value.</param>
+	/// <param name="receiveTime">The receive time.</param>
+	/// <param name="check">The result of the monitoring check.</param>
+	public void Update(int parameterId, double value, long receiveTime, MonitoringCheck check) throws ArgumentOutOfRangeException, ArgumentNullException
+	{
+		update(parameterId, Double.doubleToRawLongBits(value), receiveTime, check);
+	}
+
+	/// <summary>Updates the value of a parameter with <c>long</c> values.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <param name="value">The value.</param>
+	/// <param name="receiveTime">The receive time.</param>
+	/// <param name="check">The result of the monitoring check.</param>
+	public void Update(int parameterId, long value, long receiveTime, MonitoringCheck check) throws ArgumentOutOfRangeException, ArgumentNullException
+	{
+		update(parameterId, value, receiveTime, check);
+	}
+
+	private void update(int parameterId, long bits, long receiveTime, MonitoringCheck check) throws ArgumentOutOfRangeException, ArgumentNullException
+	{
+		if(check == null)
+			throw new ArgumentNullException("check");
+		int slot = getSlot(parameterId);
+		long sequence = slots.get(slot + SequenceIndex);
+
+		// Odd while the fields are written: the volatile store orders it before them
+		slots.set(slot + SequenceIndex, sequence + 1);
+		slots.lazySet(slot + BitsIndex, bits);
+		slots.lazySet(slot + ReceiveTimeIndex, receiveTime);
+		slots.lazySet(slot + CheckIndex, check.ordinal());
+		slots.lazySet(slot + SequenceIndex, sequence + 2);
+	}
+
+	/// <summary>Reads the value of a parameter.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <param name="value">The copy of the slot, reused.</param>
+	/// <returns><c>true</c> if read; <c>false</c> if the parameter was never updated.</returns>
+	public boolean Read(int parameterId, LatestValue value) throws ArgumentOutOfRangeException, ArgumentNullException
+	{
+		if(value == null)
+			throw new ArgumentNullException("value");
+		int slot = getSlot(parameterId);
+		for(int attempt = 1 ; ; attempt++)
+		{
+			long sequence = slots.get(slot + SequenceIndex);
+			if((sequence & 1) == 0)
+			{
+				long bits = slots.get(slot + BitsIndex);
+				long receiveTime = slots.get(slot + ReceiveTimeIndex);
+				long check = slots.get(slot + CheckIndex);
+				if(slots.get(slot + SequenceIndex) == sequence)
+				{
+					if(sequence == 0)
+						return false;
+					value.Bits = bits;
+					value.ReceiveTime = receiveTime;
+					value.Check = Checks[(int)check];
+					value.Version = sequence >>> 1;
+					return true;
+				}
+			}
+			if(attempt % SpinCount == 0)
+				Thread.yield();
+		}
+	}
+
+	/// <summary>Gets the value of a parameter with <c>double</c> values, without its time nor check.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <returns>The value, 0 if the parameter was never updated.</returns>
+	public double getDouble(int parameterId) throws ArgumentOutOfRangeException
+	{
+		return Double.longBitsToDouble(slots.get(getSlot(parameterId) + BitsIndex));
+	}
+
+	/// <summary>Gets the value of a parameter with <c>long</c> values, without its time nor check.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <returns>The value, 0 if the parameter was never updated.</returns>
+	public long getLong(int parameterId) throws ArgumentOutOfRangeException
+	{
+		return slots.get(getSlot(parameterId) + BitsIndex);
+	}
+
+	/// <summary>Gets the number of updates of a parameter, e.g. to refresh a display only on change.</summary>
+	/// <param name="parameterId">The parameter ID.</param>
+	public long getVersion(int parameterId) throws ArgumentOutOfRangeException
+	{
+		return slots.get(getSlot(parameterId) + SequenceIndex) >>> 1;
+	}
+
+	private int getSlot(int parameterId) throws ArgumentOutOfRangeException
+	{
+		if(parameterId < 0 || parameterId >= capacity)
+			throw new ArgumentOutOfRangeException("parameterId : " + parameterId);
+		return parameterId * Stride;
+	}
+}
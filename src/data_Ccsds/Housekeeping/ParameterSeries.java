@@ -0,0 +1,467 @@
+package data_Ccsds.Housekeeping;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+
+/// <summary>Time series of the values of one housekeeping parameter, in a memory-mapped column file.</summary>
+/// <remarks>
+/// Points are appended in time order to an open chunk: a time column and a value column, primitive
+/// <c>long[]</c> arrays holding <c>long</c> values or the bits of <c>double</c> values. A full chunk of
+/// <see cref="ChunkPoints"/> points is compressed by <see cref="SeriesChunkCodec"/> (delta-of-delta times,
+/// XOR values) and written to the file, with a summary: its time range, point count, minimum, maximum
+/// and sum. The summaries are kept in memory, so that a downsampled query over months reads the
+/// summaries of the chunks lying in a single bucket and only decompresses the chunks at bucket edges.
+///
+/// The file is a 64-byte header followed by the chunks, each a 48-byte header and the compressed data;
+/// it grows and is mapped in regions of <see cref="RegionLength"/> bytes. The point count of a chunk is
+/// written last, so a chunk cut short by a crash is ignored when the file is opened again; the points
+/// of the open chunk are written by <see cref="Flush"/> and <see cref="Close"/>.
+/// The methods are synchronized: one decommutation thread appends while plots query.
+/// </remarks>
+public class ParameterSeries
+{
+	/// <summary>Number of points of a full chunk.</summary>
+	public static final int ChunkPoints = 4096;
+
+	/// <summary>Length of the mapped regions, by which the file grows.</summary>
+	static final int RegionLength = 1 << 26;
+
+	/// <summary>"CCSDSHKT"</summary>
+	private static final long Magic = 0x434353445348544BL;
+	private static final int Version = 1;
+	private static final int HeaderLength = 64;
+	private static final int ChunkHeaderLength = 48;
+
+	/// <summary>Point count sending the reader to the next region.</summary>
+	private static final int NextRegion = -1;
+
+	// File header fields
+	private static final int MagicOffset = 0;
+	private static final int VersionOffset = 8;
+	private static final int IntegralOffset = 12;
+	private static final int ParameterIdOffset = 16;
+
+	// Chunk header fields
+	private static final int CountOffset = 0;
+	private static final int DataLengthOffset = 4;
+	private static final int FirstTimeOffset = 8;
+	private static final int LastTimeOffset = 16;
+	private static final int MinOffset = 24;
+	private static final int MaxOffset = 32;
+	private static final int SumOffset = 40;
+
+	private final int parameterId;
+	private final boolean integral;
+	private final RandomAccessFile file;
+	private MappedByteBuffer[] regions = new MappedByteBuffer[0];
+	private long tail;
+	private boolean closed;
+
+	// Summaries of the chunks written
+	private int chunkCount;
+	private long[] chunkOffsets = new long[16];
+	private int[] chunkCounts = new int[16];
+	private long[] chunkFirstTimes = new long[16];
+	private long[] chunkLastTimes = new long[16];
+	private double[] chunkMins = new double[16];
+	private double[] chunkMaxs = new double[16];
+	private double[] chunkSums = new double[16];
+	private long writtenPointCount;
+
+	// Open chunk
+	private final long[] times = new long[ChunkPoints];
+	private final long[] values = new long[ChunkPoints];
+	private int count;
+
+	// Encoding and decoding
+	private final byte[] encoded = new byte[SeriesChunkCodec.getMaxLength(ChunkPoints)];
+	private final long[] decodedTimes = new long[ChunkPoints];
+	private final long[] decodedValues = new long[ChunkPoints];
+
+	private ParameterSeries(int parameterId, boolean integral, RandomAccessFile file)
+	{
+		this.parameterId = parameterId;
+		this.integral = integral;
+		this.file = file;
+	}
+
+	/// <summary>Creates or opens the column file of a parameter.</summary>
+	/// <param name="path">The file.</param>
+	/// <param name="parameterId">The parameter ID.</param>
+	/// <param name="integral">Whether the values are <c>long</c> rather than <c>double</c>; an existing file keeps its type.</param>
+	static ParameterSeries Open(File path, int parameterId, boolean integral) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try
+		{
+			ParameterSeries series;
+			if(file.length() == 0)
+			{
+				series = new ParameterSeries(parameterId, integral, file);
+				series.grow(RegionLength);
+				ByteBuffer header = series.regions[0];
+				header.putLong(MagicOffset, Magic);
+				header.putInt(VersionOffset, Version);
+				header.putInt(IntegralOffset, integral ? 1 : 0);
+				header.putInt(ParameterIdOffset, parameterId);
+				series.tail = HeaderLength;
+			}
+			else
+			{
+				if(file.length() % RegionLength != 0)
+					throw new IOException("The file " + path + " is not a parameter series.");
+				series = new ParameterSeries(parameterId, readIntegral(file, path), file);
+				series.grow(file.length());
+				if(series.regions[0].getInt(ParameterIdOffset) != parameterId)
+					throw new IOException("The file " + path + " holds the parameter " + series.regions[0].getInt(ParameterIdOffset) + ".");
+				series.load();
+			}
+			return series;
+		}
+		catch(IOException e)
+		{
+			file.close();
+			throw e;
+		}
+	}
+
+	private static boolean readIntegral(RandomAccessFile file, File path) throws IOException
+	{
+		file.seek(MagicOffset);
+		if(file.readLong() != Magic)
+			throw new IOException("The file " + path + " is not a parameter series.");
+		file.seek(VersionOffset);
+		if(file.readInt() != Version)
+			throw new IOException("The parameter series " + path + " has an unsupported version.");
+		return file.readInt() != 0;
+	}
+
+	/// <summary>Maps the regions of the file up to a length, extending it if needed.</summary>
+	private void grow(long length) throws IOException
+	{
+		if(file.length() < length)
+			file.setLength(length);
+		int regionCount = (int)(length / RegionLength);
+		int mapped = regions.length;
+		regions = Arrays.copyOf(regions, regionCount);
+		for(int i = mapped ; i < regionCount ; i++)
+			regions[i] = file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long)i * RegionLength, RegionLength);
+	}
+
+	/// <summary>Reads the summaries of the chunks, up to the first incomplete one.</summary>
+	private void load()
+	{
+		long offset = HeaderLength;
+		while(offset < (long)regions.length * RegionLength)
+		{
+			ByteBuffer region = regions[(int)(offset / RegionLength)];
+			int position = (int)(offset % RegionLength);
+			int chunkPoints = region.getInt(position + CountOffset);
+			if(chunkPoints == NextRegion)
+			{
+				offset = (offset / RegionLength + 1) * RegionLength;
+				continue;
+			}
+			int dataLength = region.getInt(position + DataLengthOffset);
+			if(chunkPoints <= 0 || chunkPoints > ChunkPoints || dataLength <= 0 || position + getChunkLength(dataLength) > RegionLength)
+				break;
+			addSummary(offset, chunkPoints, region.getLong(position + FirstTimeOffset), region.getLong(position + LastTimeOffset),
+					region.getDouble(position + MinOffset), region.getDouble(position + MaxOffset), region.getDouble(position + SumOffset));
+			offset += getChunkLength(dataLength);
+		}
+		tail = offset;
+		if(offset + 4 <= (long)regions.length * RegionLength)
+			regions[(int)(offset / RegionLength)].putInt((int)(offset % RegionLength), 0);
+	}
+
+	private static int getChunkLength(int dataLength)
+	{
+		return (ChunkHeaderLength + dataLength + 7) & ~7;
+	}
+
+	private void addSummary(long offset, int points, long firstTime, long lastTime, double min, double max, double sum)
+	{
+		if(chunkCount == chunkOffsets.length)
+		{
+			int capacity = chunkCount * 2;
+			chunkOffsets = Arrays.copyOf(chunkOffsets, capacity);
+			chunkCounts = Arrays.copyOf(chunkCounts, capacity);
+			chunkFirstTimes = Arrays.copyOf(chunkFirstTimes, capacity);
+			chunkLastTimes = Arrays.copyOf(chunkLastTimes, capacity);
+			chunkMins = Arrays.copyOf(chunkMins, capacity);
+			chunkMaxs = Arrays.copyOf(chunkMaxs, capacity);
+			chunkSums = Arrays.copyOf(chunkSums, capacity);
+		}
+		chunkOffsets[chunkCount] = offset;
+		chunkCounts[chunkCount] = points;
+		chunkFirstTimes[chunkCount] = firstTime;
+		chunkLastTimes[chunkCount] = lastTime;
+		chunkMins[chunkCount] = min;
+		chunkMaxs[chunkCount] = max;
+		chunkSums[chunkCount] = sum;
+		chunkCount++;
+		writtenPointCount += points;
+	}
+
+	/// <summary>Gets the parameter ID.</summary>
+	public int getParameterId() {
+		return parameterId;
+	}
+
+	/// <summary>Gets a value indicating whether the values are <c>long</c> rather than <c>double</c>.</summary>
+	public boolean isIntegral() {
+		return integral;
+	}
+
+	/// <summary>Gets the number of points.</summary>
+	public synchronized long getPointCount() {
+		return writtenPointCount + count;
+	}
+
+	/// <summary>Gets the time of the last point, <c>Long.MIN_VALUE</c> if none.</summary>
+	public synchronized long getLastTime() {
+		if(count > 0)
+			return times[count - 1];
+		return chunkCount > 0 ? chunkLastTimes[chunkCount - 1] : Long.MIN_VALUE;
+	}
+
+	private double toDouble(long value)
+	{
+		return integral ? (double)value : Double.longBitsToDouble(value);
+	}
+
+	/// <summary>Appends a point of a parameter with <c>double</c> values.</summary>
+	/// <param name="time">The time, not earlier than the last point.</param>
+	/// <param name="value">The value.</param>
+	public synchronized void Append(long time, double value) throws ArgumentException, ArgumentOutOfRangeException, IOException
+	{
+		if(integral)
+			throw new ArgumentException("The parameter " + parameterId + " has long values.");
+		append(time, Double.doubleToRawLongBits(value));
+	}
+
+	/// <summary>Appends a point of a parameter with <c>long</c> values.</summary>
+	/// <param name="time">The time, not earlier than the last point.</param>
+	/// <param name="value">The value.</param>
+	public synchronized void Append(long time, long value) throws ArgumentException, ArgumentOutOfRangeException, IOException
+	{
+		if(!integral)
+			throw new ArgumentException("The parameter " + parameterId + " has double values.");
+		append(time, value);
+	}
+
+	private void append(long time, long value) throws ArgumentOutOfRangeException, IOException
+	{
+		if(closed)
+			throw new IOException("The parameter series " + parameterId + " is closed.");
+		if(time < getLastTime())
+			throw new ArgumentOutOfRangeException("time " + time + " is earlier than the last point of the parameter " + parameterId);
+		times[count] = time;
+		values[count] = value;
+		if(++count == ChunkPoints)
+			writeChunk();
+	}
+
+	/// <summary>Compresses the open chunk into the file.</summary>
+	private void writeChunk() throws IOException
+	{
+		if(count == 0)
+			return;
+
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double sum = 0;
+		for(int i = 0 ; i < count ; i++)
+		{
+			double value = toDouble(values[i]);
+			sum += value;
+			if(value < min)
+				min = value;
+			if(value > max)
+				max = value;
+		}
+		int dataLength = SeriesChunkCodec.Encode(times, values, count, encoded);
+		int chunkLength = getChunkLength(dataLength);
+
+		// A chunk doesn't span two regions
+		long offset = tail;
+		if(offset % RegionLength + chunkLength > RegionLength)
+		{
+			regions[(int)(offset / RegionLength)].putInt((int)(offset % RegionLength), NextRegion);
+			offset = (offset / RegionLength + 1) * RegionLength;
+		}
+		if(offset + chunkLength + 4 > (long)regions.length * RegionLength)
+			grow((long)(regions.length + 1) * RegionLength);
+
+		// Data and summary, then the end of the chunks, then the point count
+		MappedByteBuffer region = regions[(int)(offset / RegionLength)];
+		int position = (int)(offset % RegionLength);
+		ByteBuffer data = region.duplicate();
+		data.position(position + ChunkHeaderLength);
+		data.put(encoded, 0, dataLength);
+		region.putInt(position + DataLengthOffset, dataLength);
+		region.putLong(position + FirstTimeOffset, times[0]);
+		region.putLong(position + LastTimeOffset, times[count - 1]);
+		region.putDouble(position + MinOffset, min);
+		region.putDouble(position + MaxOffset, max);
+		region.putDouble(position + SumOffset, sum);
+		long end = offset + chunkLength;
+		regions[(int)(end / RegionLength)].putInt((int)(end % RegionLength), 0);
+		region.putInt(position + CountOffset, count);
+
+		tail = end;
+		addSummary(offset, count, times[0], times[count - 1], min, max, sum);
+		count = 0;
+	}
+
+	/// <summary>Decompresses a chunk written into <see cref="decodedTimes"/> and <see cref="decodedValues"/>.</summary>
+	private void decodeChunk(int chunk)
+	{
+		long offset = chunkOffsets[chunk];
+		SeriesChunkCodec.Decode(regions[(int)(offset / RegionLength)], (int)(offset % RegionLength) + ChunkHeaderLength,
+				chunkCounts[chunk], decodedTimes, decodedValues);
+	}
+
+	/// <summary>Gets the first chunk which may hold points at or after a time.</summary>
+	private int findChunk(long fromTime)
+	{
+		int low = 0;
+		int high = chunkCount;
+		while(low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if(chunkLastTimes[middle] < fromTime)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/// <summary>Reads the points of a time range, as <c>double</c> values.</summary>
+	/// <param name="fromTime">The start of the range, included.</param>
+	/// <param name="toTime">The end of the range, excluded.</param>
+	/// <param name="pointTimes">The times of the points read.</param>
+	/// <param name="pointValues">The values of the points read, as long as <paramref name="pointTimes"/>.</param>
+	/// <returns>The number of points read, at most the length of the arrays: continue from the last time read to get the next ones.</returns>
+	public synchronized int Read(long fromTime, long toTime, long[] pointTimes, double[] pointValues)
+	{
+		return read(fromTime, toTime, pointTimes, null, pointValues);
+	}
+
+	/// <summary>Reads the points of a time range of a parameter with <c>long</c> values.</summary>
+	/// <param name="fromTime">The start of the range, included.</param>
+	/// <param name="toTime">The end of the range, excluded.</param>
+	/// <param name="pointTimes">The times of the points read.</param>
+	/// <param name="pointValues">The values of the points read, as long as <paramref name="pointTimes"/>.</param>
+	/// <returns>The number of points read, at most the length of the arrays.</returns>
+	public synchronized int ReadLong(long fromTime, long toTime, long[] pointTimes, long[] pointValues) throws ArgumentException
+	{
+		if(!integral)
+			throw new ArgumentException("The parameter " + parameterId + " has double values.");
+		return read(fromTime, toTime, pointTimes, pointValues, null);
+	}
+
+	private int read(long fromTime, long toTime, long[] pointTimes, long[] longValues, double[] doubleValues)
+	{
+		int read = 0;
+		int capacity = pointTimes.length;
+		for(int chunk = findChunk(fromTime) ; chunk < chunkCount && chunkFirstTimes[chunk] < toTime && read < capacity ; chunk++)
+		{
+			decodeChunk(chunk);
+			read = copyPoints(decodedTimes, decodedValues, chunkCounts[chunk], fromTime, toTime, pointTimes, longValues, doubleValues, read);
+		}
+		if(read < capacity)
+			read = copyPoints(times, values, count, fromTime, toTime, pointTimes, longValues, doubleValues, read);
+		return read;
+	}
+
+	private int copyPoints(long[] sourceTimes, long[] sourceValues, int sourceCount, long fromTime, long toTime, long[] pointTimes, long[] longValues, double[] doubleValues, int read)
+	{
+		for(int i = 0 ; i < sourceCount && read < pointTimes.length ; i++)
+		{
+			long time = sourceTimes[i];
+			if(time < fromTime)
+				continue;
+			if(time >= toTime)
+				break;
+			pointTimes[read] = time;
+			if(longValues != null)
+				longValues[read] = sourceValues[i];
+			else
+				doubleValues[read] = toDouble(sourceValues[i]);
+			read++;
+		}
+		return read;
+	}
+
+	/// <summary>Downsamples a time range into equal buckets, with their minimum, maximum and average.</summary>
+	/// <param name="fromTime">The start of the range, included.</param>
+	/// <param name="toTime">The end of the range, excluded.</param>
+	/// <param name="bucketCount">The number of buckets, e.g. the width of the plot in pixels.</param>
+	/// <param name="buckets">The result, reused.</param>
+	/// <remarks>The chunks lying in a single bucket are counted from their summaries, without decompression.</remarks>
+	public synchronized void Downsample(long fromTime, long toTime, int bucketCount, SeriesBuckets buckets) throws ArgumentOutOfRangeException
+	{
+		if(bucketCount <= 0)
+			throw new ArgumentOutOfRangeException("bucketCount : " + bucketCount);
+		if(toTime <= fromTime)
+			throw new ArgumentOutOfRangeException("toTime : " + toTime);
+		long span = toTime - fromTime;
+		long width = span / bucketCount + (span % bucketCount == 0 ? 0 : 1);
+		buckets.reset(fromTime, width, bucketCount);
+
+		for(int chunk = findChunk(fromTime) ; chunk < chunkCount && chunkFirstTimes[chunk] < toTime ; chunk++)
+		{
+			long first = chunkFirstTimes[chunk];
+			long last = chunkLastTimes[chunk];
+			if(first >= fromTime && last < toTime && (first - fromTime) / width == (last - fromTime) / width)
+			{
+				buckets.add((int)((first - fromTime) / width), chunkCounts[chunk], chunkMins[chunk], chunkMaxs[chunk], chunkSums[chunk]);
+				continue;
+			}
+			decodeChunk(chunk);
+			addPoints(decodedTimes, decodedValues, chunkCounts[chunk], fromTime, toTime, buckets);
+		}
+		addPoints(times, values, count, fromTime, toTime, buckets);
+	}
+
+	private void addPoints(long[] sourceTimes, long[] sourceValues, int sourceCount, long fromTime, long toTime, SeriesBuckets buckets)
+	{
+		for(int i = 0 ; i < sourceCount ; i++)
+		{
+			long time = sourceTimes[i];
+			if(time < fromTime)
+				continue;
+			if(time >= toTime)
+				break;
+			buckets.add((int)((time - fromTime) / buckets.BucketWidth), toDouble(sourceValues[i]));
+		}
+	}
+
+	/// <summary>Writes the points appended to the disk, the open chunk included.</summary>
+	public synchronized void Flush() throws IOException
+	{
+		writeChunk();
+		for(MappedByteBuffer region : regions)
+			region.force();
+	}
+
+	/// <summary>Writes the points appended to the disk and closes the file.</summary>
+	public synchronized void Close() throws IOException
+	{
+		if(closed)
+			return;
+		Flush();
+		closed = true;
+		file.close();
+	}
+}
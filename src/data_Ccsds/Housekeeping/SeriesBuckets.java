@@ -0,0 +1,73 @@
+package data_Ccsds.Housekeeping;
+
+import java.util.Arrays;
+
+/// <summary>Values of a parameter downsampled into equal time buckets, e.g. the points of a plot.</summary>
+/// <remarks>Filled by <see cref="ParameterSeries.Downsample"/>; can be reused for the next query.</remarks>
+public class SeriesBuckets
+{
+	/// <summary>Start of the first bucket.</summary>
+	public long FromTime;
+	/// <summary>Width of a bucket, bucket <c>i</c> starts at <c>FromTime + i * BucketWidth</c>.</summary>
+	public long BucketWidth;
+	/// <summary>Number of buckets.</summary>
+	public int BucketCount;
+
+	/// <summary>Number of points of each bucket.</summary>
+	public long[] Counts = new long[0];
+	/// <summary>Smallest value of each bucket.</summary>
+	public double[] Min = new double[0];
+	/// <summary>Largest value of each bucket.</summary>
+	public double[] Max = new double[0];
+	/// <summary>Sum of the values of each bucket.</summary>
+	public double[] Sum = new double[0];
+
+	/// <summary>Gets the average value of a bucket.</summary>
+	/// <param name="bucket">The bucket.</param>
+	/// <returns>The average, <c>NaN</c> for an empty bucket.</returns>
+	public double getAverage(int bucket)
+	{
+		return Counts[bucket] == 0 ? Double.NaN : Sum[bucket] / Counts[bucket];
+	}
+
+	/// <summary>Empties the buckets for a new query.</summary>
+	void reset(long fromTime, long bucketWidth, int bucketCount)
+	{
+		FromTime = fromTime;
+		BucketWidth = bucketWidth;
+		BucketCount = bucketCount;
+		if(Counts.length < bucketCount)
+		{
+			Counts = new long[bucketCount];
+			Min = new double[bucketCount];
+			Max = new double[bucketCount];
+			Sum = new double[bucketCount];
+		}
+		Arrays.fill(Counts, 0, bucketCount, 0);
+		Arrays.fill(Min, 0, bucketCount, Double.POSITIVE_INFINITY);
+		Arrays.fill(Max, 0, bucketCount, Double.NEGATIVE_INFINITY);
+		Arrays.fill(Sum, 0, bucketCount, 0);
+	}
+
+	/// <summary>Adds a point to a bucket.</summary>
+	void add(int bucket, double value)
+	{
+		Counts[bucket]++;
+		Sum[bucket] += value;
+		if(value < Min[bucket])
+			Min[bucket] = value;
+		if(value > Max[bucket])
+			Max[bucket] = value;
+	}
+
+	/// <summary>Adds the summary of a chunk to a bucket.</summary>
+	void add(int bucket, long count, double min, double max, double sum)
+	{
+		Counts[bucket] += count;
+		Sum[bucket] += sum;
+		if(min < Min[bucket])
+			Min[bucket] = min;
+		if(max > Max[bucket])
+			Max[bucket] = max;
+	}
+}
@@ -0,0 +1,241 @@
+package data_Ccsds.Housekeeping;
+
+import java.nio.ByteBuffer;
+
+/// <summary>Compresses the points of a chunk of a <see cref="ParameterSeries"/> (Gorilla encoding).</summary>
+/// <remarks>
+/// Times are stored as the first time, the first delta, then the delta of each delta, in variable-length
+/// buckets; periodic housekeeping gives mostly 0 (1 bit). The buckets are wider than in the Gorilla paper,
+/// as times are in 100 ns ticks and on-board jitter spans thousands of ticks.
+///
+/// Values are 64-bit words (the bits of a <c>double</c>, or a <c>long</c>), stored as the XOR with the
+/// previous word: 1 bit when unchanged, otherwise the meaningful bits, with the window of leading and
+/// trailing zeros reused when it fits.
+///
+/// The bits are packed most significant first. The encoded data is followed by 8 zero bytes so that
+/// the decoder can always read a whole <c>long</c>.
+/// </remarks>
+final class SeriesChunkCodec
+{
+	/// <summary>Largest encoded length of a point: 68 bits of time and 77 bits of value.</summary>
+	static final int MaxPointBits = 68 + 77;
+
+	/// <summary>Zero bytes after the encoded data.</summary>
+	static final int Padding = 8;
+
+	private SeriesChunkCodec()
+	{
+	}
+
+	/// <summary>Gets the largest encoded length of a chunk, padding included.</summary>
+	/// <param name="count">The number of points.</param>
+	static int getMaxLength(int count)
+	{
+		return (count * MaxPointBits + 128 + 7) / 8 + Padding;
+	}
+
+	/// <summary>Encodes points.</summary>
+	/// <param name="times">The times, non-decreasing.</param>
+	/// <param name="values">The values.</param>
+	/// <param name="count">The number of points, at least 1.</param>
+	/// <param name="output">The buffer, of at least <see cref="getMaxLength"/> bytes.</param>
+	/// <returns>The encoded length, padding included.</returns>
+	static int Encode(long[] times, long[] values, int count, byte[] output)
+	{
+		Writer writer = new Writer(output);
+
+		writer.write(times[0], 64);
+		writer.write(values[0], 64);
+		long delta = 0;
+		int leading = -1;
+		int trailing = 0;
+		for(int i = 1 ; i < count ; i++)
+		{
+			// Time: delta of delta
+			long newDelta = times[i] - times[i - 1];
+			long dod = newDelta - delta;
+			delta = newDelta;
+			if(dod == 0)
+				writer.write(0, 1);
+			else if(dod >= -63 && dod <= 64)
+				writer.write((0x2L << 7) | ((dod - 1) & 0x7F), 2 + 7);
+			else if(dod >= -2047 && dod <= 2048)
+				writer.write((0x6L << 12) | ((dod - 1) & 0xFFF), 3 + 12);
+			else if(dod >= -524287 && dod <= 524288)
+				writer.write((0xEL << 20) | ((dod - 1) & 0xFFFFF), 4 + 20);
+			else if(dod >= Integer.MIN_VALUE + 1 && dod <= 1L + Integer.MAX_VALUE)
+				writer.write((0x1EL << 32) | ((dod - 1) & 0xFFFFFFFFL), 5 + 32);
+			else
+			{
+				writer.write(0x1F, 5);
+				writer.write(dod, 64);
+			}
+
+			// Value: XOR with the previous one
+			long xor = values[i] ^ values[i - 1];
+			if(xor == 0)
+			{
+				writer.write(0, 1);
+				continue;
+			}
+			int newLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int newTrailing = Long.numberOfTrailingZeros(xor);
+			if(leading >= 0 && newLeading >= leading && newTrailing >= trailing)
+			{
+				writer.write(0x2, 2);
+				writer.write(xor >>> trailing, 64 - leading - trailing);
+			}
+			else
+			{
+				leading = newLeading;
+				trailing = newTrailing;
+				int meaningful = 64 - leading - trailing;
+				writer.write((0x3L << 11) | (leading << 6) | (meaningful - 1), 2 + 5 + 6);
+				writer.write(xor >>> trailing, meaningful);
+			}
+		}
+		return writer.finish();
+	}
+
+	/// <summary>Decodes points.</summary>
+	/// <param name="input">The buffer containing the encoded chunk.</param>
+	/// <param name="start">The index in bytes of the chunk in the buffer.</param>
+	/// <param name="count">The number of points.</param>
+	/// <param name="times">The decoded times, at least <paramref name="count"/> long.</param>
+	/// <param name="values">The decoded values, at least <paramref name="count"/> long.</param>
+	static void Decode(ByteBuffer input, int start, int count, long[] times, long[] values)
+	{
+		Reader reader = new Reader(input, start);
+
+		long time = reader.read(64);
+		long value = reader.read(64);
+		times[0] = time;
+		values[0] = value;
+		long delta = 0;
+		int leading = 0;
+		int meaningful = 0;
+		for(int i = 1 ; i < count ; i++)
+		{
+			long dod;
+			if(reader.read(1) == 0)
+				dod = 0;
+			else if(reader.read(1) == 0)
+				dod = signExtend(reader.read(7), 7) + 1;
+			else if(reader.read(1) == 0)
+				dod = signExtend(reader.read(12), 12) + 1;
+			else if(reader.read(1) == 0)
+				dod = signExtend(reader.read(20), 20) + 1;
+			else if(reader.read(1) == 0)
+				dod = signExtend(reader.read(32), 32) + 1;
+			else
+				dod = reader.read(64);
+			delta += dod;
+			time += delta;
+			times[i] = time;
+
+			if(reader.read(1) != 0)
+			{
+				if(reader.read(1) != 0)
+				{
+					leading = (int)reader.read(5);
+					meaningful = (int)reader.read(6) + 1;
+				}
+				value ^= reader.read(meaningful) << (64 - leading - meaningful);
+			}
+			values[i] = value;
+		}
+	}
+
+	private static long signExtend(long value, int bits)
+	{
+		return (value << (64 - bits)) >> (64 - bits);
+	}
+
+	/// <summary>Writes bits into a byte array, through a 64-bit accumulator.</summary>
+	private static final class Writer
+	{
+		private final byte[] output;
+		private int index;
+		private long accumulator;
+		private int bits;
+
+		Writer(byte[] output)
+		{
+			this.output = output;
+		}
+
+		/// <summary>Writes the low <paramref name="count"/> bits of a value, 1 to 64.</summary>
+		void write(long value, int count)
+		{
+			if(count == 64)
+			{
+				write(value >>> 32, 32);
+				write(value, 32);
+				return;
+			}
+			value &= (1L << count) - 1;
+			int free = 64 - bits;
+			if(count < free)
+			{
+				accumulator = (accumulator << count) | value;
+				bits += count;
+				return;
+			}
+			int rest = count - free;
+			accumulator = (free == 64 ? 0 : accumulator << free) | (value >>> rest);
+			flush();
+			accumulator = value & ((1L << rest) - 1);
+			bits = rest;
+		}
+
+		private void flush()
+		{
+			long word = accumulator;
+			for(int shift = 56 ; shift >= 0 ; shift -= 8)
+				output[index++] = (byte)(word >>> shift);
+		}
+
+		/// <summary>Writes the last bits and the padding.</summary>
+		int finish()
+		{
+			if(bits > 0)
+			{
+				accumulator <<= 64 - bits;
+				int bytes = (bits + 7) / 8;
+				for(int i = 0 ; i < bytes ; i++)
+					output[index++] = (byte)(accumulator >>> (56 - i * 8));
+			}
+			for(int i = 0 ; i < Padding ; i++)
+				output[index++] = 0;
+			return index;
+		}
+	}
+
+	/// <summary>Reads bits from a buffer, a whole <c>long</c> at a time.</summary>
+	private static final class Reader
+	{
+		private final ByteBuffer input;
+		private final int start;
+		private long position;
+
+		Reader(ByteBuffer input, int start)
+		{
+			this.input = input;
+			this.start = start;
+		}
+
+		/// <summary>Reads <paramref name="count"/> bits, 1 to 64.</summary>
+		long read(int count)
+		{
+			if(count > 56)
+			{
+				long high = read(count - 32);
+				return (high << 32) | read(32);
+			}
+			long word = input.getLong(start + (int)(position >>> 3));
+			long value = (word << (position & 7)) >>> (64 - count);
+			position += count;
+			return value;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package data_Ccsds.Packets;
+
+/// <summary>Map from Application Process IDs to values, backed by a dense array.</summary>
+/// <remarks>
+/// APIDs are 11 bits, so every possible key has its own slot: a lookup is a single array load,
+/// without boxing nor hashing. A key can be mapped to <c>null</c>, which is distinct from the
+/// key being absent (see <see cref="get(int, Object)"/>).
+/// Not thread-safe while being modified; a frozen map can be read from any thread.
+/// </remarks>
+/// <typeparam name="V">The type of the values.</typeparam>
+public class ApidMap<V>
+{
+	/// <summary>Number of possible APIDs, the valid keys are 0 to <c>Capacity - 1</c>.</summary>
+	public static final int Capacity = 0x800;
+
+	/// <summary>Stored in place of <c>null</c> values, to tell them apart from absent keys.</summary>
+	private static final Object NullValue = new Object();
+
+	private final Object[] values = new Object[Capacity];
+	private int size;
+	private volatile boolean frozen;
+
+	/// <summary>Gets the value of an APID.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <returns>The value; or <c>null</c> if the APID is absent or mapped to <c>null</c>.</returns>
+	@SuppressWarnings("unchecked")
+	public V get(int apid)
+	{
+		Object value = values[apid];
+		return value == NullValue ? null : (V)value;
+	}
+
+	/// <summary>Gets the value of an APID, or a default value if the APID is absent.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="defaultValue">The value returned if the APID is absent.</param>
+	/// <returns>The value mapped to the APID, possibly <c>null</c>; or <paramref name="defaultValue"/> if the APID is absent.</returns>
+	@SuppressWarnings("unchecked")
+	public V get(int apid, V defaultValue)
+	{
+		Object value = values[apid];
+		if(value == null)
+			return defaultValue;
+		return value == NullValue ? null : (V)value;
+	}
+
+	/// <summary>Gets a value indicating whether an APID is present in the map.</summary>
+	public boolean containsKey(int apid)
+	{
+		return values[apid] != null;
+	}
+
+	/// <summary>Maps an APID to a value.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="value">The value, can be <c>null</c>.</param>
+	/// <returns>The previous value; or <c>null</c> if the APID was absent.</returns>
+	public V put(int apid, V value)
+	{
+		ensureNotFrozen();
+		V previous = get(apid);
+		if(values[apid] == null)
+			size++;
+		values[apid] = value == null ? NullValue : value;
+		return previous;
+	}
+
+	/// <summary>Removes an APID from the map.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <returns>The removed value; or <c>null</c> if the APID was absent.</returns>
+	public V remove(int apid)
+	{
+		ensureNotFrozen();
+		V previous = get(apid);
+		if(values[apid] != null)
+			size--;
+		values[apid] = null;
+		return previous;
+	}
+
+	/// <summary>Removes all the APIDs from the map.</summary>
+	public void clear()
+	{
+		ensureNotFrozen();
+		for(int apid = 0 ; apid < Capacity ; apid++)
+			values[apid] = null;
+		size = 0;
+	}
+
+	/// <summary>Gets the number of APIDs in the map.</summary>
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/// <summary>Makes the map read-only, the modifying methods then throw <see cref="UnsupportedOperationException"/>.</summary>
+	public void freeze()
+	{
+		frozen = true;
+	}
+
+	public boolean isFrozen()
+	{
+		return frozen;
+	}
+
+	private void ensureNotFrozen()
+	{
+		if(frozen)
+			throw new UnsupportedOperationException("The APID map is frozen.");
+	}
+}
@@ -0,0 +1,245 @@
+package data_Ccsds.Packets;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/// <summary>Checks the continuity of the 14-bit Sequence Counts of each APID.</summary>
+/// <remarks>
+/// Every decoded packet is classified against the last count of its APID: the next count is in
+/// order, a count up to half the range ahead is a gap, a count at most <c>duplicateWindow</c>
+/// behind is a duplicate, and anything else, or a count restarting at 0, is a reset. The counts
+/// received among the <see cref="LateWindow"/> counts behind the last one are remembered, so that a
+/// packet of a gap arriving out of order is classified as late and no longer counted as missing.
+/// The state is dense (one slot per possible APID) in primitive atomic arrays: decoding threads
+/// update it lock-free, with a compare-and-set per packet, and the statistics can be read at any
+/// time for the pass report. Gaps are reported to an optional <see cref="ISequenceGapListener"/>.
+/// </remarks>
+public class ApidSequenceTracker
+{
+	/// <summary>Number of Sequence Count values.</summary>
+	public static final int SequenceCountModulo = 0x4000;
+
+	/// <summary>Default number of counts behind the last one taken as duplicates.</summary>
+	public static final int DefaultDuplicateWindow = 64;
+
+	/// <summary>Number of counts behind the last one whose reception is remembered; older packets of a gap count as duplicates.</summary>
+	public static final int LateWindow = 48;
+
+	/// <summary>Statistics of an APID.</summary>
+	public static final class Statistics
+	{
+		/// <summary>Packets received.</summary>
+		public final long Received;
+		/// <summary>Gaps found.</summary>
+		public final long Gaps;
+		/// <summary>Packets missing in the gaps.</summary>
+		public final long Missing;
+		/// <summary>Duplicate packets.</summary>
+		public final long Duplicates;
+		/// <summary>Packets of a gap received out of order, no longer counted in <see cref="Missing"/>.</summary>
+		public final long Late;
+		/// <summary>Sequence Count resets.</summary>
+		public final long Resets;
+
+		Statistics(long received, long gaps, long missing, long duplicates, long late, long resets)
+		{
+			Received = received;
+			Gaps = gaps;
+			Missing = missing;
+			Duplicates = duplicates;
+			Late = late;
+			Resets = resets;
+		}
+
+		/// <summary>Gets the ratio of missing packets to packets expected.</summary>
+		/// <returns>The loss ratio, 0 if no packet was expected.</returns>
+		public double getLossRatio()
+		{
+			long expected = Received - Duplicates + Missing;
+			return expected == 0 ? 0 : (double)Missing / expected;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("received %d, missing %d in %d gaps, %d duplicates, %d late, %d resets", Received, Missing, Gaps, Duplicates, Late, Resets);
+		}
+	}
+
+	/// <summary>Largest jump ahead taken as a gap.</summary>
+	private static final int MaxGap = SequenceCountModulo / 2;
+
+	// State of an APID: the last count, a flag telling it holds one, and the reception of the counts behind
+	// it, bit ReceivedShift + k - 1 being set when the count k behind was received
+	private static final long Tracked = 1L << 14;
+	private static final int ReceivedShift = 16;
+	private static final long ReceivedMask = -1L << ReceivedShift;
+
+	// Statistics of an APID, padded to a cache line so that APIDs decoded by different threads don't share one
+	private static final int ReceivedIndex = 0;
+	private static final int GapsIndex = 1;
+	private static final int MissingIndex = 2;
+	private static final int DuplicatesIndex = 3;
+	private static final int LateIndex = 4;
+	private static final int ResetsIndex = 5;
+	private static final int Stride = 8;
+
+	private final AtomicLongArray states = new AtomicLongArray(ApidMap.Capacity);
+	private final AtomicLongArray statistics = new AtomicLongArray(ApidMap.Capacity * Stride);
+	private final int duplicateWindow;
+	private final ISequenceGapListener listener;
+
+	/// <summary>Initializes a new instance of the <see cref="ApidSequenceTracker"/> class, without gap listener.</summary>
+	public ApidSequenceTracker()
+	{
+		this.duplicateWindow = DefaultDuplicateWindow;
+		this.listener = null;
+	}
+
+	/// <summary>Initializes a new instance of the <see cref="ApidSequenceTracker"/> class.</summary>
+	/// <param name="duplicateWindow">The number of counts behind the last one taken as duplicates; farther back is a reset.</param>
+	/// <param name="listener">The listener receiving the gaps, can be <c>null</c>.</param>
+	/// <exception cref="ArgumentOutOfRangeException">The duplicate window is negative or not smaller than half the count range.</exception>
+	public ApidSequenceTracker(int duplicateWindow, ISequenceGapListener listener) throws ArgumentOutOfRangeException
+	{
+		if(duplicateWindow < 0 || duplicateWindow >= MaxGap)
+			throw new ArgumentOutOfRangeException("duplicateWindow");
+		this.duplicateWindow = duplicateWindow;
+		this.listener = listener;
+	}
+
+	/// <summary>Classifies the Sequence Count of a packet and updates the statistics of its APID.</summary>
+	/// <param name="packet">The decoded packet.</param>
+	/// <returns>The classification of the Sequence Count.</returns>
+	public SequenceCountStatus track(CcsdsPacket packet)
+	{
+		return track(packet.getApplicationProcessId(), packet.getSequenceCount());
+	}
+
+	/// <summary>Classifies a Sequence Count and updates the statistics of its APID.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="sequenceCount">The Sequence Count.</param>
+	/// <returns>The classification of the Sequence Count.</returns>
+	public SequenceCountStatus track(int apid, int sequenceCount)
+	{
+		apid &= ApidMap.Capacity - 1;
+		sequenceCount &= SequenceCountModulo - 1;
+
+		SequenceCountStatus status;
+		int last;
+		int delta;
+		for(;;)
+		{
+			long state = states.get(apid);
+			last = (int)state & (SequenceCountModulo - 1);
+			delta = (sequenceCount - last) & (SequenceCountModulo - 1);
+			int behind = SequenceCountModulo - delta;
+			long received = state & ReceivedMask;
+			long next;
+
+			if(state == 0)
+			{
+				// The counts before the first one are unknown, older packets are duplicates
+				status = SequenceCountStatus.InOrder;
+				next = ReceivedMask | Tracked | sequenceCount;
+			}
+			else if(delta == 1)
+			{
+				status = SequenceCountStatus.InOrder;
+				next = (received << 1) | (1L << ReceivedShift) | Tracked | sequenceCount;
+			}
+			else if(delta == 0 || (sequenceCount != 0 && behind <= duplicateWindow))
+			{
+				long bit = 1L << (ReceivedShift + behind - 1);
+				if(delta == 0 || behind > LateWindow || (received & bit) != 0)
+				{
+					// A duplicate leaves the state unchanged
+					status = SequenceCountStatus.Duplicate;
+					break;
+				}
+				status = SequenceCountStatus.Late;
+				next = state | bit;
+			}
+			else if(delta <= MaxGap && sequenceCount != 0)
+			{
+				status = SequenceCountStatus.Gap;
+				next = (delta <= LateWindow ? (received << delta) | (1L << (ReceivedShift + delta - 1)) : 0) | Tracked | sequenceCount;
+			}
+			else
+			{
+				status = SequenceCountStatus.Reset;
+				next = ReceivedMask | Tracked | sequenceCount;
+			}
+
+			if(states.compareAndSet(apid, state, next))
+				break;
+		}
+
+		int index = apid * Stride;
+		statistics.incrementAndGet(index + ReceivedIndex);
+		switch(status)
+		{
+		case Gap:
+			statistics.incrementAndGet(index + GapsIndex);
+			statistics.addAndGet(index + MissingIndex, delta - 1);
+			if(listener != null)
+				listener.SequenceGap(apid, (last + 1) & (SequenceCountModulo - 1), delta - 1);
+			break;
+		case Duplicate:
+			statistics.incrementAndGet(index + DuplicatesIndex);
+			break;
+		case Late:
+			statistics.incrementAndGet(index + LateIndex);
+			statistics.decrementAndGet(index + MissingIndex);
+			break;
+		case Reset:
+			statistics.incrementAndGet(index + ResetsIndex);
+			break;
+		default:
+			break;
+		}
+		return status;
+	}
+
+	/// <summary>Gets a value indicating whether packets of an APID were tracked.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	public boolean isTracked(int apid)
+	{
+		return states.get(apid & (ApidMap.Capacity - 1)) != 0;
+	}
+
+	/// <summary>Gets the APIDs of the packets tracked, e.g. for the pass report.</summary>
+	/// <returns>The APIDs, in ascending order.</returns>
+	public int[] getTrackedApids()
+	{
+		int count = 0;
+		for(int apid = 0 ; apid < ApidMap.Capacity ; apid++)
+			if(states.get(apid) != 0)
+				count++;
+		int[] apids = new int[count];
+		count = 0;
+		for(int apid = 0 ; apid < ApidMap.Capacity && count < apids.length ; apid++)
+			if(states.get(apid) != 0)
+				apids[count++] = apid;
+		return apids;
+	}
+
+	/// <summary>Gets the statistics of an APID.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <returns>The statistics; each counter is exact, but they are not read atomically together while packets are tracked.</returns>
+	public Statistics getStatistics(int apid)
+	{
+		int index = (apid & (ApidMap.Capacity - 1)) * Stride;
+		return new Statistics(statistics.get(index + ReceivedIndex), statistics.get(index + GapsIndex),
+				statistics.get(index + MissingIndex), statistics.get(index + DuplicatesIndex), statistics.get(index + LateIndex), statistics.get(index + ResetsIndex));
+	}
+
+	/// <summary>Forgets the last counts and the statistics, e.g. at the start of a pass.</summary>
+	/// <remarks>Must not be called while packets are tracked.</remarks>
+	public void reset()
+	{
+		for(int apid = 0 ; apid < ApidMap.Capacity ; apid++)
+			states.set(apid, 0);
+		for(int i = 0 ; i < statistics.length() ; i++)
+			statistics.set(i, 0);
+	}
+}
@@ -1,6 +1,7 @@
 package data_Ccsds.Packets;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 import data.ByteOrderConverter;
 import data.IDataBlock;
@@ -79,12 +80,13 @@ public abstract class CcsdsPacket extends IDataBlock
 	/// </summary>
 	private SequenceFlagsType SequenceFlags;
 	public int getSequenceFlags() { return SequenceFlags.getCode(); }
+	public SequenceFlagsType getSequenceFlagsType() { return SequenceFlags; }
 	public void setSequenceFlags(SequenceFlagsType value) throws ArgumentOutOfRangeException
 	{
 		if ((value.getCode() & 3) != value.getCode())
 			throw new ArgumentOutOfRangeException("SequenceFlags");
 		else
-			SequenceFlags.setCode(value.getCode());
+			SequenceFlags = value;
 	}
 
 	/// <summary>
@@ -137,7 +139,7 @@ public abstract class CcsdsPacket extends IDataBlock
 	/// <summary>The telecommand/telemetry Application/Source Data field.</summary>
 	private byte[] Data;
 	public byte[] getData() {return Data;}
-	public void setData(byte[] data) {Data = data;}
+	public void setData(byte[] data) {Data = data; DataLength = 0;}
 
 	/// <summary>The length of the Application/Source Data field.</summary>
 	/// <value>The length of the Application/Source Data data.</value>
@@ -216,8 +218,15 @@ public abstract class CcsdsPacket extends IDataBlock
 	/// <returns>(Number of octets in packet data field) - 1</returns>
 	protected int ComputePacketLengthField() throws NotSupportedException
 	{
+		int pdfLength = ComputeDataFieldHeaderLength() + getDataLength();
+
+		// PDF Spare (alignment)
+		int pdfAlignment = PacketDataFieldAlignment(); // alignment in bytes
+		if(pdfAlignment != 0)
+			pdfLength += (pdfAlignment - (pdfLength % pdfAlignment)) % pdfAlignment;
+
 		// C = (Number of octets in packet data field) - 1
-		return (int)((HasPacketErrorControlField() ? 2 : 0) + ComputeDataFieldHeaderLength() + getDataLength() - 1);
+		return (int)((HasPacketErrorControlField() ? 2 : 0) + pdfLength - 1);
 	}
 
 	/// <summary>Calculate the length of the entire CCSDS packet in bytes.</summary>
@@ -233,19 +242,34 @@ public abstract class CcsdsPacket extends IDataBlock
 	/// <returns>The number of bytes written into the buffer.</returns>
 	/// <exception cref="System.ArgumentOutOfRangeException">The buffer is too small to put the data at the specified offset.</exception>
 	public int ToBuffer(byte[] buffer, int start) throws ArgumentNullException, ArgumentException, NotImplementedException, UnsupportedEncodingException, NotSupportedException, ArgumentOutOfRangeException
+	{
+		return ToBuffer(buffer, start, ComputePacketLengthField());
+	}
+
+	/// <summary>Convert the current <see cref="CcsdsPacket"/> instance to bytes into the specified buffer, with a known Packet Length field.</summary>
+	/// <param name="buffer">The buffer in which to write the bytes.</param>
+	/// <param name="start">The index at which the packet must start in the buffer.</param>
+	/// <param name="packetLengthField">The Packet Length field, as computed by <see cref="ComputePacketLengthField"/> (e.g. once for a batch of packets sharing a layout).</param>
+	/// <returns>The number of bytes written into the buffer.</returns>
+	/// <exception cref="System.ArgumentOutOfRangeException">The buffer is too small to put the data at the specified offset.</exception>
+	public int ToBuffer(byte[] buffer, int start, int packetLengthField) throws ArgumentNullException, ArgumentException, NotImplementedException, UnsupportedEncodingException, NotSupportedException, ArgumentOutOfRangeException
 	{
 		int index = start;
 
+		// Header fields from the current values
+		setPacketId();
+		setPacketSequenceControl();
+
 		//Packet ID
-		ByteOrderConverter.CopyValueNetworkOrder(buffer, index, PacketId);
+		ByteOrderConverter.CopyValueNetworkOrder(buffer, index, (short)PacketId);
 		index += 2;
 
 		//Packet Sequence Control
-		ByteOrderConverter.CopyValueNetworkOrder(buffer, start + 2, PacketSequenceControl);
+		ByteOrderConverter.CopyValueNetworkOrder(buffer, index, (short)PacketSequenceControl);
 		index += 2;
 
 		//Packet Length
-		ByteOrderConverter.CopyValueNetworkOrder(buffer, start + 4, ComputePacketLengthField());
+		ByteOrderConverter.CopyValueNetworkOrder(buffer, index, (short)packetLengthField);
 		index += 2;
 
 		// Data Field Header (done by actual packet implementation)
@@ -264,14 +288,16 @@ public abstract class CcsdsPacket extends IDataBlock
 		if(pdfAlignment != 0)
 		{
 			int pdfLength = index - (start + HeaderLength); // Compute current length of PDF
-			index += (pdfAlignment - (pdfLength % pdfAlignment)) % pdfAlignment; // Add missing byte count to align
+			int spareLength = (pdfAlignment - (pdfLength % pdfAlignment)) % pdfAlignment; // Add missing byte count to align
+			Arrays.fill(buffer, index, index + spareLength, (byte)0);
+			index += spareLength;
 		}
 
 		// Checksum
 		if(HasPacketErrorControlField())
 		{
 			int checksum = ComputeChecksum(buffer, start, index - start, checksumType);
-			ByteOrderConverter.CopyValueNetworkOrder(buffer, index, checksum);
+			ByteOrderConverter.CopyValueNetworkOrder(buffer, index, (short)checksum);
 			index += 2;
 		}
 
@@ -309,7 +335,7 @@ public abstract class CcsdsPacket extends IDataBlock
 			throw new ArgumentException("The buffer is too small to contain a packet at specified index.");
 
 		// Packet Length first, needed to compute checksum
-		PacketLength = (int)(ByteOrderConverter.GetInt16(buffer, start + 4) + 1);
+		PacketLength = (ByteOrderConverter.GetInt16(buffer, start + 4) & 0xFFFF) + 1;
 
 		// Buffer big enough to contain full packet?
 		if((start + HeaderLength + PacketLength) > buffer.length)
@@ -320,7 +346,7 @@ public abstract class CcsdsPacket extends IDataBlock
 		{
 			// Extract PEC from field
 			int pecIndex = start + HeaderLength + getPacketLength() - 2;
-			int pecFieldValue = ByteOrderConverter.GetInt16(buffer, pecIndex);
+			int pecFieldValue = ByteOrderConverter.GetInt16(buffer, pecIndex) & 0xFFFF;
 
 			// Compute PEC for telemetry in buffer
 			int pecComputed = ComputeChecksum(buffer, start, pecIndex - start, checksumType);
@@ -352,7 +378,7 @@ public abstract class CcsdsPacket extends IDataBlock
 		ApplicationProcessId = (int)(ByteOrderConverter.GetInt16(buffer, start) & 0x07FF);
 
 		// Sequence Flags
-		SequenceFlags.setCode((int)((buffer[start + 2] & 0xC0) >> 6));
+		SequenceFlags = SequenceFlagsType.FromCode((buffer[start + 2] & 0xC0) >> 6);
 
 		// Sequence Count
 		SequenceCount = (int)(ByteOrderConverter.GetInt16(buffer, start + 2) & 0x3FFF);
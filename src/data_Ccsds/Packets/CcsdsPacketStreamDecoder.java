@@ -0,0 +1,247 @@
+package data_Ccsds.Packets;
+
+import java.nio.ByteBuffer;
+
+import data_Ccsds.Function.ArgumentNullException;
+
+/// <summary>Splits a continuous byte stream into CCSDS packets.</summary>
+/// <remarks>
+/// The stream is fed in chunks of any size. Packet boundaries are found with the Packet Length
+/// field of the Packet Header; every complete packet is passed to an <see cref="ICcsdsPacketListener"/>.
+///
+/// Packets lying entirely in a fed chunk are passed in place, without any copy. Only the start of a
+/// packet split across chunks is kept, in a ring buffer sized for the largest accepted packet, so the
+/// memory used is bounded whatever the stream.
+///
+/// A header with a version number other than 0 or announcing a packet longer than the maximum is
+/// considered corrupt: the decoder skips one byte and looks for a packet at the next one.
+///
+/// An instance is not thread-safe, each stream needs its own decoder.
+/// </remarks>
+public class CcsdsPacketStreamDecoder
+{
+	/// <summary>The length of the largest CCSDS packet: Packet Header and 65536 bytes of Packet Data Field.</summary>
+	public static final int MaxPacketLength = CcsdsPacket.HeaderLength + 0x10000;
+
+	/// <summary>Bytes copied at once out of buffers without an accessible array.</summary>
+	private static final int ChunkLength = 8192;
+
+	private final ICcsdsPacketListener listener;
+	private final int maxPacketLength;
+
+	/// <summary>Bytes of the packet being received, starting at <see cref="ringHead"/>.</summary>
+	private final byte[] ring;
+	private final int ringMask;
+	private int ringHead;
+	private int ringCount;
+
+	/// <summary>Contiguous copy of packets wrapping around the end of the ring, lazily allocated.</summary>
+	private byte[] assembly;
+
+	/// <summary>Copy area for direct buffers, lazily allocated.</summary>
+	private byte[] chunk;
+
+	private long packetCount;
+	private long discardedByteCount;
+
+	/// <summary>Initializes a new instance of the <see cref="CcsdsPacketStreamDecoder"/> class accepting packets of any length.</summary>
+	/// <param name="listener">The listener receiving the packets.</param>
+	public CcsdsPacketStreamDecoder(ICcsdsPacketListener listener) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		this(listener, MaxPacketLength);
+	}
+
+	/// <summary>Initializes a new instance of the <see cref="CcsdsPacketStreamDecoder"/> class.</summary>
+	/// <param name="listener">The listener receiving the packets.</param>
+	/// <param name="maxPacketLength">The length in bytes of the largest packet expected, Packet Header included.</param>
+	/// <remarks>A smaller maximum means less memory and a faster resynchronisation after corrupt data.</remarks>
+	public CcsdsPacketStreamDecoder(ICcsdsPacketListener listener, int maxPacketLength) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(listener == null)
+			throw new ArgumentNullException("listener");
+		if(maxPacketLength <= CcsdsPacket.HeaderLength || maxPacketLength > MaxPacketLength)
+			throw new ArgumentOutOfRangeException("maxPacketLength must be between " + (CcsdsPacket.HeaderLength + 1) + " and " + MaxPacketLength + " : " + maxPacketLength);
+
+		this.listener = listener;
+		this.maxPacketLength = maxPacketLength;
+
+		int capacity = Integer.highestOneBit(maxPacketLength - 1) << 1;
+		ring = new byte[capacity];
+		ringMask = capacity - 1;
+	}
+
+	/// <summary>Gets the number of packets passed to the listener.</summary>
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	/// <summary>Gets the number of bytes skipped while looking for a valid Packet Header.</summary>
+	public long getDiscardedByteCount() {
+		return discardedByteCount;
+	}
+
+	/// <summary>Gets the number of bytes held, waiting for the rest of a packet.</summary>
+	public int getBufferedByteCount() {
+		return ringCount;
+	}
+
+	/// <summary>Drops the partially received packet, e.g. after a loss of signal.</summary>
+	public void reset()
+	{
+		discardedByteCount += ringCount;
+		ringHead = 0;
+		ringCount = 0;
+	}
+
+	/// <summary>Feeds the remaining bytes of a buffer.</summary>
+	/// <param name="buffer">The buffer, its position is moved to its limit.</param>
+	public void feed(ByteBuffer buffer) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(buffer == null)
+			throw new ArgumentNullException("buffer");
+
+		if(buffer.hasArray())
+		{
+			feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+			return;
+		}
+
+		if(chunk == null)
+			chunk = new byte[ChunkLength];
+		while(buffer.hasRemaining())
+		{
+			int count = Math.min(buffer.remaining(), ChunkLength);
+			buffer.get(chunk, 0, count);
+			feed(chunk, 0, count);
+		}
+	}
+
+	/// <summary>Feeds a chunk of the stream.</summary>
+	/// <param name="buffer">The buffer containing the chunk.</param>
+	/// <param name="offset">The index in bytes of the start of the chunk in the buffer.</param>
+	/// <param name="length">The length in bytes of the chunk.</param>
+	public void feed(byte[] buffer, int offset, int length) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(buffer == null)
+			throw new ArgumentNullException("buffer");
+		if(offset < 0 || length < 0 || offset > buffer.length - length)
+			throw new ArgumentOutOfRangeException("The chunk exceeds the buffer bounds.");
+
+		int index = offset;
+		int end = offset + length;
+
+		while(index < end)
+		{
+			if(ringCount == 0)
+			{
+				// Nothing pending, take the packets in place
+				index = splitInPlace(buffer, index, end);
+
+				// Keep the start of the last packet for the next chunk
+				int remaining = end - index;
+				if(remaining > 0)
+					append(buffer, index, remaining);
+				return;
+			}
+
+			// Complete the header, then the packet, held in the ring
+			int needed = (ringCount < CcsdsPacket.HeaderLength ? CcsdsPacket.HeaderLength : ringPacketLength()) - ringCount;
+			int count = Math.min(needed, end - index);
+			append(buffer, index, count);
+			index += count;
+			drainRing();
+		}
+	}
+
+	/// <summary>Passes the complete packets of a buffer to the listener, skipping corrupt bytes.</summary>
+	/// <returns>The index of the first byte not consumed, the start of an incomplete packet.</returns>
+	private int splitInPlace(byte[] buffer, int index, int end)
+	{
+		while(end - index >= CcsdsPacket.HeaderLength)
+		{
+			int packetLength = packetLength(buffer[index], buffer[index + 4], buffer[index + 5]);
+			if(packetLength < 0)
+			{
+				// Corrupt header, resynchronise on the next byte
+				index++;
+				discardedByteCount++;
+				continue;
+			}
+			if(packetLength > end - index)
+				break;
+
+			packetCount++;
+			listener.PacketReceived(buffer, index, packetLength);
+			index += packetLength;
+		}
+		return index;
+	}
+
+	/// <summary>Passes the complete packets held in the ring to the listener, skipping corrupt bytes.</summary>
+	private void drainRing()
+	{
+		while(ringCount >= CcsdsPacket.HeaderLength)
+		{
+			int packetLength = ringPacketLength();
+			if(packetLength < 0)
+			{
+				// Corrupt header, resynchronise on the next byte
+				ringHead = (ringHead + 1) & ringMask;
+				ringCount--;
+				discardedByteCount++;
+				continue;
+			}
+			if(packetLength > ringCount)
+				return;
+
+			packetCount++;
+			if(ringHead + packetLength <= ring.length)
+			{
+				listener.PacketReceived(ring, ringHead, packetLength);
+			}
+			else
+			{
+				if(assembly == null)
+					assembly = new byte[maxPacketLength];
+				int firstPart = ring.length - ringHead;
+				System.arraycopy(ring, ringHead, assembly, 0, firstPart);
+				System.arraycopy(ring, 0, assembly, firstPart, packetLength - firstPart);
+				listener.PacketReceived(assembly, 0, packetLength);
+			}
+			ringHead = (ringHead + packetLength) & ringMask;
+			ringCount -= packetLength;
+		}
+		if(ringCount == 0)
+			ringHead = 0;
+	}
+
+	/// <summary>Gets the length of the packet whose header is at the head of the ring; or -1 if the header is corrupt.</summary>
+	private int ringPacketLength()
+	{
+		return packetLength(ring[ringHead], ring[(ringHead + 4) & ringMask], ring[(ringHead + 5) & ringMask]);
+	}
+
+	/// <summary>Gets the length of a complete packet from its header.</summary>
+	/// <param name="first">The first byte of the header (Version Number).</param>
+	/// <param name="lengthHigh">The high byte of the Packet Length field.</param>
+	/// <param name="lengthLow">The low byte of the Packet Length field.</param>
+	/// <returns>The length of the packet, Packet Header included; or -1 if the header is corrupt.</returns>
+	private int packetLength(byte first, byte lengthHigh, byte lengthLow)
+	{
+		if((first & 0xE0) != 0)
+			return -1;
+		int packetLength = CcsdsPacket.HeaderLength + (((lengthHigh & 0xFF) << 8) | (lengthLow & 0xFF)) + 1;
+		return packetLength <= maxPacketLength ? packetLength : -1;
+	}
+
+	/// <summary>Copies bytes at the tail of the ring.</summary>
+	private void append(byte[] buffer, int index, int count)
+	{
+		int tail = (ringHead + ringCount) & ringMask;
+		int firstPart = Math.min(count, ring.length - tail);
+		System.arraycopy(buffer, index, ring, tail, firstPart);
+		System.arraycopy(buffer, index + firstPart, ring, 0, count - firstPart);
+		ringCount += count;
+	}
+}
@@ -0,0 +1,16 @@
+package data_Ccsds.Packets;
+
+/// <summary>Receives the CCSDS packets found by a <see cref="CcsdsPacketStreamDecoder"/>.</summary>
+public interface ICcsdsPacketListener
+{
+	/// <summary>Called for each complete packet.</summary>
+	/// <param name="buffer">The buffer containing the packet.</param>
+	/// <param name="start">The index in bytes of the start of the packet in the buffer.</param>
+	/// <param name="length">The length in bytes of the complete packet, Packet Header included.</param>
+	/// <remarks>
+	/// The buffer belongs to the caller or to the decoder and is only valid during the call: copy the
+	/// packet (e.g. with <see cref="Telemetry.FromBuffer(byte[], int, TelemetrySettings)"/>) or use a
+	/// <see cref="TelemetryView"/> that doesn't outlive the call.
+	/// </remarks>
+	void PacketReceived(byte[] buffer, int start, int length);
+}
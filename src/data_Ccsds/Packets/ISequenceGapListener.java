@@ -0,0 +1,12 @@
+package data_Ccsds.Packets;
+
+/// <summary>Receives the Sequence Count gaps found by an <see cref="ApidSequenceTracker"/>.</summary>
+public interface ISequenceGapListener
+{
+	/// <summary>Called for each gap, e.g. to request the retransmission of the missing packets.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="firstMissing">The Sequence Count of the first missing packet.</param>
+	/// <param name="missingCount">The number of missing packets, the counts wrap around after 0x3FFF.</param>
+	/// <remarks>Called from the decoding thread which found the gap.</remarks>
+	void SequenceGap(int apid, int firstMissing, int missingCount);
+}
@@ -0,0 +1,28 @@
+package data_Ccsds.Packets;
+
+/// <summary>Receives the uploads rebuilt by a <see cref="TelecommandReassembler"/>.</summary>
+/// <remarks>The data of an upload is passed as it arrives, so it never has to be held in memory at once.</remarks>
+public interface ITelecommandReassemblyListener
+{
+	/// <summary>Called when the first packet of an upload is received.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	void UploadStarted(int apid);
+
+	/// <summary>Called with the data of each packet of an upload, in order.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="buffer">The buffer containing the data, only valid during the call.</param>
+	/// <param name="start">The index in bytes of the start of the data in the buffer.</param>
+	/// <param name="length">The length in bytes of the data.</param>
+	void UploadData(int apid, byte[] buffer, int start, int length);
+
+	/// <summary>Called when the last packet of an upload is received.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="length">The length in bytes of the upload.</param>
+	void UploadCompleted(int apid, long length);
+
+	/// <summary>Called when an upload is abandoned; the data already passed must be discarded.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <param name="length">The length in bytes of the data already passed.</param>
+	/// <param name="reason">The reason, e.g. a missing packet.</param>
+	void UploadAborted(int apid, long length, String reason);
+}
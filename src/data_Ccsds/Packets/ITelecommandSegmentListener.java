@@ -0,0 +1,14 @@
+package data_Ccsds.Packets;
+
+import java.io.IOException;
+
+/// <summary>Receives the telecommand packets encoded by a <see cref="TelecommandSegmenter"/>.</summary>
+public interface ITelecommandSegmentListener
+{
+	/// <summary>Called for each packet, in Sequence Count order.</summary>
+	/// <param name="buffer">The buffer containing the packet.</param>
+	/// <param name="start">The index in bytes of the start of the packet in the buffer.</param>
+	/// <param name="length">The length in bytes of the complete packet, Packet Header and Packet Error Control included.</param>
+	/// <remarks>Called from the segmenting thread. The buffer is reused for a later packet once the call returns: write or copy the packet.</remarks>
+	void SegmentEncoded(byte[] buffer, int start, int length) throws IOException;
+}
@@ -0,0 +1,16 @@
+package data_Ccsds.Packets;
+
+/// <summary>Classification of a packet Sequence Count by an <see cref="ApidSequenceTracker"/>.</summary>
+public enum SequenceCountStatus {
+
+		/// <summary>The count follows the previous one of the APID (or is the first one).</summary>
+		InOrder,
+		/// <summary>Packets are missing between the previous count and this one.</summary>
+		Gap,
+		/// <summary>The count was already received recently.</summary>
+		Duplicate,
+		/// <summary>The count was missing from a previous gap and arrived out of order.</summary>
+		Late,
+		/// <summary>The count restarted (e.g. on-board reboot), continuity is not checked across it.</summary>
+		Reset
+	}
@@ -10,7 +10,7 @@ public enum SequenceFlagsType {
 	LastPacket(2),
 	/// <summary>Packet StandAlone</summary>
 	StandAlone(3);
-	private int code;
+	private final int code;
 	/// <summary>Constructor</summary>
 	private SequenceFlagsType(int c)
 	{
@@ -19,7 +19,19 @@ public enum SequenceFlagsType {
 	public int getCode() {
 		return code;
 	}
-	public void setCode(int value) {
-		code=value;
+	/// <summary>Gets the Sequence Flags of a code.</summary>
+	/// <param name="code">The 2-bit Sequence Flags field.</param>
+	/// <returns>The Sequence Flags.</returns>
+	public static SequenceFlagsType FromCode(int code) {
+		switch(code & 3) {
+		case 0:
+			return ContinuationPacket;
+		case 1:
+			return FirstPacket;
+		case 2:
+			return LastPacket;
+		default:
+			return StandAlone;
+		}
 	}
 }
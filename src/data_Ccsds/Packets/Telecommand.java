@@ -1,10 +1,12 @@
 package data_Ccsds.Packets;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 import data.NotImplementedException;
 import data_Ccsds.Function.ArgumentNullException;
 import data_Ccsds.ParameterCode.ParameterCode;
+import data_Ccsds.ParameterCode.ParameterCodec;
 import data_Ccsds.ParameterCode.ParameterConverter;
 
 public class Telecommand extends CcsdsPacket
@@ -138,7 +140,7 @@ public class Telecommand extends CcsdsPacket
 	/// <value>The alignment of the Packet Data Field in bytes.</value>
 	public int PacketDataFieldAlignment;
 	public int getPacketDataFieldAlignment() {
-		PacketDataFieldAlignment=EffectiveSettings.DataFieldPadding;
+		PacketDataFieldAlignment=effectiveSettings().DataFieldPadding;
 		return PacketDataFieldAlignment;
 	}
 
@@ -147,9 +149,9 @@ public class Telecommand extends CcsdsPacket
 	/// <remarks>
 	/// These settings apply to all threads if not overriden by per-thread settings using the <see cref="Settings"/> property.
 	/// 
-	/// If you just want to get the effective settings, use <see cref="EffectiveSettings"/> instead.
+	/// If you just want to get the effective settings, use <see cref="getEffectiveSettings"/> instead.
 	/// </remarks>
-	public static TelecommandSettings GlobalSettings = null;
+	public static volatile TelecommandSettings GlobalSettings = null;
 	public static TelecommandSettings getGlobalSettings() {
 		return GlobalSettings;
 	}
@@ -162,26 +164,55 @@ public class Telecommand extends CcsdsPacket
 	/// <remarks>
 	/// These settings are per-thread. If not set, <see cref="GlobalSettings"/> will be used.
 	/// 
-	/// If you just want to get the effective settings, use <see cref="EffectiveSettings"/> instead.
+	/// If you just want to get the effective settings, use <see cref="getEffectiveSettings"/> instead.
 	/// </remarks>
-	private static TelecommandSettings Settings = null;
+	private static final ThreadLocal<TelecommandSettings> Settings = new ThreadLocal<TelecommandSettings>();
 	public static TelecommandSettings getSettings() {
-		return Settings;
+		return Settings.get();
 	}
 	public static void setSettings(TelecommandSettings telecommandSettings) {
-		Settings = telecommandSettings;
+		if(telecommandSettings == null)
+			Settings.remove();
+		else
+			Settings.set(telecommandSettings);
 	}
 
-	/// <summary>Gets the effective telecommand settings.</summary>
-	public static TelecommandSettings EffectiveSettings;
+	private static final String NoSettingsMessage = "No telecommand settings have been set using either Telecommand.GlobalSettings or Telecommand.Settings.";
+
+	/// <summary>Gets the effective telecommand settings of the current thread.</summary>
 	public static TelecommandSettings getEffectiveSettings() throws InvalidOperationException {
-		if(Settings != null)
-			return Settings;
-		else if(GlobalSettings != null)
-			return GlobalSettings;
-		else
-			throw new InvalidOperationException("No telecommand settings have been set using either Telecommand.GlobalSettings or Telecommand.Settings.");
-	
+		TelecommandSettings settings = resolveEffectiveSettings();
+		if(settings == null)
+			throw new InvalidOperationException(NoSettingsMessage);
+		return settings;
+	}
+
+	/// <summary>Gets the effective telecommand settings of the current thread, or <c>null</c> if there are none.</summary>
+	public static TelecommandSettings resolveEffectiveSettings() {
+		TelecommandSettings settings = Settings.get();
+		return settings != null ? settings : GlobalSettings;
+	}
+
+	/// <summary>The settings this packet is encoded and decoded with.</summary>
+	/// <remarks>
+	/// Packets read with <see cref="FromBuffer(byte[], int, TelecommandSettings)"/> are bound to the settings used.
+	/// When <c>null</c>, the effective settings of the calling thread are used.
+	/// </remarks>
+	private TelecommandSettings boundSettings;
+	public TelecommandSettings getBoundSettings() {
+		return boundSettings;
+	}
+	public void setBoundSettings(TelecommandSettings settings) {
+		boundSettings = settings;
+	}
+
+	/// <summary>Gets the settings of this packet: the bound settings, or else the effective ones.</summary>
+	/// <exception cref="IllegalStateException">The packet is not bound and no settings have been set.</exception>
+	private TelecommandSettings effectiveSettings() {
+		TelecommandSettings settings = boundSettings != null ? boundSettings : resolveEffectiveSettings();
+		if(settings == null)
+			throw new IllegalStateException(NoSettingsMessage);
+		return settings;
 	}
 
 	
@@ -195,13 +226,13 @@ public class Telecommand extends CcsdsPacket
 
 	//#region Constructors
 	/// <summary>Initializes a new instance of the <see cref="Telecommand"/> class.</summary>
-	public Telecommand() { super(); }
+	public Telecommand() { super(); setType(true); }
 
 	/// <summary>Initializes a new instance of the <see cref="Telecommand"/> class.</summary>
 	/// <param name="applicationProcessId">The Application Process ID of the <see cref="Telecommand"/>.</param>
 	public Telecommand(int applicationProcessId) throws ArgumentOutOfRangeException
 	{
-		super();	
+		this();
 		setApplicationProcessId(applicationProcessId);
 	}
 
@@ -212,6 +243,7 @@ public class Telecommand extends CcsdsPacket
 	/// <param name="serviceSubtype">The Service Subtype of the <see cref="Telecommand"/>.</param>
 	public Telecommand(int applicationProcessId, byte ack, byte serviceType, byte serviceSubtype) throws ArgumentOutOfRangeException
 	{
+		this();
 		setApplicationProcessId(applicationProcessId);
 		Ack = ack;
 		ServiceType = serviceType;
@@ -226,6 +258,7 @@ public class Telecommand extends CcsdsPacket
 	/// <param name="sequenceCount">The Sequence Count of the <see cref="Telecommand"/>.</param>
 	public Telecommand(int applicationProcessId, byte ack, byte serviceType, byte serviceSubtype, int sequenceCount) throws ArgumentOutOfRangeException
 	{
+		this();
 		setApplicationProcessId(applicationProcessId);
 		Ack = ack;
 		ServiceType = serviceType;
@@ -239,21 +272,27 @@ public class Telecommand extends CcsdsPacket
 	/// <returns>The length of the Data Field Header.</returns>
 	protected int ComputeDataFieldHeaderLength() throws NotSupportedException
 	{
-		return (int)(3 + computeDfhOptionalFieldsLength());
+		return getDataFieldHeaderLength(effectiveSettings());
+	}
+
+	/// <summary>Computes the length of the Data Field Header of the telecommands encoded with the specified settings.</summary>
+	/// <param name="settings">The telecommand settings.</param>
+	/// <returns>The length of the Data Field Header, the same for all APIDs.</returns>
+	public static int getDataFieldHeaderLength(TelecommandSettings settings) throws NotSupportedException
+	{
+		return (int)(3 + computeDfhOptionalFieldsLength(settings));
 	}
 
 	/// <summary>Calculates the length of the Data Field Header optional fields.</summary>
 	/// <returns>The length of Data Field Header optional fields.</returns>
-	private int computeDfhOptionalFieldsLength() throws NotSupportedException
+	private static int computeDfhOptionalFieldsLength(TelecommandSettings settings) throws NotSupportedException
 	{
-		TelecommandSettings settings = EffectiveSettings;
-
 		int optionalFieldsLength = 0;
 
 		// Source ID (only Enumerated PFCs with an integral number of bytes supported or padded _after_)
 		ParameterCode sourceIdPc = settings.SourceIdPc;
 		if(sourceIdPc != null)
-			optionalFieldsLength += ParameterConverter.GetBitsSize(sourceIdPc);
+			optionalFieldsLength += sourceIdPc.getCodec().getByteSize();
 
 		// Spare / DFH alignment
 		int dfhAlignment = settings.DataFieldHeaderPadding; // alignment in bytes
@@ -280,7 +319,7 @@ public class Telecommand extends CcsdsPacket
 	/// <exception cref="System.ArgumentOutOfRangeException">The buffer is too small to put the data at the specified offset.</exception>
 	protected int WriteDataFieldHeaderToBuffer(byte[] buffer, int start) throws NotSupportedException, UnsupportedEncodingException, ArgumentNullException, ArgumentOutOfRangeException
 	{
-		TelecommandSettings settings = EffectiveSettings;
+		TelecommandSettings settings = effectiveSettings();
 
 		int index = start;
 
@@ -299,7 +338,7 @@ public class Telecommand extends CcsdsPacket
 		ParameterCode sourceIdPc = settings.SourceIdPc;
 		if(sourceIdPc != null)
 		{
-			int insertedBits = ParameterConverter.InsertValue(buffer, index * 8, SourceId, sourceIdPc);
+			int insertedBits = sourceIdPc.getCodec().InsertLong(buffer, index * 8, SourceId);
 			index += ParameterConverter.GetByteSize (insertedBits);
 		}
 
@@ -308,7 +347,9 @@ public class Telecommand extends CcsdsPacket
 		if(dfhAlignment != 0)
 		{
 			int dfhLength = index - start; // Compute current length of DHF
-			index += (dfhAlignment - (dfhLength % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
+			int spareLength = (dfhAlignment - (dfhLength % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
+			Arrays.fill(buffer, index, index + spareLength, (byte)0);
+			index += spareLength;
 		}
 
 		// Return number of bytes written
@@ -327,11 +368,30 @@ public class Telecommand extends CcsdsPacket
 	/// <param name="buffer">The buffer containing the <see cref="Telecommand"/> packet.</param>
 	/// <param name="start">The index in bytes of the start of the <see cref="Telecommand"/> packet in the buffer.</param>
 	/// <returns>The read <see cref="Telecommand"/> packet.</returns>
+	/// <exception cref="IllegalStateException">No settings have been set for the current thread.</exception>
 	public static Telecommand FromBuffer(byte[] buffer, int start) throws NotSupportedException, ArgumentException, InvalidChecksumException, NotImplementedException, ArgumentNullException
 	{
-		TelecommandSettings settings = EffectiveSettings;
+		TelecommandSettings settings = resolveEffectiveSettings();
+		if(settings == null)
+			throw new IllegalStateException(NoSettingsMessage);
+
+		return FromBuffer(buffer, start, settings);
+	}
+
+	/// <summary>Reads a <see cref="Telecommand"/> packet from a buffer using the specified <see cref="TelecommandSettings"/>.</summary>
+	/// <param name="buffer">The buffer containing the <see cref="Telecommand"/> packet.</param>
+	/// <param name="start">The index in bytes of the start of the <see cref="Telecommand"/> packet in the buffer.</param>
+	/// <param name="settings">The <see cref="TelecommandSettings"/> to use to read the packet from the buffer.</param>
+	/// <returns>The read <see cref="Telecommand"/> packet, bound to <paramref name="settings"/>.</returns>
+	/// <remarks>The global and per-thread settings are left untouched, so threads can decode concurrently with different settings.</remarks>
+	public static Telecommand FromBuffer(byte[] buffer, int start, TelecommandSettings settings) throws NotSupportedException, ArgumentException, InvalidChecksumException, NotImplementedException, ArgumentNullException
+	{
+		if(settings == null)
+			throw new ArgumentNullException("settings");
 
 			Telecommand telecommand = new Telecommand();
+			telecommand.setType(true);
+			telecommand.boundSettings = settings;
 
 			// Get checksum type from settings
 			telecommand.checksumType = settings.ChecksumType;
@@ -370,8 +430,9 @@ public class Telecommand extends CcsdsPacket
 			ParameterCode sourceIdPc = settings.SourceIdPc;
 			if(sourceIdPc != null)
 			{
-				telecommand.SourceId = (long)ParameterConverter.ExtractValue(buffer, sourceIdPc, index * 8); // offset is bytes, need bits!
-				index += ParameterConverter.GetByteSize(ParameterConverter.GetBitsSize(sourceIdPc));
+				ParameterCodec sourceIdCodec = sourceIdPc.getCodec();
+				telecommand.SourceId = sourceIdCodec.ExtractLong(buffer, index * 8); // offset is bytes, need bits!
+				index += sourceIdCodec.getByteSize();
 			}
 
 			// DFH Spare (alignment)
@@ -388,35 +449,10 @@ public class Telecommand extends CcsdsPacket
 
 			return telecommand;
 		}
-
-	/// <summary>Reads a <see cref="Telecommand"/> packet from a buffer using the specified <see cref="TelecommandSettings"/>.</summary>
-	/// <param name="buffer">The buffer containing the <see cref="Telecommand"/> packet.</param>
-	/// <param name="start">The index in bytes of the start of the <see cref="Telecommand"/> packet in the buffer.</param>
-	/// <param name="settings">The <see cref="TelecommandSettings"/> to use to read the packet from the buffer.</param>
-	/// <returns>The read <see cref="Telecommand"/> packet.</returns>
-	public static Telecommand FromBuffer(byte[] buffer, int start, TelecommandSettings settings) throws NotSupportedException, ArgumentException, InvalidChecksumException, NotImplementedException, ArgumentNullException
-	{
-		// Save old settings and apply new ones
-		TelecommandSettings oldSettings = Telecommand.Settings;
-		Telecommand.Settings = settings;
-
-		Telecommand telecommand;
-		try
-		{
-			// Read telecommand
-			telecommand = FromBuffer(buffer, start);
-		}
-		finally
-		{
-			// Put settings back
-			Telecommand.Settings = oldSettings;
-		}
-		return telecommand;
-	}
 	//#endregion
 	@Override
 	public int PacketDataFieldAlignment() {
-		PacketDataFieldAlignment=EffectiveSettings.DataFieldPadding;
+		PacketDataFieldAlignment=effectiveSettings().DataFieldPadding;
 		return PacketDataFieldAlignment;		
 	}
 }
@@ -0,0 +1,140 @@
+package data_Ccsds.Packets;
+
+import java.util.Arrays;
+
+import data_Ccsds.Function.ArgumentNullException;
+
+/// <summary>Rebuilds the uploads split by a <see cref="TelecommandSegmenter"/> from the received telecommands.</summary>
+/// <remarks>
+/// An upload is the data of a first packet, continuation packets and a last packet of one APID, with
+/// consecutive Sequence Counts; the uploads of different APIDs can be interleaved. The data is passed
+/// to the <see cref="ITelecommandReassemblyListener"/> packet by packet, so nothing is buffered here: the
+/// state is a Sequence Count and a length per APID, in fixed arrays. A missing packet or an upload
+/// longer than the maximum aborts the upload; packets outside an upload are discarded.
+/// Stand-alone packets are not part of an upload and are left to the caller.
+///
+/// With a Packet Data Field alignment, the padding of the last packet is passed as data: the
+/// receiver must know the length of the upload (e.g. from the memory load command).
+/// An instance is not thread-safe.
+/// </remarks>
+public class TelecommandReassembler
+{
+	/// <summary>Sequence Count expected of an APID without upload in progress.</summary>
+	private static final int Idle = -1;
+
+	private final ITelecommandReassemblyListener listener;
+	private final long maxUploadLength;
+
+	private final int[] expectedSequenceCounts = new int[ApidMap.Capacity];
+	private final long[] uploadLengths = new long[ApidMap.Capacity];
+
+	private long completedCount;
+	private long abortedCount;
+	private long discardedCount;
+
+	/// <summary>Initializes a new instance of the <see cref="TelecommandReassembler"/> class.</summary>
+	/// <param name="listener">The listener receiving the uploads.</param>
+	/// <param name="maxUploadLength">The length in bytes of the largest upload accepted.</param>
+	public TelecommandReassembler(ITelecommandReassemblyListener listener, long maxUploadLength) throws ArgumentNullException, ArgumentOutOfRangeException
+	{
+		if(listener == null)
+			throw new ArgumentNullException("listener");
+		if(maxUploadLength <= 0)
+			throw new ArgumentOutOfRangeException("maxUploadLength : " + maxUploadLength);
+		this.listener = listener;
+		this.maxUploadLength = maxUploadLength;
+		Arrays.fill(expectedSequenceCounts, Idle);
+	}
+
+	/// <summary>Gets the number of uploads completed.</summary>
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	/// <summary>Gets the number of uploads aborted.</summary>
+	public long getAbortedCount() {
+		return abortedCount;
+	}
+
+	/// <summary>Gets the number of continuation and last packets received outside an upload.</summary>
+	public long getDiscardedCount() {
+		return discardedCount;
+	}
+
+	/// <summary>Gets a value indicating whether an upload of an APID is in progress.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	public boolean isInProgress(int apid) {
+		return expectedSequenceCounts[apid & (ApidMap.Capacity - 1)] != Idle;
+	}
+
+	/// <summary>Adds a received telecommand.</summary>
+	/// <param name="telecommand">The telecommand, e.g. read with <see cref="Telecommand.FromBuffer(byte[], int, TelecommandSettings)"/>.</param>
+	/// <returns><c>true</c> if the packet was added to an upload; <c>false</c> for a stand-alone or discarded packet.</returns>
+	public boolean Add(Telecommand telecommand) throws ArgumentNullException
+	{
+		if(telecommand == null)
+			throw new ArgumentNullException("telecommand");
+
+		SequenceFlagsType sequenceFlags = telecommand.getSequenceFlagsType();
+		if(sequenceFlags == SequenceFlagsType.StandAlone)
+			return false;
+
+		int apid = telecommand.getApplicationProcessId() & (ApidMap.Capacity - 1);
+		int sequenceCount = telecommand.getSequenceCount();
+		if(sequenceFlags == SequenceFlagsType.FirstPacket)
+		{
+			if(expectedSequenceCounts[apid] != Idle)
+				abort(apid, "Upload restarted before its last packet.");
+			uploadLengths[apid] = 0;
+			listener.UploadStarted(apid);
+		}
+		else if(expectedSequenceCounts[apid] == Idle)
+		{
+			discardedCount++;
+			return false;
+		}
+		else if(sequenceCount != expectedSequenceCounts[apid])
+		{
+			abort(apid, "Sequence Count " + sequenceCount + " received instead of " + expectedSequenceCounts[apid] + ".");
+			discardedCount++;
+			return false;
+		}
+
+		int dataLength = telecommand.getDataLength();
+		if(uploadLengths[apid] + dataLength > maxUploadLength)
+		{
+			abort(apid, "Upload longer than " + maxUploadLength + " bytes.");
+			return false;
+		}
+		if(dataLength > 0)
+			listener.UploadData(apid, telecommand.getData(), 0, dataLength);
+		uploadLengths[apid] += dataLength;
+
+		if(sequenceFlags == SequenceFlagsType.LastPacket)
+		{
+			expectedSequenceCounts[apid] = Idle;
+			completedCount++;
+			listener.UploadCompleted(apid, uploadLengths[apid]);
+		}
+		else
+		{
+			expectedSequenceCounts[apid] = (sequenceCount + 1) & 0x3FFF;
+		}
+		return true;
+	}
+
+	/// <summary>Aborts the uploads in progress, e.g. at the end of a pass.</summary>
+	public void reset()
+	{
+		for(int apid = 0 ; apid < ApidMap.Capacity ; apid++)
+			if(expectedSequenceCounts[apid] != Idle)
+				abort(apid, "Reassembler reset.");
+	}
+
+	private void abort(int apid, String reason)
+	{
+		expectedSequenceCounts[apid] = Idle;
+		abortedCount++;
+		listener.UploadAborted(apid, uploadLengths[apid], reason);
+	}
+}
@@ -0,0 +1,386 @@
+package data_Ccsds.Packets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import data_Ccsds.Function.ArgumentNullException;
+
+/// <summary>Splits a large upload (e.g. a memory patch) into a sequence of telecommand packets.</summary>
+/// <remarks>
+/// The upload is read from an <see cref="InputStream"/>, a channel, a file (memory-mapped region by
+/// region) or a buffer, whatever its size, in segments of <see cref="getSegmentDataLength"/> bytes.
+/// Each segment becomes the data of a telecommand of the same APID and service, flagged first,
+/// continuation or last (stand-alone for an upload of one segment), with consecutive Sequence Counts.
+///
+/// The packets can be encoded in parallel by an <see cref="ExecutorService"/>: up to <c>window</c>
+/// segments are in flight, each in its own preallocated slot, and the packets are passed to the
+/// <see cref="ITelecommandSegmentListener"/> in order. The memory used is bounded by the window,
+/// not by the upload. An instance is not thread-safe, one upload at a time.
+///
+/// With a Packet Data Field alignment, the segments are sized so that only the last packet is padded;
+/// its padding bytes are received as data (see <see cref="TelecommandReassembler"/>).
+/// </remarks>
+public class TelecommandSegmenter
+{
+	/// <summary>Default number of segments in flight.</summary>
+	public static final int DefaultWindow = 64;
+
+	/// <summary>Length of the file regions mapped at once.</summary>
+	private static final int MappedRegionLength = 1 << 26;
+
+	/// <summary>Reads the upload segment by segment.</summary>
+	private interface Source
+	{
+		/// <summary>Reads a segment; fewer bytes than requested only at the end of the upload.</summary>
+		int read(byte[] buffer, int length) throws IOException;
+	}
+
+	/// <summary>A segment in flight, with its reused telecommand and packet buffer.</summary>
+	private final class Slot implements Callable<Integer>
+	{
+		final Telecommand telecommand;
+		final byte[] data;
+		final byte[] packet;
+		Future<Integer> future;
+		int packetLength;
+
+		Slot() throws ArgumentOutOfRangeException
+		{
+			telecommand = new Telecommand(applicationProcessId, ack, serviceType, serviceSubtype);
+			telecommand.setBoundSettings(settings);
+			telecommand.setChecksumType(settings.ChecksumType);
+			data = new byte[segmentDataLength];
+			packet = new byte[maxPacketLength];
+		}
+
+		@Override
+		public Integer call() throws Exception
+		{
+			return telecommand.ToBuffer(packet, 0);
+		}
+	}
+
+	private final TelecommandSettings settings;
+	private final int applicationProcessId;
+	private final byte ack;
+	private final byte serviceType;
+	private final byte serviceSubtype;
+	private final int maxPacketLength;
+	private final int segmentDataLength;
+	private final ITelecommandSegmentListener listener;
+	private final ExecutorService executor;
+
+	private final ArrayDeque<Slot> freeSlots = new ArrayDeque<Slot>();
+	private final ArrayDeque<Slot> pendingSlots = new ArrayDeque<Slot>();
+
+	private int sequenceCount;
+
+	/// <summary>Initializes a new instance of the <see cref="TelecommandSegmenter"/> class encoding in the calling thread.</summary>
+	/// <param name="settings">The settings used to encode the telecommands.</param>
+	/// <param name="applicationProcessId">The Application Process ID of the telecommands.</param>
+	/// <param name="ack">The Acknowledgement of the telecommands.</param>
+	/// <param name="serviceType">The Service Type of the telecommands.</param>
+	/// <param name="serviceSubtype">The Service Subtype of the telecommands.</param>
+	/// <param name="maxPacketLength">The length in bytes of the longest packet, Packet Header and Packet Error Control included.</param>
+	/// <param name="listener">The listener receiving the packets.</param>
+	public TelecommandSegmenter(TelecommandSettings settings, int applicationProcessId, byte ack, byte serviceType, byte serviceSubtype, int maxPacketLength, ITelecommandSegmentListener listener) throws ArgumentNullException, ArgumentOutOfRangeException, NotSupportedException
+	{
+		this(settings, applicationProcessId, ack, serviceType, serviceSubtype, maxPacketLength, listener, null, 1);
+	}
+
+	/// <summary>Initializes a new instance of the <see cref="TelecommandSegmenter"/> class.</summary>
+	/// <param name="settings">The settings used to encode the telecommands.</param>
+	/// <param name="applicationProcessId">The Application Process ID of the telecommands.</param>
+	/// <param name="ack">The Acknowledgement of the telecommands.</param>
+	/// <param name="serviceType">The Service Type of the telecommands.</param>
+	/// <param name="serviceSubtype">The Service Subtype of the telecommands.</param>
+	/// <param name="maxPacketLength">The length in bytes of the longest packet, Packet Header and Packet Error Control included.</param>
+	/// <param name="listener">The listener receiving the packets.</param>
+	/// <param name="executor">The workers encoding the packets, <c>null</c> to encode in the calling thread.</param>
+	/// <param name="window">The number of segments in flight, a few per worker.</param>
+	public TelecommandSegmenter(TelecommandSettings settings, int applicationProcessId, byte ack, byte serviceType, byte serviceSubtype, int maxPacketLength, ITelecommandSegmentListener listener, ExecutorService executor, int window) throws ArgumentNullException, ArgumentOutOfRangeException, NotSupportedException
+	{
+		if(settings == null)
+			throw new ArgumentNullException("settings");
+		if(listener == null)
+			throw new ArgumentNullException("listener");
+		if(window <= 0)
+			throw new ArgumentOutOfRangeException("window : " + window);
+
+		// Largest data such that the Packet Data Field needs no padding
+		int dataFieldHeaderLength = Telecommand.getDataFieldHeaderLength(settings);
+		int pdfLength = maxPacketLength - CcsdsPacket.HeaderLength - 2;
+		int pdfAlignment = settings.DataFieldPadding;
+		if(pdfAlignment > 1)
+			pdfLength -= pdfLength % pdfAlignment;
+		if(pdfLength <= dataFieldHeaderLength || maxPacketLength > CcsdsPacketStreamDecoder.MaxPacketLength)
+			throw new ArgumentOutOfRangeException("maxPacketLength : " + maxPacketLength);
+
+		this.settings = settings;
+		this.applicationProcessId = applicationProcessId;
+		this.ack = ack;
+		this.serviceType = serviceType;
+		this.serviceSubtype = serviceSubtype;
+		this.maxPacketLength = maxPacketLength;
+		this.segmentDataLength = pdfLength - dataFieldHeaderLength;
+		this.listener = listener;
+		this.executor = executor;
+
+		// One more slot than in flight: the segment read ahead to find the last one
+		for(int i = 0 ; i <= (executor == null ? 1 : window) ; i++)
+			freeSlots.add(new Slot());
+	}
+
+	/// <summary>Gets the length in bytes of the data of each packet, but the last one.</summary>
+	public int getSegmentDataLength() {
+		return segmentDataLength;
+	}
+
+	/// <summary>Gets or sets the Sequence Count of the next packet.</summary>
+	public int getSequenceCount() {
+		return sequenceCount;
+	}
+	public void setSequenceCount(int value) throws ArgumentOutOfRangeException {
+		if((value & 0x3FFF) != value)
+			throw new ArgumentOutOfRangeException("SequenceCount");
+		sequenceCount = value;
+	}
+
+	/// <summary>Segments an upload read from a stream, up to its end.</summary>
+	/// <param name="stream">The stream.</param>
+	/// <returns>The number of packets.</returns>
+	public int Segment(final InputStream stream) throws ArgumentNullException, IOException, InterruptedException
+	{
+		if(stream == null)
+			throw new ArgumentNullException("stream");
+		return segment(new Source() {
+			public int read(byte[] buffer, int length) throws IOException
+			{
+				int count = 0;
+				while(count < length)
+				{
+					int read = stream.read(buffer, count, length - count);
+					if(read < 0)
+						break;
+					count += read;
+				}
+				return count;
+			}
+		});
+	}
+
+	/// <summary>Segments an upload read from a channel, up to its end.</summary>
+	/// <param name="channel">The channel, in blocking mode.</param>
+	/// <returns>The number of packets.</returns>
+	public int Segment(final ReadableByteChannel channel) throws ArgumentNullException, IOException, InterruptedException
+	{
+		if(channel == null)
+			throw new ArgumentNullException("channel");
+		return segment(new Source() {
+			public int read(byte[] buffer, int length) throws IOException
+			{
+				ByteBuffer destination = ByteBuffer.wrap(buffer, 0, length);
+				while(destination.hasRemaining() && channel.read(destination) >= 0)
+				{
+				}
+				return destination.position();
+			}
+		});
+	}
+
+	/// <summary>Segments an upload held in a buffer, e.g. a memory-mapped file, from its position to its limit.</summary>
+	/// <param name="upload">The buffer, its position is moved to its limit.</param>
+	/// <returns>The number of packets.</returns>
+	public int Segment(final ByteBuffer upload) throws ArgumentNullException, IOException, InterruptedException
+	{
+		if(upload == null)
+			throw new ArgumentNullException("upload");
+		return segment(new Source() {
+			public int read(byte[] buffer, int length)
+			{
+				int count = Math.min(length, upload.remaining());
+				upload.get(buffer, 0, count);
+				return count;
+			}
+		});
+	}
+
+	/// <summary>Segments a file from the position of the channel to its end, memory-mapped region by region.</summary>
+	/// <param name="file">The file, its position is moved to its end.</param>
+	/// <returns>The number of packets.</returns>
+	public int Segment(final FileChannel file) throws ArgumentNullException, IOException, InterruptedException
+	{
+		if(file == null)
+			throw new ArgumentNullException("file");
+		final long size = file.size();
+		int count = segment(new Source() {
+			private long position = file.position();
+			private MappedByteBuffer region;
+
+			public int read(byte[] buffer, int length) throws IOException
+			{
+				int count = 0;
+				while(count < length)
+				{
+					if(region == null || !region.hasRemaining())
+					{
+						if(position >= size)
+							break;
+						long regionLength = Math.min(MappedRegionLength, size - position);
+						region = file.map(FileChannel.MapMode.READ_ONLY, position, regionLength);
+						position += regionLength;
+					}
+					int read = Math.min(length - count, region.remaining());
+					region.get(buffer, count, read);
+					count += read;
+				}
+				return count;
+			}
+		});
+		file.position(size);
+		return count;
+	}
+
+	/// <summary>Reads the segments one ahead, to flag the last one, and encodes them in order.</summary>
+	private int segment(Source source) throws IOException, InterruptedException
+	{
+		int packetCount = 0;
+		Slot readAhead = null;
+		try
+		{
+			for(;;)
+			{
+				Slot slot = takeSlot();
+				int length = source.read(slot.data, segmentDataLength);
+				if(length == 0)
+				{
+					freeSlots.add(slot);
+					break;
+				}
+				if(length < segmentDataLength)
+					slot.telecommand.setData(Arrays.copyOf(slot.data, length));
+				else
+					slot.telecommand.setData(slot.data);
+
+				if(readAhead != null)
+					submit(readAhead, packetCount++ == 0 ? SequenceFlagsType.FirstPacket : SequenceFlagsType.ContinuationPacket);
+				readAhead = slot;
+				if(length < segmentDataLength)
+					break;
+			}
+			if(readAhead != null)
+			{
+				submit(readAhead, packetCount++ == 0 ? SequenceFlagsType.StandAlone : SequenceFlagsType.LastPacket);
+				readAhead = null;
+			}
+			while(!pendingSlots.isEmpty())
+				complete(pendingSlots.poll());
+			return packetCount;
+		}
+		finally
+		{
+			// On failure, drop the segments still in flight so that the next upload starts clean
+			if(readAhead != null)
+				freeSlots.add(readAhead);
+			for(Slot slot : pendingSlots)
+				release(slot);
+			pendingSlots.clear();
+		}
+	}
+
+	/// <summary>Frees a slot of a failed upload, replacing it if a worker may still be encoding into it.</summary>
+	private void release(Slot slot)
+	{
+		if(slot.future == null || slot.future.isDone())
+		{
+			freeSlots.add(slot);
+			return;
+		}
+		// cancel does not stop a running worker, which must not share its buffers with the next upload
+		slot.future.cancel(false);
+		try
+		{
+			freeSlots.add(new Slot());
+		}
+		catch(ArgumentOutOfRangeException e)
+		{
+			// The APID was checked by the constructor
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/// <summary>Gets a free slot, passing the oldest packet in flight to the listener if none is free.</summary>
+	private Slot takeSlot() throws IOException, InterruptedException
+	{
+		if(freeSlots.isEmpty())
+			complete(pendingSlots.poll());
+		return freeSlots.poll();
+	}
+
+	/// <summary>Numbers and flags a segment, then encodes it in the calling thread or a worker.</summary>
+	private void submit(Slot slot, SequenceFlagsType sequenceFlags) throws IOException
+	{
+		try
+		{
+			slot.telecommand.setSequenceFlags(sequenceFlags);
+			slot.telecommand.setSequenceCount(sequenceCount);
+		}
+		catch(ArgumentOutOfRangeException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		sequenceCount = (sequenceCount + 1) & 0x3FFF;
+
+		pendingSlots.add(slot);
+		if(executor != null)
+		{
+			slot.future = executor.submit(slot);
+			return;
+		}
+		try
+		{
+			slot.future = null;
+			slot.packetLength = slot.call();
+		}
+		catch(Exception e)
+		{
+			throw new IllegalStateException("The segment could not be encoded.", e);
+		}
+	}
+
+	/// <summary>Waits for the oldest segment in flight and passes its packet to the listener.</summary>
+	private void complete(Slot slot) throws IOException, InterruptedException
+	{
+		if(slot.future != null)
+		{
+			try
+			{
+				slot.packetLength = slot.future.get();
+			}
+			catch(ExecutionException e)
+			{
+				freeSlots.add(slot);
+				throw new IllegalStateException("The segment could not be encoded.", e.getCause());
+			}
+			catch(InterruptedException e)
+			{
+				release(slot);
+				throw e;
+			}
+			slot.future = null;
+		}
+		// The slot is free again even if the listener fails
+		freeSlots.add(slot);
+		listener.SegmentEncoded(slot.packet, 0, slot.packetLength);
+	}
+}
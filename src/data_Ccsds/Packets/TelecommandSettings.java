@@ -1,8 +1,5 @@
 package data_Ccsds.Packets;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import data_Ccsds.ParameterCode.ParameterCode;
 
 
@@ -42,7 +39,8 @@ public class TelecommandSettings
 	}
 
 	/// <summary>Telecommand Application Data: Function ID</summary>
-	public Map<Integer, ParameterCode> FunctionIdPcPerApid;
+	/// <value>Key : Apid, Value : The parameter code. APIDs absent from the map use <see cref="DefaultFunctionIdPc"/>.</value>
+	public ApidMap<ParameterCode> FunctionIdPcPerApid;
 
 	/// <summary>ChecksumType (CRC or ISO)</summary>
 	public ChecksumType ChecksumType; 
@@ -56,6 +54,6 @@ public class TelecommandSettings
 	/// <summary>Initializes a new instance of the <see cref="TelecommandSettings"/> class.</summary>
 	public TelecommandSettings()
 	{
-		FunctionIdPcPerApid = new HashMap <Integer, ParameterCode>();
+		FunctionIdPcPerApid = new ApidMap<ParameterCode>();
 	}
 }
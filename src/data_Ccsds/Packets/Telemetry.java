@@ -4,8 +4,6 @@ import java.io.UnsupportedEncodingException;
 
 import data.NotImplementedException;
 import data_Ccsds.Function.ArgumentNullException;
-import data_Ccsds.ParameterCode.ParameterCode;
-import data_Ccsds.ParameterCode.ParameterConverter;
 
 /// <summary>PUS telemetry packet.</summary>
 public class Telemetry extends CcsdsPacket
@@ -62,14 +60,14 @@ public class Telemetry extends CcsdsPacket
     /// <value><c>true</c> if this instance has a Packet Error Control field; otherwise, <c>false</c>.</value>
     public boolean HasPacketErrorControlField()
     {
-        return EffectiveSettings.HasPacketErrorControl;
+        return effectiveSettings().HasPacketErrorControl;
     }
 
     /// <summary>Gets the alignment of the Packet Data Field in bytes.</summary>
     /// <value>he alignment of the Packet Data Field in bytes.</value>
     public int PacketDataFieldAlignment;
     public int getPacketDataFieldAlignment() {
-        PacketDataFieldAlignment=EffectiveSettings.DataFieldPadding;	
+        PacketDataFieldAlignment=effectiveSettings().DataFieldPadding;	
         return PacketDataFieldAlignment;
     }
 
@@ -78,9 +76,9 @@ public class Telemetry extends CcsdsPacket
     /// <remarks>
     /// These settings apply to all threads if not overriden by per-thread settings using the <see cref="Settings"/> property.
     /// 
-    /// If you want to get the effective settings, use <see cref="EffectiveSettings"/> instead.
+    /// If you want to get the effective settings, use <see cref="getEffectiveSettings"/> instead.
     /// </remarks>
-    public static TelemetrySettings GlobalSettings = null; 
+    public static volatile TelemetrySettings GlobalSettings = null; 
     public static TelemetrySettings getGlobalSettings() {
         return GlobalSettings;
     }
@@ -94,27 +92,57 @@ public class Telemetry extends CcsdsPacket
     /// <remarks>
     /// These settings are per-thread. If not set, <see cref="GlobalSettings"/> will be used.
     /// 
-    /// If you just want to get the effective settings, use <see cref="EffectiveSettings"/> instead.
+    /// If you just want to get the effective settings, use <see cref="getEffectiveSettings"/> instead.
     /// </remarks>
-    private static TelemetrySettings Settings = null;
+    private static final ThreadLocal<TelemetrySettings> Settings = new ThreadLocal<TelemetrySettings>();
     public static TelemetrySettings getSettings() {
-        return Settings;
+        return Settings.get();
     }
 
     public static void setSettings(TelemetrySettings settings) {
-        Settings = settings;
+        if(settings == null)
+            Settings.remove();
+        else
+            Settings.set(settings);
     }
 
-    /// <summary>Gets the effective telemetry settings.</summary>
-    public static TelemetrySettings EffectiveSettings;
+    private static final String NoSettingsMessage = "No telemetry settings have been set using either Telemetry.GlobalSettings or Telemetry.Settings.";
+
+    /// <summary>Gets the effective telemetry settings of the current thread.</summary>
     public static TelemetrySettings getEffectiveSettings() throws InvalidOperationException {
-        if(Settings != null)
-            return Settings;
-        else if(GlobalSettings != null)
-            return GlobalSettings;
-        else
-            throw new InvalidOperationException("No telemetry settings have been set using either Telemetry.GlobalSettings or Telemetry.Settings.");
+        TelemetrySettings settings = resolveEffectiveSettings();
+        if(settings == null)
+            throw new InvalidOperationException(NoSettingsMessage);
+        return settings;
+    }
+
+    /// <summary>Gets the effective telemetry settings of the current thread, or <c>null</c> if there are none.</summary>
+    public static TelemetrySettings resolveEffectiveSettings() {
+        TelemetrySettings settings = Settings.get();
+        return settings != null ? settings : GlobalSettings;
+    }
+
+    /// <summary>The settings this packet is encoded and decoded with.</summary>
+    /// <remarks>
+    /// Packets read with <see cref="FromBuffer(byte[], int, TelemetrySettings)"/> are bound to the settings used.
+    /// When <c>null</c>, the effective settings of the calling thread are used.
+    /// </remarks>
+    private TelemetrySettings boundSettings;
+    public TelemetrySettings getBoundSettings() {
+        return boundSettings;
+    }
+
+    public void setBoundSettings(TelemetrySettings settings) {
+        boundSettings = settings;
+    }
 
+    /// <summary>Gets the settings of this packet: the bound settings, or else the effective ones.</summary>
+    /// <exception cref="IllegalStateException">The packet is not bound and no settings have been set.</exception>
+    private TelemetrySettings effectiveSettings() {
+        TelemetrySettings settings = boundSettings != null ? boundSettings : resolveEffectiveSettings();
+        if(settings == null)
+            throw new IllegalStateException(NoSettingsMessage);
+        return settings;
     }
 
     /// <summary>Distinguish between telecommand (=1/<c>true</c>) and telemetry (=0/<c>false</c>) packets.</summary>
@@ -129,13 +157,13 @@ public class Telemetry extends CcsdsPacket
 
     //#region Constructors
     /// <summary>Initializes a new instance of the <see cref="Telemetry"/> class.</summary>
-    public Telemetry() {super(); }
+    public Telemetry() {super(); setType(false); }
 
     /// <summary>Initializes a new instance of the <see cref="Telemetry"/> class.</summary>
     /// <param name="applicationProcessId">The Application Process ID (APID).</param>
     public Telemetry(int applicationProcessId) throws ArgumentOutOfRangeException
     {
-        super();
+        this();
         setApplicationProcessId(applicationProcessId);
     }
 
@@ -145,6 +173,7 @@ public class Telemetry extends CcsdsPacket
     /// <param name="serviceSubtype">The Service Subtype.</param>
     public Telemetry(int applicationProcessId, byte serviceType, byte serviceSubtype) throws ArgumentOutOfRangeException
     {
+        this();
         setApplicationProcessId(applicationProcessId);
         ServiceType = serviceType;
         ServiceSubtype = serviceSubtype;
@@ -157,6 +186,7 @@ public class Telemetry extends CcsdsPacket
     /// <param name="sequenceCount">The Sequence Count.</param>
     public Telemetry(int applicationProcessId, byte serviceType, byte serviceSubtype, int sequenceCount) throws ArgumentOutOfRangeException
     {
+        this();
         setApplicationProcessId(applicationProcessId);
         ServiceType = serviceType;
         ServiceSubtype = serviceSubtype;
@@ -169,46 +199,7 @@ public class Telemetry extends CcsdsPacket
     /// <returns>The length of the Data Field Header.</returns>
     protected int ComputeDataFieldHeaderLength() throws NotSupportedException
     {
-        return (int)(3 + computeDfhOptionalFieldsLength());
-    }
-
-    /// <summary>Calculates the length of the Data Field Header optional fields.</summary>
-    /// <returns>The length of Data Field Header optional fields.</returns>
-    private int computeDfhOptionalFieldsLength() throws NotSupportedException
-    {
-        TelemetrySettings settings = EffectiveSettings;
-
-        int optionalFieldsLength = 0;
-
-        // Packet Subcounter
-        if(settings.HasPacketSubcounter)
-            optionalFieldsLength += 1;
-
-        // Destination ID (only Enumerated PFCs with an integral number of bytes supported or padded _after_)
-        ParameterCode destinationIdPc = settings.DestinationIdPc;
-        if(destinationIdPc != null)
-            optionalFieldsLength += ParameterConverter.GetByteSize(destinationIdPc);
-
-        // Time
-        ParameterCode timePc;
-        if (settings.TimePcPerApid.containsKey (ApplicationProcessId)) {
-            timePc = settings.TimePcPerApid.get (ApplicationProcessId);
-        }
-        else {
-            timePc = settings.DefaultTimePc;
-        }
-        if(timePc != null)
-            optionalFieldsLength += ParameterConverter.GetBitsSize (timePc);
-
-        // Spare / DFH alignment
-        int dfhAlignment = settings.DataFieldHeaderPadding; // alignment in bytes
-        if(dfhAlignment != 0)
-        {
-            int dfhLength = optionalFieldsLength + 3; // Compute current length of DHF
-            optionalFieldsLength += (dfhAlignment - (dfhLength % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
-        }
-
-        return ((int)optionalFieldsLength);
+        return effectiveSettings().getLayout(ApplicationProcessId).DataFieldHeaderLength;
     }
 
     /// <summary>Convert the Data Field Header field of the current <see cref="CcsdsPacket"/> instance to bytes into the specified buffer.</summary>
@@ -218,58 +209,31 @@ public class Telemetry extends CcsdsPacket
     /// <exception cref="System.ArgumentOutOfRangeException">The buffer is too small to put the data at the specified offset.</exception>
     protected int WriteDataFieldHeaderToBuffer(byte[] buffer, int start) throws UnsupportedEncodingException, NotSupportedException, ArgumentNullException, ArgumentOutOfRangeException
     {
-        TelemetrySettings settings = EffectiveSettings;
-
-        int index = start;
+        TelemetryLayout layout = effectiveSettings().getLayout(ApplicationProcessId);
 
         // Telemetry Packet PUS Version Number = 1 (1 byte)
-        buffer[index++] = 0x10;
+        buffer[start] = 0x10;
 
         // Service Type (1 byte)
-        buffer[index++] = ServiceType;
+        buffer[start + 1] = ServiceType;
 
         // Service Subtype (1 byte)
-        buffer[index++] = ServiceSubtype;
+        buffer[start + 2] = ServiceSubtype;
 
         // Packet Subcounter (0/1 byte)
-        if(settings.HasPacketSubcounter)
-            buffer[index++] = PacketSubcounter;
+        if(layout.SubcounterOffset >= 0)
+            buffer[start + layout.SubcounterOffset] = PacketSubcounter;
 
         // Destination ID (only Enumerated PFCs with an integral number of bytes supported or padded _after_)
-        ParameterCode destinationIdPc = settings.DestinationIdPc;
-        if(destinationIdPc != null)
-        {
-            int insertedBits = ParameterConverter.InsertValue(buffer,
-                                                              index * 8,
-                                                              DestinationId,
-                                                              destinationIdPc);
-            index += ParameterConverter.GetByteSize(insertedBits);
-        }
+        if(layout.DestinationIdCodec != null)
+            layout.DestinationIdCodec.InsertLong(buffer, (start + layout.DestinationIdOffset) * 8, DestinationId);
 
         // Time
-        ParameterCode timePc;
-        if (settings.TimePcPerApid.containsKey (ApplicationProcessId)) {
-            timePc = settings.TimePcPerApid.get (ApplicationProcessId);
-        }
-        else {
-            timePc = settings.DefaultTimePc;
-        }
-        if(timePc != null)
-        {
-            int insertedBits = ParameterConverter.InsertValue(buffer, index * 8, Time, timePc);
-            index += ParameterConverter.GetByteSize(insertedBits);
-        }
-
-        // DFH Spare (alignment)
-        int dfhAlignment = settings.DataFieldHeaderPadding; // alignment in bytes
-        if(dfhAlignment != 0)
-        {
-            int dfhLength = index - start; // Compute current length of DHF
-            index += (dfhAlignment - (dfhLength % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
-        }
-
-        // Return number of bytes written
-        return index - start;
+        if(layout.TimeCodec != null)
+            layout.TimeCodec.InsertTimeTicks(buffer, (start + layout.TimeOffset) * 8, Time.Ticks);
+
+        // Return number of bytes written, DFH Spare (alignment) included
+        return layout.DataFieldHeaderLength;
     }
 
     /// <summary>Reads a <see cref="Telemetry"/> packet from a buffer.</summary>
@@ -284,67 +248,69 @@ public class Telemetry extends CcsdsPacket
     /// <param name="buffer">The buffer containing the <see cref="Telemetry"/> packet.</param>
     /// <param name="start">The index in bytes of the start of the <see cref="Telemetry"/> packet in the buffer.</param>
     /// <returns>The read <see cref="Telemetry"/> packet.</returns>
+    /// <exception cref="IllegalStateException">No settings have been set for the current thread.</exception>
     public static Telemetry FromBuffer(byte[] buffer, int start) throws ArgumentNullException, ArgumentException, InvalidChecksumException, NotSupportedException, NotImplementedException
     {
-        TelemetrySettings settings = EffectiveSettings;
+        TelemetrySettings settings = resolveEffectiveSettings();
+        if(settings == null)
+            throw new IllegalStateException(NoSettingsMessage);
+
+        return FromBuffer(buffer, start, settings);
+    }
+
+    /// <summary>Reads a <see cref="Telemetry"/> packet from a buffer using the specified <see cref="TelemetrySettings"/>.</summary>
+    /// <param name="buffer">The buffer containing the <see cref="Telemetry"/> packet.</param>
+    /// <param name="start">The index in bytes of the start of the <see cref="Telemetry"/> packet in the buffer.</param>
+    /// <param name="settings">The <see cref="TelemetrySettings"/> to use to read the packet from the buffer.</param>
+    /// <returns>The read <see cref="Telemetry"/> packet, bound to <paramref name="settings"/>.</returns>
+    /// <remarks>The global and per-thread settings are left untouched, so threads can decode concurrently with different settings.</remarks>
+    public static Telemetry FromBuffer(byte[] buffer, int start, TelemetrySettings settings) throws ArgumentNullException, ArgumentException, InvalidChecksumException, NotSupportedException, NotImplementedException
+    {
+        if(settings == null)
+            throw new ArgumentNullException("settings");
 
         Telemetry telemetry = new Telemetry();
+        telemetry.setType(false);
+        telemetry.boundSettings = settings;
 
         // Get checksum type from settings
         telemetry.checksumType = settings.ChecksumType;
 
-        // Current index in bytes of the decoding (absolute to the start of the buffer) 
-        int index = start;
-
         // Packet Header and PEC check
         telemetry.FillHeadersAndPecFromBuffer(buffer, start);
-        index += CcsdsPacket.HeaderLength;
 
         //#region Data Field Header
+        // Index in bytes of the Data Field Header (absolute to the start of the buffer)
+        int dfhIndex = start + CcsdsPacket.HeaderLength;
+
         // Check TM Packet PUS Version Number (only support 1)
-        int tmSourcePacketPusVersionNumber = (buffer[index++] >> 4) & 0x07;
+        int tmSourcePacketPusVersionNumber = (buffer[dfhIndex] >> 4) & 0x07;
         if(tmSourcePacketPusVersionNumber != 1)
             throw new NotSupportedException("The telemetry packet contained in the buffer refers to an unsupported PUS version "+tmSourcePacketPusVersionNumber+", only 1 is supported." );
 
         // Service Type
-        telemetry.ServiceType = buffer[index++];
+        telemetry.ServiceType = buffer[dfhIndex + 1];
 
         // Service Subtype
-        telemetry.ServiceSubtype = buffer[index++];
+        telemetry.ServiceSubtype = buffer[dfhIndex + 2];
+
+        // Optional fields, at the offsets precomputed for the APID
+        TelemetryLayout layout = settings.getLayout(telemetry.ApplicationProcessId);
 
         // Packet Subcounter
-        if(settings.HasPacketSubcounter)
-            telemetry.PacketSubcounter = buffer[index++];
+        if(layout.SubcounterOffset >= 0)
+            telemetry.PacketSubcounter = buffer[dfhIndex + layout.SubcounterOffset];
 
         // Destination ID (only Enumerated PFCs with an integral number of bytes supported or padded after)
-        ParameterCode destinationIdPc = settings.DestinationIdPc;
-        if(destinationIdPc != null)
-        {
-            telemetry.DestinationId = (long) ParameterConverter.ExtractValue (buffer, destinationIdPc, index * 8); // offset is bytes, need bits!
-            index += ParameterConverter.GetByteSize(ParameterConverter.GetBitsSize(destinationIdPc));
-        }
+        if(layout.DestinationIdCodec != null)
+            telemetry.DestinationId = layout.DestinationIdCodec.ExtractLong(buffer, (dfhIndex + layout.DestinationIdOffset) * 8); // offset is bytes, need bits!
 
         // Time
-        ParameterCode timePc;
-        if (settings.TimePcPerApid.containsKey (telemetry.ApplicationProcessId)) {
-            timePc = settings.TimePcPerApid.get (telemetry.ApplicationProcessId);
-        }
-        else {
-            timePc = settings.DefaultTimePc;
-        }
-        if(timePc != null)
-        {
-            telemetry.Time = (TimeSpan) ParameterConverter.ExtractValue(buffer, timePc, index * 8); // offset is bytes, need bits!
-            index += ParameterConverter.GetByteSize(ParameterConverter.GetBitsSize(timePc)); ;
-        }
-
-        // DFH Spare (alignment)
-        int dfhAlignment = settings.DataFieldHeaderPadding; // alignment in bytes
-        if(dfhAlignment != 0)
-        {
-            int dfhLength = index - (start + CcsdsPacket.HeaderLength); // Compute current length of DHF
-            index += (dfhAlignment - (dfhLength % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
-        }
+        if(layout.TimeCodec != null)
+            telemetry.Time = new TimeSpan(layout.TimeCodec.ExtractTimeTicks(buffer, (dfhIndex + layout.TimeOffset) * 8)); // offset is bytes, need bits!
+
+        // DFH Spare (alignment) is included in the layout's length
+        int index = dfhIndex + layout.DataFieldHeaderLength;
         //#endregion
 
         // Data
@@ -352,36 +318,11 @@ public class Telemetry extends CcsdsPacket
 
         return telemetry;
     }
-
-    /// <summary>Reads a <see cref="Telemetry"/> packet from a buffer using the specified <see cref="TelemetrySettings"/>.</summary>
-    /// <param name="buffer">The buffer containing the <see cref="Telemetry"/> packet.</param>
-    /// <param name="start">The index in bytes of the start of the <see cref="Telemetry"/> packet in the buffer.</param>
-    /// <param name="settings">The <see cref="TelemetrySettings"/> to use to read the packet from the buffer.</param>
-    /// <returns>The read <see cref="Telemetry"/> packet.</returns>
-    public static Telemetry FromBuffer(byte[] buffer, int start, TelemetrySettings settings) throws ArgumentNullException, ArgumentException, InvalidChecksumException, NotSupportedException, NotImplementedException
-    {
-        // Save old settings and apply new ones
-        TelemetrySettings oldSettings = Telemetry.Settings;
-        Telemetry.Settings = settings;
-
-        Telemetry telemetry;
-        try
-        {
-            // Read telemetry
-            telemetry = FromBuffer(buffer, start);
-        }
-        finally
-        {
-            // Put settings back
-            Telemetry.Settings = oldSettings;
-        }
-        return telemetry;
-    }
     //#endregion
 
     @Override
     public int PacketDataFieldAlignment() {
-        PacketDataFieldAlignment=EffectiveSettings.DataFieldPadding;	
+        PacketDataFieldAlignment=effectiveSettings().DataFieldPadding;	
         return PacketDataFieldAlignment;
     }
 }
@@ -0,0 +1,64 @@
+package data_Ccsds.Packets;
+
+import data_Ccsds.ParameterCode.ParameterCode;
+import data_Ccsds.ParameterCode.ParameterCodec;
+
+/// <summary>Position of the Data Field Header fields of the telemetry packets of an APID.</summary>
+/// <remarks>
+/// Offsets are in bytes from the start of the Data Field Header, i.e. from the byte following
+/// the 6 bytes of the Packet Header. Layouts are immutable, see <see cref="TelemetrySettings.getLayout"/>.
+/// </remarks>
+public final class TelemetryLayout
+{
+	/// <summary>Offset of the Packet Subcounter field; or -1 if the field is not present.</summary>
+	public final int SubcounterOffset;
+
+	/// <summary>Offset of the Destination ID field.</summary>
+	public final int DestinationIdOffset;
+
+	/// <summary>Codec of the Destination ID field; or <c>null</c> if the field is not present.</summary>
+	public final ParameterCodec DestinationIdCodec;
+
+	/// <summary>Offset of the Time field.</summary>
+	public final int TimeOffset;
+
+	/// <summary>Codec of the Time field; or <c>null</c> if the field is not present.</summary>
+	public final ParameterCodec TimeCodec;
+
+	/// <summary>Length of the Data Field Header in bytes, including the spare used for alignment.</summary>
+	public final int DataFieldHeaderLength;
+
+	/// <summary>Initializes a new instance of the <see cref="TelemetryLayout"/> class.</summary>
+	/// <param name="settings">The settings defining the optional fields.</param>
+	/// <param name="timePc">The time parameter code of the APID; or <c>null</c> if there is no Time field.</param>
+	TelemetryLayout(TelemetrySettings settings, ParameterCode timePc) throws NotSupportedException
+	{
+		// PUS Version Number, Service Type and Service Subtype
+		int offset = 3;
+
+		// Packet Subcounter
+		if(settings.HasPacketSubcounter)
+			SubcounterOffset = offset++;
+		else
+			SubcounterOffset = -1;
+
+		// Destination ID (only Enumerated PFCs with an integral number of bytes supported or padded _after_)
+		DestinationIdOffset = offset;
+		DestinationIdCodec = settings.DestinationIdPc != null ? settings.DestinationIdPc.getCodec() : null;
+		if(DestinationIdCodec != null)
+			offset += DestinationIdCodec.getByteSize();
+
+		// Time
+		TimeOffset = offset;
+		TimeCodec = timePc != null ? timePc.getCodec() : null;
+		if(TimeCodec != null)
+			offset += TimeCodec.getByteSize();
+
+		// Spare / DFH alignment
+		int dfhAlignment = settings.DataFieldHeaderPadding; // alignment in bytes
+		if(dfhAlignment != 0)
+			offset += (dfhAlignment - (offset % dfhAlignment)) % dfhAlignment; // Add missing byte count to align
+
+		DataFieldHeaderLength = offset;
+	}
+}
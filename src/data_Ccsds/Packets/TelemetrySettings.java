@@ -1,6 +1,6 @@
 package data_Ccsds.Packets;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import data_Ccsds.ParameterCode.ParameterCode;
@@ -15,6 +15,7 @@ public class TelemetrySettings
 		return HasPacketErrorControl;
 	}
 	public void setHasPacketErrorControl(boolean hasPacketErrorControl) {
+		ensureNotFrozen();
 		HasPacketErrorControl = hasPacketErrorControl;
 	}
 
@@ -24,6 +25,7 @@ public class TelemetrySettings
 		return ChecksumType;
 	}
 	public void setChecksumType(ChecksumType checksumType) {
+		ensureNotFrozen();
 		ChecksumType = checksumType;
 	}
 
@@ -34,6 +36,7 @@ public class TelemetrySettings
 		return HasPacketSubcounter;
 	}
 	public void setHasPacketSubcounter(boolean hasPacketSubcounter) {
+		ensureNotFrozen();
 		HasPacketSubcounter = hasPacketSubcounter;
 	}
 
@@ -46,8 +49,8 @@ public class TelemetrySettings
 	public ParameterCode DefaultTimePc;
 
 	/// <summary>Telemetry Header: Data Field Header - Field: Time</summary>
-	/// <value>Key : Apid, Value : Null: Field not present, else The parameter code</value>
-	public Map<Integer, ParameterCode> TimePcPerApid;
+	/// <value>Key : Apid, Value : Null: Field not present, else The parameter code. APIDs absent from the map use <see cref="DefaultTimePc"/>.</value>
+	public ApidMap<ParameterCode> TimePcPerApid;
 
 	/// <summary>Telemetry Header: Data Field Header - Field: Spare - Alignment of DHF in bytes.</summary>
 	public byte DataFieldHeaderPadding; 
@@ -55,6 +58,7 @@ public class TelemetrySettings
 		return DataFieldHeaderPadding;
 	}
 	public void setDataFieldHeaderPadding(byte dataFieldHeaderPadding) {
+		ensureNotFrozen();
 		DataFieldHeaderPadding = dataFieldHeaderPadding;
 	}
 
@@ -64,13 +68,90 @@ public class TelemetrySettings
 		return DataFieldPadding;
 	}
 	public void setDataFieldPadding(byte dataFieldPadding) {
+		ensureNotFrozen();
 		DataFieldPadding = dataFieldPadding;
 	}
 
+	/// <summary>Layout of each APID, set when the settings are frozen.</summary>
+	private volatile TelemetryLayout[] layoutPerApid;
+
+	/// <summary>Gets a value indicating whether the settings have been frozen by <see cref="freeze"/>.</summary>
+	public boolean isFrozen() {
+		return layoutPerApid != null;
+	}
+
+	/// <summary>Freezes the settings and precomputes the Data Field Header layout of every APID.</summary>
+	/// <remarks>
+	/// After this call the setters throw and <see cref="TimePcPerApid"/> is read-only. The public
+	/// fields must not be modified anymore either, as the layouts would not reflect the change.
+	/// Freezing is idempotent.
+	/// </remarks>
+	/// <returns>This instance.</returns>
+	public synchronized TelemetrySettings freeze() throws NotSupportedException
+	{
+		if(isFrozen())
+			return this;
+
+		TimePcPerApid.freeze();
+
+		// APIDs sharing a time parameter code share their layout
+		Map<ParameterCode, TelemetryLayout> layoutPerTimePc = new IdentityHashMap<ParameterCode, TelemetryLayout>();
+		TelemetryLayout noTimeLayout = null;
+		TelemetryLayout[] layouts = new TelemetryLayout[ApidMap.Capacity];
+		for(int apid = 0 ; apid < ApidMap.Capacity ; apid++)
+		{
+			ParameterCode timePc = getTimePc(apid);
+			TelemetryLayout layout;
+			if(timePc == null)
+			{
+				if(noTimeLayout == null)
+					noTimeLayout = new TelemetryLayout(this, null);
+				layout = noTimeLayout;
+			}
+			else
+			{
+				layout = layoutPerTimePc.get(timePc);
+				if(layout == null)
+				{
+					layout = new TelemetryLayout(this, timePc);
+					layoutPerTimePc.put(timePc, layout);
+				}
+			}
+			layouts[apid] = layout;
+		}
+		layoutPerApid = layouts;
+		return this;
+	}
+
+	/// <summary>Gets the Time field's parameter code of an APID.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <returns>The parameter code; or <c>null</c> if the packets of the APID have no Time field.</returns>
+	public ParameterCode getTimePc(int apid)
+	{
+		return TimePcPerApid.get(apid, DefaultTimePc);
+	}
+
+	/// <summary>Gets the Data Field Header layout of the packets of an APID.</summary>
+	/// <param name="apid">The Application Process ID.</param>
+	/// <returns>The layout, looked up in the precomputed table if the settings are frozen, computed otherwise.</returns>
+	public TelemetryLayout getLayout(int apid) throws NotSupportedException
+	{
+		TelemetryLayout[] layouts = layoutPerApid;
+		if(layouts != null)
+			return layouts[apid & (ApidMap.Capacity - 1)];
+		return new TelemetryLayout(this, getTimePc(apid));
+	}
+
+	private void ensureNotFrozen()
+	{
+		if(isFrozen())
+			throw new IllegalStateException("The telemetry settings are frozen.");
+	}
+
 	/// <summary>Initializes a new instance of the <see cref="TelemetrySettings"/> class.</summary>
 	public TelemetrySettings()
 	{
-		TimePcPerApid = new HashMap<Integer,ParameterCode>();
+		TimePcPerApid = new ApidMap<ParameterCode>();
 
 		// Default values
 		HasPacketErrorControl = true;
@@ -0,0 +1,207 @@
+package data_Ccsds.Packets;
+
+import data.NotImplementedException;
+import data_Ccsds.Function.ArgumentNullException;
+
+/// <summary>Reusable, read-only view of a PUS telemetry packet held in a receive buffer.</summary>
+/// <remarks>
+/// Unlike <see cref="Telemetry.FromBuffer"/>, wrapping a packet allocates nothing: the header
+/// fields are decoded into primitives and the source data is exposed as a slice of the
+/// original buffer. The view is only valid as long as the buffer content is not overwritten,
+/// and a single instance must not be shared between threads. With frozen settings (see
+/// <see cref="TelemetrySettings.freeze"/>) the field offsets are looked up in a table; otherwise the
+/// layout of the last APID is memoized, so settings modified after a packet of that APID was wrapped
+/// are only seen once a packet of another APID is.
+/// </remarks>
+public class TelemetryView
+{
+    /// <summary>The settings used to decode the Data Field Header.</summary>
+    private final TelemetrySettings settings;
+
+    /// <summary>Last APID for which the layout was computed from unfrozen settings.</summary>
+    private int cachedApid = -1;
+    private TelemetryLayout cachedLayout;
+
+    private byte[] buffer;
+    private int start;
+    private int packetLength;
+
+    private int applicationProcessId;
+    private int sequenceFlags;
+    private int sequenceCount;
+    private byte serviceType;
+    private byte serviceSubtype;
+    private byte packetSubcounter;
+    private long destinationId;
+    private boolean hasTime;
+    private long timeTicks;
+    private int dataOffset;
+    private int dataLength;
+
+    /// <summary>Initializes a new instance of the <see cref="TelemetryView"/> class.</summary>
+    /// <param name="settings">The <see cref="TelemetrySettings"/> used to decode the wrapped packets.</param>
+    public TelemetryView(TelemetrySettings settings) throws ArgumentNullException
+    {
+        if(settings == null)
+            throw new ArgumentNullException("settings");
+        this.settings = settings;
+    }
+
+    /// <summary>Points the view at the telemetry packet starting at the specified index.</summary>
+    /// <param name="buffer">The buffer containing the <see cref="Telemetry"/> packet.</param>
+    /// <param name="start">The index in bytes of the start of the packet in the buffer.</param>
+    /// <remarks>The Packet Error Control is not checked, use <see cref="IsPacketErrorControlValid"/>.</remarks>
+    public void Wrap(byte[] buffer, int start) throws ArgumentNullException, ArgumentException, NotSupportedException
+    {
+        if(buffer == null)
+            throw new ArgumentNullException("buffer");
+
+        // Buffer big enough to at least have CCSDS Header and a PEC?
+        int pecLength = settings.HasPacketErrorControl ? 2 : 0;
+        if(start < 0 || (start + CcsdsPacket.HeaderLength + pecLength) > buffer.length)
+            throw new ArgumentException("The buffer is too small to contain a packet at specified index.");
+
+        int packetDataFieldLength = (((buffer[start + 4] & 0xFF) << 8) | (buffer[start + 5] & 0xFF)) + 1;
+        if((start + CcsdsPacket.HeaderLength + packetDataFieldLength) > buffer.length)
+            throw new ArgumentException("The buffer is too small to contain the packet at specified index (missing " + ((start + CcsdsPacket.HeaderLength + packetDataFieldLength) - buffer.length) + " bytes).");
+
+        // Check Version Number = 0, Type = telemetry and Data Field Header Flag = 1
+        if((buffer[start] & 0xF8) != 0x08)
+            throw new NotSupportedException("The buffer does not contain a version 0 telemetry packet with a Data Field Header at specified index.");
+
+        int dfhIndex = start + CcsdsPacket.HeaderLength;
+
+        // Check TM Packet PUS Version Number (only support 1)
+        int pusVersionNumber = (buffer[dfhIndex] >> 4) & 0x07;
+        if(pusVersionNumber != 1)
+            throw new NotSupportedException("The telemetry packet contained in the buffer refers to an unsupported PUS version " + pusVersionNumber + ", only 1 is supported.");
+
+        this.buffer = buffer;
+        this.start = start;
+        this.packetLength = CcsdsPacket.HeaderLength + packetDataFieldLength;
+
+        // Packet Header
+        applicationProcessId = ((buffer[start] & 0x07) << 8) | (buffer[start + 1] & 0xFF);
+        sequenceFlags = (buffer[start + 2] & 0xC0) >> 6;
+        sequenceCount = ((buffer[start + 2] & 0x3F) << 8) | (buffer[start + 3] & 0xFF);
+
+        // Service Type and Subtype
+        serviceType = buffer[dfhIndex + 1];
+        serviceSubtype = buffer[dfhIndex + 2];
+
+        TelemetryLayout layout = resolveLayout(applicationProcessId);
+
+        // Packet Subcounter
+        packetSubcounter = layout.SubcounterOffset >= 0 ? buffer[dfhIndex + layout.SubcounterOffset] : 0;
+
+        // Destination ID (only Enumerated PFCs with an integral number of bytes supported or padded after)
+        destinationId = 0;
+        if(layout.DestinationIdCodec != null)
+            destinationId = layout.DestinationIdCodec.ExtractLong(buffer, (dfhIndex + layout.DestinationIdOffset) * 8);
+
+        // Time
+        hasTime = layout.TimeCodec != null;
+        timeTicks = 0;
+        if(hasTime)
+            timeTicks = layout.TimeCodec.ExtractTimeTicks(buffer, (dfhIndex + layout.TimeOffset) * 8);
+
+        // DFH Spare (alignment) is included in the layout's length
+        int index = dfhIndex + layout.DataFieldHeaderLength;
+
+        // Data (PDF Spare is part of the data, as in Telemetry.FromBuffer)
+        dataOffset = index;
+        dataLength = Math.max(0, start + packetLength - pecLength - index);
+    }
+
+    private TelemetryLayout resolveLayout(int apid) throws NotSupportedException
+    {
+        if(settings.isFrozen())
+            return settings.getLayout(apid);
+        if(apid != cachedApid)
+        {
+            cachedLayout = settings.getLayout(apid);
+            cachedApid = apid;
+        }
+        return cachedLayout;
+    }
+
+    /// <summary>Checks the Packet Error Control field of the wrapped packet.</summary>
+    /// <returns><c>true</c> if the packet has no PEC field or if the PEC matches; otherwise <c>false</c>.</returns>
+    public boolean IsPacketErrorControlValid() throws ArgumentException, NotImplementedException
+    {
+        if(!settings.HasPacketErrorControl)
+            return true;
+        return getPacketErrorControl() == CcsdsPacket.ComputeChecksum(buffer, start, packetLength - 2, settings.ChecksumType);
+    }
+
+    /// <summary>Gets the buffer the view is pointing at.</summary>
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /// <summary>Gets the index in bytes of the start of the packet in the buffer.</summary>
+    public int getStart() {
+        return start;
+    }
+
+    /// <summary>Gets the length of the complete packet in bytes.</summary>
+    public int getCompletePacketLength() {
+        return packetLength;
+    }
+
+    public int getApplicationProcessId() {
+        return applicationProcessId;
+    }
+
+    public int getSequenceFlags() {
+        return sequenceFlags;
+    }
+
+    public int getSequenceCount() {
+        return sequenceCount;
+    }
+
+    public byte getServiceType() {
+        return serviceType;
+    }
+
+    public byte getServiceSubtype() {
+        return serviceSubtype;
+    }
+
+    public byte getPacketSubcounter() {
+        return packetSubcounter;
+    }
+
+    public long getDestinationId() {
+        return destinationId;
+    }
+
+    /// <summary>Gets a value indicating whether the packet has a Time field.</summary>
+    public boolean hasTime() {
+        return hasTime;
+    }
+
+    /// <summary>Gets the Time field's value in ticks (see <see cref="TimeSpan.Ticks"/>).</summary>
+    public long getTimeTicks() {
+        return timeTicks;
+    }
+
+    /// <summary>Gets the index in bytes of the Source Data in the buffer.</summary>
+    public int getDataOffset() {
+        return dataOffset;
+    }
+
+    /// <summary>Gets the length in bytes of the Source Data.</summary>
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    /// <summary>Gets the Packet Error Control field's value, 0 if the packet has none.</summary>
+    public int getPacketErrorControl() {
+        if(!settings.HasPacketErrorControl)
+            return 0;
+        int pecIndex = start + packetLength - 2;
+        return ((buffer[pecIndex] & 0xFF) << 8) | (buffer[pecIndex + 1] & 0xFF);
+    }
+}
@@ -4,6 +4,8 @@ public class TimeSpan
 {
     public TimeSpan (long ticks)
     {
+        this.Ticks = ticks;
+
         long remaining_ticks = ticks;
         this.Days = remaining_ticks / TicksPerDay;
         remaining_ticks -= this.Days * TicksPerDay;
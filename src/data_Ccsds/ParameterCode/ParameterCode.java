@@ -1,4 +1,7 @@
 package data_Ccsds.ParameterCode;
+
+import data_Ccsds.Packets.NotSupportedException;
+
 /// <summary>Represents a Parameter Code as defined in chapter 23.3 of the ECSS-E-70-41A standard.</summary>
 public class ParameterCode
 {
@@ -13,6 +16,18 @@ public class ParameterCode
 	public int getPfc() {
 		return Pfc;
 	}
+	/// <summary>The codec of this parameter code, resolved on first use.</summary>
+	private ParameterCodec codec;
+	public ParameterCodec getCodec() throws NotSupportedException {
+		ParameterCodec result = codec;
+		if(result == null || result.getPtc() != Ptc || result.getPfc() != Pfc)
+		{
+			result = ParameterCodec.ForCode(this);
+			codec = result;
+		}
+		return result;
+	}
+
 	/// <summary>Initializes a new instance of the <see cref="ParameterCode"/> class.</summary>
 	/// <param name="ptc">The Parameter Type Code (PTC).</param>
 	/// <param name="pfc">The Format Type Code (PFC).</param>
@@ -45,7 +60,7 @@ public class ParameterCode
 	/// <returns><c>true</c> if the parameter code is valid; otherwise <c>false</c>.</returns>
 	private boolean validate(PtcType ptc, int pfc)
 	{
-		switch(Ptc)
+		switch(ptc)
 		{
 		case NoData:
 			return pfc == 0;
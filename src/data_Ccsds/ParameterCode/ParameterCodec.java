@@ -0,0 +1,360 @@
+package data_Ccsds.ParameterCode;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import data_Ccsds.Function.ArgumentNullException;
+import data_Ccsds.Packets.ArgumentException;
+import data_Ccsds.Packets.ArgumentOutOfRangeException;
+import data_Ccsds.Packets.NotSupportedException;
+
+/// <summary>Encoder/decoder specialised for a single <see cref="ParameterCode"/>.</summary>
+/// <remarks>
+/// The PTC/PFC dispatch done by <see cref="ParameterConverter"/> on every call is resolved
+/// once when the codec is created: the size, signedness and time P-field are stored in
+/// final fields and each PTC family has its own final implementation. Codecs are immutable,
+/// shared between threads and cached per (PTC, PFC) pair, use <see cref="ForCode"/> or
+/// <see cref="ParameterCode.getCodec"/> to get one.
+/// </remarks>
+public abstract class ParameterCodec
+{
+	/// <summary>Codecs already created, keyed by <see cref="ParameterCode.GetHashCode"/>.</summary>
+	private static final ConcurrentHashMap<Integer, ParameterCodec> __codecs = new ConcurrentHashMap<Integer, ParameterCodec>();
+
+	/// <summary>The parameter code the codec was created for.</summary>
+	private final ParameterCode parameterCode;
+
+	/// <summary>The Parameter Type Code (PTC) handled by the codec.</summary>
+	private final PtcType ptc;
+
+	/// <summary>The Parameter Format Code (PFC) handled by the codec.</summary>
+	private final int pfc;
+
+	/// <summary>Size in bits of the values, -1 if variable.</summary>
+	private final int bitsSize;
+
+	/// <summary>Initializes a new instance of the <see cref="ParameterCodec"/> class.</summary>
+	/// <param name="parameterCode">The parameter code handled by the codec.</param>
+	/// <param name="bitsSize">Size in bits of the values, -1 if variable.</param>
+	ParameterCodec(ParameterCode parameterCode, int bitsSize)
+	{
+		this.parameterCode = parameterCode;
+		this.ptc = parameterCode.Ptc;
+		this.pfc = parameterCode.Pfc;
+		this.bitsSize = bitsSize;
+	}
+
+	/// <summary>Gets the codec of the specified parameter code.</summary>
+	/// <param name="parameterCode">The parameter code.</param>
+	/// <returns>The shared codec for the (PTC, PFC) pair of the parameter code.</returns>
+	/// <exception cref="NotSupportedException">The parameter code has no known encoding.</exception>
+	public static ParameterCodec ForCode(ParameterCode parameterCode) throws NotSupportedException
+	{
+		Integer key = parameterCode.GetHashCode();
+		ParameterCodec codec = __codecs.get(key);
+		if(codec == null)
+		{
+			codec = create(parameterCode);
+			ParameterCodec existing = __codecs.putIfAbsent(key, codec);
+			if(existing != null)
+				codec = existing;
+		}
+		return codec;
+	}
+
+	private static ParameterCodec create(ParameterCode parameterCode) throws NotSupportedException
+	{
+		int bitsSize = ParameterConverter.GetBitsSize(parameterCode);
+		switch(parameterCode.Ptc)
+		{
+		case Boolean:
+			return new BooleanCodec(parameterCode);
+		case Enumerated:
+		case UnsignedInteger:
+		case ObtCounter:
+			return new IntegerCodec(parameterCode, bitsSize, false);
+		case SignedInteger:
+			return new IntegerCodec(parameterCode, bitsSize, true);
+		case Real:
+			if(parameterCode.Pfc == 1 || parameterCode.Pfc == 2)
+				return new RealCodec(parameterCode, bitsSize);
+			return new GenericCodec(parameterCode, bitsSize);
+		case AbsoluteTime:
+		case RelativeTime:
+			return new TimeCodec(parameterCode, bitsSize);
+		default:
+			return new GenericCodec(parameterCode, bitsSize);
+		}
+	}
+
+	public PtcType getPtc() {
+		return ptc;
+	}
+
+	public int getPfc() {
+		return pfc;
+	}
+
+	/// <summary>Gets the size in bits of the values, -1 if the size is variable.</summary>
+	public final int getBitsSize() {
+		return bitsSize;
+	}
+
+	/// <summary>Gets the number of bytes needed to store a value, -1 if the size is variable.</summary>
+	public final int getByteSize() {
+		return bitsSize < 0 ? -1 : ParameterConverter.GetByteSize(bitsSize);
+	}
+
+	/// <summary>Gets a value indicating whether the size of the values depends on the data.</summary>
+	public final boolean isVariableLength() {
+		return bitsSize < 0;
+	}
+
+	/// <summary>Gets a value indicating whether the values are signed.</summary>
+	public boolean isSigned() {
+		return false;
+	}
+
+	/// <summary>Gets the implicit time P-field of the values, 0 if not a time or if the P-field is explicit.</summary>
+	public byte getTimePField() {
+		return 0;
+	}
+
+	/// <summary>Gets the size in bits of the value starting at the specified bit of the data.</summary>
+	public int GetBitsSize(byte[] data, int startBit) throws ArgumentNullException, ArgumentOutOfRangeException, NotSupportedException
+	{
+		if(bitsSize >= 0)
+			return bitsSize;
+		return ParameterConverter.GetBitsSize(parameterCode, data, startBit);
+	}
+
+	/// <summary>Extracts a boolean value.</summary>
+	public boolean ExtractBoolean(byte[] data, int startBit) throws NotSupportedException
+	{
+		throw unsupported("a boolean");
+	}
+
+	/// <summary>Extracts an integer value.</summary>
+	public long ExtractLong(byte[] data, int startBit) throws NotSupportedException
+	{
+		throw unsupported("an integer");
+	}
+
+	/// <summary>Extracts a numeric value as a double.</summary>
+	public double ExtractDouble(byte[] data, int startBit) throws NotSupportedException
+	{
+		throw unsupported("a number");
+	}
+
+	/// <summary>Extracts a time value in ticks.</summary>
+	public long ExtractTimeTicks(byte[] data, int startBit) throws NotSupportedException
+	{
+		throw unsupported("a time");
+	}
+
+	/// <summary>Inserts a boolean value, returns the number of bits written.</summary>
+	public int InsertBoolean(byte[] buffer, int startBit, boolean value) throws NotSupportedException
+	{
+		throw unsupported("a boolean");
+	}
+
+	/// <summary>Inserts an integer value, returns the number of bits written.</summary>
+	public int InsertLong(byte[] buffer, int startBit, long value) throws NotSupportedException
+	{
+		throw unsupported("an integer");
+	}
+
+	/// <summary>Inserts a numeric value, returns the number of bits written.</summary>
+	public int InsertDouble(byte[] buffer, int startBit, double value) throws NotSupportedException
+	{
+		throw unsupported("a number");
+	}
+
+	/// <summary>Inserts a time value in ticks, returns the number of bits written.</summary>
+	public int InsertTimeTicks(byte[] buffer, int startBit, long ticks) throws NotSupportedException, ArgumentOutOfRangeException
+	{
+		throw unsupported("a time");
+	}
+
+	/// <summary>Extracts a value as an object, see <see cref="ParameterConverter.ExtractValue"/>.</summary>
+	public Object ExtractValue(byte[] data, int startBit) throws ArgumentNullException, ArgumentException
+	{
+		return ParameterConverter.ExtractValue(data, parameterCode, startBit);
+	}
+
+	/// <summary>Inserts a value given as an object, see <see cref="ParameterConverter.InsertValue"/>.</summary>
+	public int InsertValue(byte[] buffer, int startBit, Object value) throws NotSupportedException, UnsupportedEncodingException, ArgumentNullException, ArgumentOutOfRangeException
+	{
+		return ParameterConverter.InsertValue(buffer, startBit, value, parameterCode);
+	}
+
+	private NotSupportedException unsupported(String kind)
+	{
+		return new NotSupportedException("The parameter code PTC=" + ptc + ", PFC=" + pfc + " is not " + kind + ".");
+	}
+
+	/// <summary>Codec of the Boolean PTC.</summary>
+	private static final class BooleanCodec extends ParameterCodec
+	{
+		BooleanCodec(ParameterCode parameterCode)
+		{
+			super(parameterCode, 1);
+		}
+
+		public boolean ExtractBoolean(byte[] data, int startBit)
+		{
+			return ((data[startBit >>> 3] >>> (7 - (startBit & 7))) & 1) != 0;
+		}
+
+		public long ExtractLong(byte[] data, int startBit)
+		{
+			return ExtractBoolean(data, startBit) ? 1 : 0;
+		}
+
+		public double ExtractDouble(byte[] data, int startBit)
+		{
+			return ExtractBoolean(data, startBit) ? 1 : 0;
+		}
+
+		public int InsertBoolean(byte[] buffer, int startBit, boolean value)
+		{
+			UnalignedData.WriteBits(buffer, startBit, value ? 1 : 0, 1);
+			return 1;
+		}
+
+		public int InsertLong(byte[] buffer, int startBit, long value)
+		{
+			return InsertBoolean(buffer, startBit, value != 0);
+		}
+	}
+
+	/// <summary>Codec of the Enumerated, Unsigned Integer, Signed Integer and OBT Counter PTCs.</summary>
+	private static final class IntegerCodec extends ParameterCodec
+	{
+		private final int bitsSize;
+		private final boolean signed;
+
+		IntegerCodec(ParameterCode parameterCode, int bitsSize, boolean signed)
+		{
+			super(parameterCode, bitsSize);
+			this.bitsSize = bitsSize;
+			this.signed = signed;
+		}
+
+		public boolean isSigned()
+		{
+			return signed;
+		}
+
+		public long ExtractLong(byte[] data, int startBit)
+		{
+			long value = UnalignedData.ReadBits(data, startBit, bitsSize);
+			if(signed)
+				return (value << (64 - bitsSize)) >> (64 - bitsSize);
+			return value;
+		}
+
+		public double ExtractDouble(byte[] data, int startBit)
+		{
+			return ExtractLong(data, startBit);
+		}
+
+		public int InsertLong(byte[] buffer, int startBit, long value)
+		{
+			UnalignedData.WriteBits(buffer, startBit, value, bitsSize);
+			return bitsSize;
+		}
+
+		public int InsertDouble(byte[] buffer, int startBit, double value)
+		{
+			return InsertLong(buffer, startBit, (long)value);
+		}
+	}
+
+	/// <summary>Codec of the IEEE single and double precision Real PTC.</summary>
+	private static final class RealCodec extends ParameterCodec
+	{
+		private final boolean isDouble;
+
+		RealCodec(ParameterCode parameterCode, int bitsSize)
+		{
+			super(parameterCode, bitsSize);
+			this.isDouble = parameterCode.Pfc == 2;
+		}
+
+		public boolean isSigned()
+		{
+			return true;
+		}
+
+		public double ExtractDouble(byte[] data, int startBit)
+		{
+			if(isDouble)
+				return Double.longBitsToDouble(UnalignedData.ReadBits(data, startBit, 64));
+			return Float.intBitsToFloat((int)UnalignedData.ReadBits(data, startBit, 32));
+		}
+
+		public int InsertDouble(byte[] buffer, int startBit, double value)
+		{
+			if(isDouble)
+			{
+				UnalignedData.WriteBits(buffer, startBit, Double.doubleToLongBits(value), 64);
+				return 64;
+			}
+			UnalignedData.WriteBits(buffer, startBit, Float.floatToIntBits((float)value), 32);
+			return 32;
+		}
+	}
+
+	/// <summary>Codec of the Absolute Time and Relative Time PTCs.</summary>
+	private static final class TimeCodec extends ParameterCodec
+	{
+		private final boolean isExplicit;
+		private final boolean signed;
+		private final byte pField;
+
+		TimeCodec(ParameterCode parameterCode, int bitsSize)
+		{
+			super(parameterCode, bitsSize);
+			this.isExplicit = parameterCode.Pfc == 0;
+			this.signed = parameterCode.Ptc == PtcType.RelativeTime;
+			this.pField = isExplicit ? 0 : ParameterConverter.getImplicitTimePField(parameterCode);
+		}
+
+		public boolean isSigned()
+		{
+			return signed;
+		}
+
+		public byte getTimePField()
+		{
+			return pField;
+		}
+
+		public long ExtractTimeTicks(byte[] data, int startBit)
+		{
+			if(isExplicit)
+				return ParameterConverter.extractTimeTicks(data, startBit + 8, (byte)UnalignedData.ReadBits(data, startBit, 8), signed);
+			return ParameterConverter.extractTimeTicks(data, startBit, pField, signed);
+		}
+
+		public int InsertTimeTicks(byte[] buffer, int startBit, long ticks) throws ArgumentOutOfRangeException
+		{
+			if(isExplicit)
+			{
+				UnalignedData.WriteBits(buffer, startBit, 0x2F, 8); // 0b00101111 CUC-Level2-full
+				return 8 + ParameterConverter.insertTimeTicks(buffer, startBit + 8, ticks, (byte)0x2F, signed);
+			}
+			return ParameterConverter.insertTimeTicks(buffer, startBit, ticks, pField, signed);
+		}
+	}
+
+	/// <summary>Codec of the parameter codes without a primitive representation.</summary>
+	private static final class GenericCodec extends ParameterCodec
+	{
+		GenericCodec(ParameterCode parameterCode, int bitsSize)
+		{
+			super(parameterCode, bitsSize);
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package data_Ccsds.ParameterCode;
 
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
 
 import data.BitConverter;
 import data.ByteOrderConverter;
@@ -208,6 +207,7 @@ public class ParameterConverter
 			return 1;
 		case Enumerated:
 			return parameterCode.Pfc; // Bits size is PFC with Enumerated
+		case ObtCounter: // Same PFCs as Unsigned Integer
 		case UnsignedInteger:
 			if((parameterCode.Pfc >= 0) && (parameterCode.Pfc <= 12))
 				return parameterCode.Pfc + 4;
@@ -348,34 +348,33 @@ public class ParameterConverter
 
         try
         {
-            int readLength = ParameterConverter.GetBitsSize(parameterCode, data, startBit);
-            byte[] extractedData = UnalignedData.ExtractValue(data, startBit, readLength);
-            Object value = null;
-
-            int start;
+            // Values with a primitive representation are read directly from the data
             switch(parameterCode.Ptc)
             {
                 case Boolean:
-                    value = (extractedData[0] >> 7) > 0;
-                    break;
+                    return ExtractBoolean(data, parameterCode, startBit);
                 case Enumerated:
                 case UnsignedInteger:
                 case SignedInteger:
-                    value = BitConverter.ToInt64 (extractedData, 0);
-                    break;
+                    return ExtractLong(data, parameterCode, startBit);
                 case Real:
-                    switch(parameterCode.Pfc)
-                    {
-                        case 1:
-                            value = ByteBuffer.wrap (extractedData).getFloat ();
-                            break;
-                        case 2:
-                            value = ByteBuffer.wrap (extractedData).getDouble ();
-                            break;
-                        default:
-                            throw new NotSupportedException(null);
-                    }
+                    if(parameterCode.Pfc == 1)
+                        return (float)ExtractDouble(data, parameterCode, startBit);
+                    return ExtractDouble(data, parameterCode, startBit);
+                case AbsoluteTime:
+                case RelativeTime:
+                    return new TimeSpan(ExtractTimeTicks(data, parameterCode, startBit));
+                default:
                     break;
+            }
+
+            int readLength = ParameterConverter.GetBitsSize(parameterCode, data, startBit);
+            byte[] extractedData = UnalignedData.ExtractValue(data, startBit, readLength);
+            Object value = null;
+
+            int start;
+            switch(parameterCode.Ptc)
+            {
                 case BitString:
                     start = parameterCode.Pfc == 0 ? 1 : 0;
                     int length = start > 0 ? extractedData[0] : parameterCode.Pfc;
@@ -396,12 +395,6 @@ public class ParameterConverter
                     start = parameterCode.Pfc == 0 ? 1 : 0;
                     value = new String (extractedData, start, extractedData.length - start);
                     break;
-                case AbsoluteTime:
-                    value = extractAbsoluteTime(extractedData, parameterCode.Pfc);
-                    break;
-                case RelativeTime:
-                    value = extractRelativeTime(extractedData, parameterCode.Pfc);
-                    break;
                 case Deduced:
                     value = extractedData;
                     break;
@@ -418,6 +411,89 @@ public class ParameterConverter
         }
     }
 
+    /**
+     * Extract a Boolean value from a byte array without boxing.
+     * @param data Byte array containing the value to extract.
+     * @param parameterCode Parameter code of the value to extract, a Boolean.
+     * @param startBit index in bits at which the value starts.
+     * @return the extracted value.
+     */
+    public static boolean ExtractBoolean(byte[] data,
+                                         ParameterCode parameterCode,
+                                         int startBit) throws ArgumentNullException, NotSupportedException
+    {
+        if(parameterCode.Ptc != PtcType.Boolean)
+            throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " is not a boolean.");
+        ensureBitsInside(data, startBit, 1);
+        return UnalignedData.ReadBits(data, startBit, 1) != 0;
+    }
+
+    /**
+     * Extract an integer value from a byte array without boxing.
+     * @param data Byte array containing the value to extract.
+     * @param parameterCode Parameter code of the value to extract, an Enumerated,
+     *                      Unsigned Integer, Signed Integer or OBT Counter.
+     * @param startBit index in bits at which the value starts.
+     * @return the extracted value, sign-extended for Signed Integers.
+     */
+    public static long ExtractLong(byte[] data,
+                                   ParameterCode parameterCode,
+                                   int startBit) throws ArgumentNullException, NotSupportedException
+    {
+        int bitsSize;
+        switch(parameterCode.Ptc)
+        {
+            case Enumerated:
+            case UnsignedInteger:
+            case ObtCounter:
+                bitsSize = GetBitsSize(parameterCode);
+                ensureBitsInside(data, startBit, bitsSize);
+                return UnalignedData.ReadBits(data, startBit, bitsSize);
+            case SignedInteger:
+                bitsSize = GetBitsSize(parameterCode);
+                ensureBitsInside(data, startBit, bitsSize);
+                return (UnalignedData.ReadBits(data, startBit, bitsSize) << (64 - bitsSize)) >> (64 - bitsSize);
+            default:
+                throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " is not an integer.");
+        }
+    }
+
+    /**
+     * Extract a numeric value from a byte array as a double, without boxing.
+     * @param data Byte array containing the value to extract.
+     * @param parameterCode Parameter code of the value to extract, a Real
+     *                      (IEEE formats only) or any integer accepted by {@link #ExtractLong}.
+     * @param startBit index in bits at which the value starts.
+     * @return the extracted value.
+     */
+    public static double ExtractDouble(byte[] data,
+                                       ParameterCode parameterCode,
+                                       int startBit) throws ArgumentNullException, NotSupportedException
+    {
+        if(parameterCode.Ptc != PtcType.Real)
+            return ExtractLong(data, parameterCode, startBit);
+
+        switch(parameterCode.Pfc)
+        {
+            case 1:
+                ensureBitsInside(data, startBit, 32);
+                return Float.intBitsToFloat((int)UnalignedData.ReadBits(data, startBit, 32));
+            case 2:
+                ensureBitsInside(data, startBit, 64);
+                return Double.longBitsToDouble(UnalignedData.ReadBits(data, startBit, 64));
+            default:
+                throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " is not supported.");
+        }
+    }
+
+    private static void ensureBitsInside(byte[] data, int startBit, int bitsSize) throws ArgumentNullException
+    {
+        if(data == null)
+            throw new ArgumentNullException("data");
+        if(startBit < 0 || startBit + bitsSize > data.length * 8)
+            throw new IndexOutOfBoundsException ("The value does not fit inside the data array at bit index " + startBit + ".");
+    }
+
     /**
      * Copies bits of the byte array as booleans into the boolean array.
      * @param bytes the byte array.
@@ -521,89 +597,159 @@ public class ParameterConverter
         return data;
     }
     
-    private static TimeSpan extractAbsoluteTime(byte[] data, int pfc)
+    /**
+     * Extract a time value from a byte array without allocating a {@link TimeSpan}.
+     * @param data Byte array containing the value to extract.
+     * @param parameterCode Parameter code of the value, an Absolute or a Relative Time.
+     * @param startBit index in bits at which the value starts.
+     * @return the extracted time in ticks (same unit as {@link TimeSpan#Ticks}).
+     */
+    public static long ExtractTimeTicks(byte[] data,
+                                        ParameterCode parameterCode,
+                                        int startBit) throws ArgumentNullException, NotSupportedException
     {
-        if(pfc == 0)
-            return extractTime(data, data[0], true, false);
-        else if(pfc == 1)
-            return extractTime(data, (byte)0x48, false, false); // 0b01001000 CDS-Level2-16bit-ms
-        else if(pfc == 2)
-            return extractTime(data, (byte)0x49, false, false); // 0b01001001 CDS-Level2-16bit-us
+        if(data == null)
+            throw new ArgumentNullException("data");
+
+        if(parameterCode.Ptc != PtcType.AbsoluteTime && parameterCode.Ptc != PtcType.RelativeTime)
+            throw new NotSupportedException("The parameter code " + parameterCode.ToString() + " is not a time.");
+
+        boolean isSigned = parameterCode.Ptc == PtcType.RelativeTime;
+        if(parameterCode.Pfc == 0)
+            return extractTimeTicks(data, startBit + 8, (byte)UnalignedData.ReadBits(data, startBit, 8), isSigned);
         else
-            return extractTime(data, (byte)(0x20 + pfc - 3), false, false);
+            return extractTimeTicks(data, startBit, getImplicitTimePField(parameterCode), isSigned);
     }
 
-    private static TimeSpan extractRelativeTime(byte[] data, int pfc)
+    /**
+     * @param parameterCode an Absolute or Relative Time parameter code with a non-zero PFC.
+     * @return the P-field implied by the PFC of the parameter code.
+     */
+    static byte getImplicitTimePField(ParameterCode parameterCode)
     {
-        if(pfc == 0)
-            return extractTime(data, data[0], true, data[1] > 0x7F);
+        if(parameterCode.Ptc == PtcType.AbsoluteTime)
+        {
+            if(parameterCode.Pfc == 1)
+                return (byte)0x48; // 0b01001000 CDS-Level2-16bit-ms
+            else if(parameterCode.Pfc == 2)
+                return (byte)0x49; // 0b01001001 CDS-Level2-16bit-us
+            else
+                return (byte)(0x20 + parameterCode.Pfc - 3);
+        }
         else
-            return extractTime(data, (byte)(0x20 + pfc - 1), false, data[0] > 0x7F);
+            return (byte)(0x20 + parameterCode.Pfc - 1);
     }
 
-    private static TimeSpan extractTime(byte[] data,
-                                        byte pField,
-                                        boolean isExplicit,
-                                        boolean isSigned)
+    /**
+     * @param data byte array containing the time.
+     * @param index index in bits of the T-field (after the P-field if explicit).
+     * @param pField the P-field describing the T-field.
+     * @param isSigned whether a set MSB means a negative (2's complement) value.
+     * @return the time in ticks.
+     */
+    static long extractTimeTicks(byte[] data,
+                                         int index,
+                                         byte pField,
+                                         boolean isSigned)
     {
-        int offset = isExplicit ? 1 : 0;
-
         // Bit 1 = Time Format
         if((pField & 0x40) == 0)
         {
             // CUC
+            int coarceLength = ((pField >> 2) & 0x3) + 1;
+            int fineLength = (pField & 0x3);
+            int bitsSize = (coarceLength + fineLength) * 8;
+
+            long value = UnalignedData.ReadBits(data, index, bitsSize);
             int sign = 1;
-            if(isSigned && data[offset] > 0x7F) // Signed and negative
+            if(isSigned && (value >>> (bitsSize - 1)) != 0) // Signed and negative
             {
-                long value = 0;
-                for(int i = offset; i < data.length; i++)
-                    value |= (long)data[i] << ((data.length - i - 1) * 8);
-                value = (0xFFFFFFFFFFFFFFFFl - value) + 1;  // 2's complement
-                for(int i = offset; i < data.length; i++)
-                    data[i] = (byte)(value >> ((data.length - i - 1) * 8));
+                value = (-value) & (0xFFFFFFFFFFFFFFFFl >>> (64 - bitsSize)); // 2's complement
                 sign = -1;
             }
 
+            long sec = value >>> (fineLength * 8);
+            long fsec = (value << (32 - fineLength * 8)) & 0xFFFFFFFFl;
+
+            return ((sec * (10 * 1000 * 1000)) + (long)(fsec / 429.4967296d)) * sign; // 2^32 / 10'000'000 = 429.4967296
+        }
+        else
+        {
+            // CDS
+            boolean is24BitDay = (pField & 0x4) != 0;
+            boolean hasUSec = (pField & 0x3) == 1;
+
+            int daysSize = is24BitDay ? 24 : 16;
+            long days = UnalignedData.ReadBits(data, index, daysSize);
+            long msec = UnalignedData.ReadBits(data, index + daysSize, 32);
+            long usec = hasUSec ? UnalignedData.ReadBits(data, index + daysSize + 32, 16) : 0;
+
+            return (days * TimeSpan.TicksPerDay) + (msec * TimeSpan.TicksPerMillisecond) + (usec * 10);
+        }
+    }
+
+    /**
+     * Writes a time T-field into a buffer without allocating.
+     * @param buffer byte array to write the time into.
+     * @param index index in bits of the T-field (after the P-field if explicit).
+     * @param ticks the time in ticks.
+     * @param pField the P-field describing the T-field.
+     * @param isSigned whether negative times are encoded (2's complement).
+     * @return the number of bits written.
+     */
+    static int insertTimeTicks(byte[] buffer,
+                               int index,
+                               long ticks,
+                               byte pField,
+                               boolean isSigned) throws ArgumentOutOfRangeException
+    {
+        // Bit 1 = Time Format
+        if((pField & 0x40) == 0)
+        {
+            // CUC
             int coarceLength = ((pField >> 2) & 0x3) + 1;
             int fineLength = (pField & 0x3);
+            int bitsSize = (coarceLength + fineLength) * 8;
 
-            int sec = 0;
-            int fsec = 0;
-            for(int i = 0; i < coarceLength; i++)
-                sec |= ((int)data[i + offset] << ((coarceLength - i - 1) * 8));
-            for(int i = 0; i < fineLength; i++)
-                fsec |= ((int)data[i + coarceLength + offset] << ((3 - i) * 8));
+            boolean isNegative = ticks < 0;
+            if(isNegative && !isSigned)
+                throw new ArgumentOutOfRangeException("time");
+            long magnitude = isNegative ? -ticks : ticks;
+
+            long sec = magnitude / (10 * 1000 * 1000);
+            long fsec = (long)((magnitude % (10 * 1000 * 1000)) * 429.4967296d);   // 2^32 / 10'000'000 = 429.4967296
+            long maxSec = isSigned ? (1l << (coarceLength * 8 - 1)) - 1 : (1l << (coarceLength * 8)) - 1;
+            if(sec > maxSec)
+                throw new ArgumentOutOfRangeException("time");
+
+            long value = (sec << (fineLength * 8)) | (fsec >>> (32 - fineLength * 8));
+            if(isNegative)
+                value = (-value) & (0xFFFFFFFFFFFFFFFFl >>> (64 - bitsSize)); // 2's complement
 
-            return new TimeSpan((((long)sec * (10 * 1000 * 1000)) + (long)(fsec / 429.4967296d)) * sign); // 2^32 / 10'000'000 = 429.4967296
+            UnalignedData.WriteBits(buffer, index, value, bitsSize);
+            return bitsSize;
         }
         else
         {
             // CDS
-            boolean is24BitDay = (pField >> 2) == 1;
+            boolean is24BitDay = (pField & 0x4) != 0;
             boolean hasUSec = (pField & 0x3) == 1;
+            if(ticks < 0)
+                throw new ArgumentOutOfRangeException("time");
 
-            int days = 0;
-            int msec = 0;
-            short usec = 0;
-
-            int i = offset;
-            if(is24BitDay)
-                days |= (int)(data[i++] << 16);
-            days |= (int)(data[i++] << 8);
-            days |= data[i++];
-
-            msec |= (int)(data[i++] << 24);
-            msec |= (int)(data[i++] << 16);
-            msec |= (int)(data[i++] << 8);
-            msec |= data[i++];
+            int daysSize = is24BitDay ? 24 : 16;
+            long days = ticks / TimeSpan.TicksPerDay;
+            long msec = (ticks / TimeSpan.TicksPerMillisecond) % (TimeSpan.TicksPerDay / TimeSpan.TicksPerMillisecond);
+            if(days >= (1l << daysSize))
+                throw new ArgumentOutOfRangeException("time");
 
-            if(hasUSec)
-            {
-                usec |= (short)(data[i++] << 8);
-                usec |= data[i++];
-            }
+            UnalignedData.WriteBits(buffer, index, days, daysSize);
+            UnalignedData.WriteBits(buffer, index + daysSize, msec, 32);
+            if(!hasUSec)
+                return daysSize + 32;
 
-            return new TimeSpan((days * TimeSpan.TicksPerDay) + (msec * TimeSpan.TicksPerMillisecond) + (usec * 10));
+            UnalignedData.WriteBits(buffer, index + daysSize + 32, (ticks / 10) % 1000, 16);
+            return daysSize + 48;
         }
     }
 }
@@ -30,6 +30,79 @@ public class UnalignedData
         return result;
     }
     
+    /**
+     * Reads an unsigned big-endian value directly from the data array, without
+     * allocating an intermediate array.
+     * @param data the byte array containing the value.
+     * @param index bit index into data at which the value starts.
+     * @param bitsSize number of bits to read (at most 64).
+     * @return the value, right-aligned in a long.
+     */
+    public static long ReadBits (byte [] data,
+                                 int index,
+                                 int bitsSize)
+    {
+        long value = 0;
+        if ((index & 7) == 0 && (bitsSize & 7) == 0) {
+            // Byte aligned, read whole bytes.
+            int start = index >>> 3;
+            int end = start + (bitsSize >>> 3);
+            for (int i = start; i < end; i++) {
+                value = (value << 8) | (data [i] & 0xFF);
+            }
+            return value;
+        }
+
+        int position = index;
+        int remaining = bitsSize;
+        while (remaining > 0) {
+            int available = 8 - (position & 7);
+            int taken = Math.min (available, remaining);
+            int chunk = ((data [position >>> 3] & 0xFF) >>> (available - taken)) & ((1 << taken) - 1);
+            value = (value << taken) | chunk;
+            position += taken;
+            remaining -= taken;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the bitsSize least significant bits of value big-endian into the
+     * buffer, leaving the surrounding bits untouched and allocating nothing.
+     * @param buffer byte array to write the value into.
+     * @param index bit index into buffer at which the value starts.
+     * @param value the value, right-aligned in a long.
+     * @param bitsSize number of bits to write (at most 64).
+     */
+    public static void WriteBits (byte [] buffer,
+                                  int index,
+                                  long value,
+                                  int bitsSize)
+    {
+        if ((index & 7) == 0 && (bitsSize & 7) == 0) {
+            // Byte aligned, write whole bytes.
+            int start = index >>> 3;
+            for (int i = (bitsSize >>> 3) - 1; i >= 0; i--) {
+                buffer [start + i] = (byte)value;
+                value >>>= 8;
+            }
+            return;
+        }
+
+        int position = index;
+        int remaining = bitsSize;
+        while (remaining > 0) {
+            int available = 8 - (position & 7);
+            int taken = Math.min (available, remaining);
+            int shift = available - taken;
+            int mask = ((1 << taken) - 1) << shift;
+            int chunk = (int)(value >>> (remaining - taken)) & ((1 << taken) - 1);
+            buffer [position >>> 3] = (byte)((buffer [position >>> 3] & ~mask) | (chunk << shift));
+            position += taken;
+            remaining -= taken;
+        }
+    }
+
     /**
      * @param buffer byte array to insert the value into.
      * @param index bit index into buffer from where to start insertion.